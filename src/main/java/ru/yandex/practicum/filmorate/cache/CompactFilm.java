@@ -0,0 +1,46 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Set;
+
+// Неизменяемое представление фильма в кэше: примитивные поля вместо Long и LocalDate,
+// рейтинг и жанры — ссылки на общие экземпляры из ReferenceInterner.
+// Отсутствующие дата, продолжительность и версия кодируются значениями-маркерами
+record CompactFilm(long id, String name, String description, int releaseEpochDay, long duration, Mpa mpa,
+                   Genre[] genres, int likesCount, long version) {
+    private static final int NO_DATE = Integer.MIN_VALUE;
+    private static final long NO_DURATION = Long.MIN_VALUE;
+    private static final long NO_VERSION = Long.MIN_VALUE;
+
+    static CompactFilm of(Film film, ReferenceInterner interner) {
+        return new CompactFilm(
+                film.getId(),
+                film.getName(),
+                film.getDescription(),
+                film.getReleaseDate() != null ? (int) film.getReleaseDate().toEpochDay() : NO_DATE,
+                film.getDuration() != null ? film.getDuration() : NO_DURATION,
+                interner.mpa(film.getMpa()),
+                interner.genres(film.getGenres()),
+                film.getLikesCount(),
+                film.getVersion() != null ? film.getVersion() : NO_VERSION
+        );
+    }
+
+    // Каждый вызов собирает новый Film со своими Mpa и Genre: вызывающий код может их менять
+    Film toFilm() {
+        Mpa mpaCopy = mpa == null ? null : new Mpa(mpa.getId(), mpa.getName(), mpa.getDescription());
+        Set<Genre> genreCopies = new HashSet<>();
+        for (Genre genre : genres) {
+            genreCopies.add(new Genre(genre.getId(), genre.getName()));
+        }
+        return new Film(id, name, description,
+                releaseEpochDay != NO_DATE ? LocalDate.ofEpochDay(releaseEpochDay) : null,
+                duration != NO_DURATION ? duration : null,
+                mpaCopy, genreCopies, likesCount, version != NO_VERSION ? version : null);
+    }
+}
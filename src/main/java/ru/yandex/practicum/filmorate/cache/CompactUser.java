@@ -0,0 +1,38 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+// Неизменяемое представление пользователя в кэше: ID и дата рождения хранятся примитивами.
+// Отсутствие пользователя — отдельный экземпляр MISSING, без обёртки Optional на каждую запись
+record CompactUser(long id, String email, String login, String name, int birthdayEpochDay, long version) {
+    static final CompactUser MISSING = new CompactUser(0, null, null, null, 0, 0);
+    private static final int NO_DATE = Integer.MIN_VALUE;
+    private static final long NO_VERSION = Long.MIN_VALUE;
+
+    static CompactUser of(Optional<User> user) {
+        return user.map(CompactUser::of).orElse(MISSING);
+    }
+
+    static CompactUser of(User user) {
+        return new CompactUser(user.getId(), user.getEmail(), user.getLogin(), user.getName(),
+                user.getBirthday() != null ? (int) user.getBirthday().toEpochDay() : NO_DATE,
+                user.getVersion() != null ? user.getVersion() : NO_VERSION);
+    }
+
+    boolean isMissing() {
+        return this == MISSING;
+    }
+
+    Optional<User> toUser() {
+        if (isMissing()) {
+            return Optional.empty();
+        }
+        User user = new User(id, email, login, name,
+                birthdayEpochDay != NO_DATE ? LocalDate.ofEpochDay(birthdayEpochDay) : null);
+        user.setVersion(version != NO_VERSION ? version : null);
+        return Optional.of(user);
+    }
+}
@@ -0,0 +1,156 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.yandex.practicum.filmorate.event.FilmLikedEvent;
+import ru.yandex.practicum.filmorate.event.FilmUnlikedEvent;
+import ru.yandex.practicum.filmorate.event.FilmUpdatedEvent;
+import ru.yandex.practicum.filmorate.exception.InternalServerException;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.io.IOException;
+import java.util.function.Function;
+
+// Кэш полностью собранных фильмов. Первый уровень — Caffeine (вытеснение W-TinyLFU с учётом размера записи)
+// с фильмами в компактном виде, второй, необязательный, — сериализованные фильмы вне кучи,
+// куда попадают вытесненные из первого уровня
+@Slf4j
+@Component
+public class FilmCache implements MeterBinder {
+    private static final String CACHE_NAME = "films";
+    private static final int OFF_HEAP_SEGMENTS = 16;
+
+    private final Cache<Long, CompactFilm> hot;
+    private final OffHeapStore cold;
+    private final ReferenceInterner interner = new ReferenceInterner();
+    private final ObjectMapper mapper = JsonMapper.builder().addModule(new JavaTimeModule()).build();
+
+    public FilmCache(@Value("${filmorate.cache.films.max-weight:67108864}") long maxWeight,
+                     @Value("${filmorate.cache.films.off-heap-capacity:0}") int offHeapCapacity) {
+        this.cold = offHeapCapacity > 0 ? new OffHeapStore(offHeapCapacity, OFF_HEAP_SEGMENTS) : null;
+        this.hot = Caffeine.newBuilder()
+                .maximumWeight(maxWeight)
+                .weigher((Long filmId, CompactFilm film) -> weigh(film))
+                .evictionListener(this::demote)
+                .recordStats()
+                .build();
+        log.info("Кэш фильмов: {} байт в куче, {} байт вне кучи", maxWeight, offHeapCapacity);
+    }
+
+    public Film get(Long filmId, Function<Long, Film> loader) {
+        return hot.get(filmId, id -> {
+            Film demoted = promote(id);
+            return CompactFilm.of(demoted != null ? demoted : loader.apply(id), interner);
+        }).toFilm();
+    }
+
+    // Только первый уровень: без загрузки и без переноса из хранилища вне кучи
+    public Film getIfPresent(Long filmId) {
+        CompactFilm film = hot.getIfPresent(filmId);
+        return film != null ? film.toFilm() : null;
+    }
+
+    public boolean contains(Long filmId) {
+        return hot.getIfPresent(filmId) != null;
+    }
+
+    public void invalidate(Long filmId) {
+        hot.invalidate(filmId);
+        if (cold != null) {
+            cold.remove(filmId);
+        }
+    }
+
+    // Повторная инвалидация после коммита: чтение, начавшееся до коммита, могло положить в кэш старую версию
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFilmUpdated(FilmUpdatedEvent event) {
+        invalidate(event.filmId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFilmLiked(FilmLikedEvent event) {
+        invalidate(event.filmId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFilmUnliked(FilmUnlikedEvent event) {
+        invalidate(event.filmId());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, hot, CACHE_NAME);
+        if (cold != null) {
+            Gauge.builder("filmorate.cache.offheap.size", cold, OffHeapStore::size)
+                    .tag("cache", CACHE_NAME)
+                    .register(registry);
+            Gauge.builder("filmorate.cache.offheap.bytes", cold, OffHeapStore::usedBytes)
+                    .tag("cache", CACHE_NAME)
+                    .register(registry);
+            FunctionCounter.builder("filmorate.cache.offheap.gets", cold, OffHeapStore::hits)
+                    .tags("cache", CACHE_NAME, "result", "hit")
+                    .register(registry);
+            FunctionCounter.builder("filmorate.cache.offheap.gets", cold, OffHeapStore::misses)
+                    .tags("cache", CACHE_NAME, "result", "miss")
+                    .register(registry);
+            FunctionCounter.builder("filmorate.cache.offheap.evictions", cold, OffHeapStore::evictions)
+                    .tag("cache", CACHE_NAME)
+                    .register(registry);
+        }
+    }
+
+    Cache<Long, CompactFilm> hot() {
+        return hot;
+    }
+
+    private void demote(Long filmId, CompactFilm film, RemovalCause cause) {
+        if (cold == null || film == null || cause != RemovalCause.SIZE) {
+            return;
+        }
+        try {
+            cold.put(filmId, mapper.writeValueAsBytes(film.toFilm()));
+        } catch (JsonProcessingException e) {
+            log.warn("Не удалось перенести фильм {} в кэш вне кучи", filmId, e);
+        }
+    }
+
+    private Film promote(Long filmId) {
+        if (cold == null) {
+            return null;
+        }
+        byte[] bytes = cold.get(filmId);
+        if (bytes == null) {
+            return null;
+        }
+        cold.remove(filmId);
+        try {
+            return mapper.readValue(bytes, Film.class);
+        } catch (IOException e) {
+            throw new InternalServerException("Повреждена запись кэша фильма " + filmId);
+        }
+    }
+
+    // Приблизительный размер в куче: запись и строки фильма. Рейтинг и жанры общие для многих фильмов
+    // и почти ничего не добавляют
+    private static int weigh(CompactFilm film) {
+        return 64 + textWeight(film.name()) + textWeight(film.description());
+    }
+
+    private static int textWeight(String text) {
+        return text == null ? 0 : 40 + 2 * text.length();
+    }
+}
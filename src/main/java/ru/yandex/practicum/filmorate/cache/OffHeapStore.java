@@ -0,0 +1,115 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// Хранилище байтов вне кучи: одна прямая область памяти, разбитая на сегменты, которые заполняются по кругу.
+// Когда запись доходит до сегмента повторно, все записи в нём вытесняются разом. В куче остаётся только
+// индекс "ключ -> смещение и длина", поэтому содержимое не нагружает сборщик мусора
+final class OffHeapStore {
+    private final ByteBuffer arena;
+    private final int segmentSize;
+    private final long[][] segmentKeys;
+    private final int[] segmentKeyCounts;
+    private final Map<Long, Long> index = new HashMap<>();
+
+    private int segment;
+    private int position;
+    private long usedBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    OffHeapStore(int capacity, int segments) {
+        this.segmentSize = capacity / segments;
+        this.arena = ByteBuffer.allocateDirect(segmentSize * segments);
+        this.segmentKeys = new long[segments][16];
+        this.segmentKeyCounts = new int[segments];
+    }
+
+    synchronized boolean put(long key, byte[] value) {
+        if (value.length > segmentSize) {
+            return false;
+        }
+        if (position + value.length > segmentSize) {
+            recycleNextSegment();
+        }
+        remove(key);
+
+        int offset = segment * segmentSize + position;
+        arena.put(offset, value);
+        index.put(key, (long) offset << 32 | value.length);
+        if (segmentKeyCounts[segment] == segmentKeys[segment].length) {
+            segmentKeys[segment] = Arrays.copyOf(segmentKeys[segment], segmentKeys[segment].length * 2);
+        }
+        segmentKeys[segment][segmentKeyCounts[segment]++] = key;
+        position += value.length;
+        usedBytes += value.length;
+        return true;
+    }
+
+    synchronized byte[] get(long key) {
+        Long location = index.get(key);
+        if (location == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        byte[] value = new byte[lengthOf(location)];
+        arena.get(offsetOf(location), value);
+        return value;
+    }
+
+    synchronized void remove(long key) {
+        Long location = index.remove(key);
+        if (location != null) {
+            usedBytes -= lengthOf(location);
+        }
+    }
+
+    synchronized int size() {
+        return index.size();
+    }
+
+    synchronized long usedBytes() {
+        return usedBytes;
+    }
+
+    synchronized long hits() {
+        return hits;
+    }
+
+    synchronized long misses() {
+        return misses;
+    }
+
+    synchronized long evictions() {
+        return evictions;
+    }
+
+    private void recycleNextSegment() {
+        segment = (segment + 1) % segmentKeys.length;
+        position = 0;
+        long[] keys = segmentKeys[segment];
+        for (int idx = 0; idx < segmentKeyCounts[segment]; idx++) {
+            Long location = index.get(keys[idx]);
+            // Ключ мог быть перезаписан в другой сегмент — тогда его не трогаем
+            if (location != null && offsetOf(location) / segmentSize == segment) {
+                index.remove(keys[idx]);
+                usedBytes -= lengthOf(location);
+                evictions++;
+            }
+        }
+        segmentKeyCounts[segment] = 0;
+    }
+
+    private static int offsetOf(long location) {
+        return (int) (location >>> 32);
+    }
+
+    private static int lengthOf(long location) {
+        return (int) location;
+    }
+}
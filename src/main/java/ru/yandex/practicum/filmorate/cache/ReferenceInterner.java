@@ -0,0 +1,60 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Общие экземпляры справочных значений для закэшированных фильмов: рейтингов MPA немного, наборов жанров —
+// десятки, поэтому миллион фильмов ссылается на одни и те же объекты вместо собственных копий.
+// Экземпляры не выходят наружу — кэш отдаёт копии, так что изменяемость Mpa и Genre им не угрожает
+final class ReferenceInterner {
+    private static final int MAX_ENTRIES = 4096;
+    private static final Genre[] NO_GENRES = new Genre[0];
+    private static final Comparator<Genre> BY_ID =
+            Comparator.comparing(Genre::getId, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private final Map<Mpa, Mpa> mpas = new ConcurrentHashMap<>();
+    private final Map<Genre, Genre> genres = new ConcurrentHashMap<>();
+    private final Map<List<Genre>, Genre[]> genreSets = new ConcurrentHashMap<>();
+
+    Mpa mpa(Mpa mpa) {
+        if (mpa == null) {
+            return null;
+        }
+        Mpa copy = new Mpa(mpa.getId(), mpa.getName(), mpa.getDescription());
+        return intern(mpas, copy, copy);
+    }
+
+    Genre[] genres(Collection<Genre> filmGenres) {
+        if (filmGenres == null || filmGenres.isEmpty()) {
+            return NO_GENRES;
+        }
+        Genre[] sorted = new Genre[filmGenres.size()];
+        int size = 0;
+        for (Genre genre : filmGenres) {
+            Genre copy = new Genre(genre.getId(), genre.getName());
+            sorted[size++] = intern(genres, copy, copy);
+        }
+        Arrays.sort(sorted, BY_ID);
+        return intern(genreSets, List.of(sorted), sorted);
+    }
+
+    // Справочники маленькие; ограничение защищает от разрастания, если в данные попадёт что-то необычное
+    private static <K, V> V intern(Map<K, V> canonical, K key, V value) {
+        V existing = canonical.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        if (canonical.size() >= MAX_ENTRIES) {
+            return value;
+        }
+        existing = canonical.putIfAbsent(key, value);
+        return existing != null ? existing : value;
+    }
+}
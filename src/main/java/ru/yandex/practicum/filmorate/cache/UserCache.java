@@ -0,0 +1,90 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.yandex.practicum.filmorate.event.UserCreatedEvent;
+import ru.yandex.practicum.filmorate.event.UserUpdatedEvent;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+// Кэш пользователей по ID. Отсутствие пользователя тоже кэшируется, но на короткое время:
+// поток запросов с несуществующими ID не доходит до базы, а созданный пользователь быстро становится виден.
+// Параллельные промахи по одному ключу объединяются Caffeine в одну загрузку.
+// Пользователи хранятся в компактном виде (CompactUser), наружу отдаются свежие экземпляры User
+@Component
+public class UserCache implements MeterBinder {
+    private static final String CACHE_NAME = "users";
+
+    private final Cache<Long, CompactUser> cache;
+    private final LongAdder negativeHits = new LongAdder();
+
+    public UserCache(@Value("${filmorate.cache.users.max-size:100000}") long maxSize,
+                     @Value("${filmorate.cache.users.ttl:10m}") Duration ttl,
+                     @Value("${filmorate.cache.users.negative-ttl:5s}") Duration negativeTtl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new PresenceExpiry(ttl.toNanos(), negativeTtl.toNanos()))
+                .recordStats()
+                .build();
+    }
+
+    public Optional<User> get(Long userId, Function<Long, Optional<User>> loader) {
+        CompactUser user = cache.get(userId, id -> CompactUser.of(loader.apply(id)));
+        if (user.isMissing()) {
+            negativeHits.increment();
+        }
+        return user.toUser();
+    }
+
+    public void invalidate(Long userId) {
+        cache.invalidate(userId);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserCreated(UserCreatedEvent event) {
+        invalidate(event.userId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserUpdated(UserUpdatedEvent event) {
+        invalidate(event.userId());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, CACHE_NAME);
+        FunctionCounter.builder("filmorate.cache.negative.gets", negativeHits, LongAdder::sum)
+                .description("Обращения, завершившиеся ответом «пользователь не найден»")
+                .tag("cache", CACHE_NAME)
+                .register(registry);
+    }
+
+    private record PresenceExpiry(long ttlNanos, long negativeTtlNanos) implements Expiry<Long, CompactUser> {
+        @Override
+        public long expireAfterCreate(Long userId, CompactUser user, long currentTime) {
+            return user.isMissing() ? negativeTtlNanos : ttlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(Long userId, CompactUser user, long currentTime, long currentDuration) {
+            return expireAfterCreate(userId, user, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(Long userId, CompactUser user, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.boot.autoconfigure.sql.init.SqlInitializationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+@Configuration
+public class DatabaseConfig {
+
+    @Bean
+    public SchemaInitializer schemaInitializer(DataSource dataSource, SqlInitializationProperties properties) {
+        return new SchemaInitializer(dataSource, properties);
+    }
+}
@@ -0,0 +1,134 @@
+package ru.yandex.practicum.filmorate.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.exception.InternalServerException;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Заменитель репликации для локального запуска: копирует схему и данные основной H2 в реплики.
+@Slf4j
+public class H2ReplicationStandIn implements DisposableBean {
+    private static final String SCRIPT_SCHEMA_QUERY = "SCRIPT NODATA NOPASSWORDS NOSETTINGS";
+    private static final String FIND_TABLES_QUERY =
+            "SELECT table_name FROM information_schema.tables " +
+            "WHERE table_schema = 'PUBLIC' AND table_type = 'BASE TABLE'";
+
+    private final DataSource primary;
+    private final List<DataSource> replicas;
+    private final Duration interval;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "h2-replication-stand-in");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public H2ReplicationStandIn(DataSource primary, List<DataSource> replicas, Duration interval) {
+        this.primary = primary;
+        this.replicas = replicas;
+        this.interval = interval;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        copySchema();
+        sync();
+        scheduler.scheduleWithFixedDelay(this::syncQuietly,
+                interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+        log.info("Заменитель репликации запущен: {} реплик(и), интервал {}", replicas.size(), interval);
+    }
+
+    public void copySchema() {
+        List<String> statements = new JdbcTemplate(primary).queryForList(SCRIPT_SCHEMA_QUERY, String.class)
+                .stream()
+                .filter(H2ReplicationStandIn::isReplicatedDdl)
+                .toList();
+
+        for (DataSource replica : replicas) {
+            JdbcTemplate jdbc = new JdbcTemplate(replica);
+            jdbc.execute("DROP ALL OBJECTS");
+            statements.forEach(jdbc::execute);
+        }
+    }
+
+    public void sync() {
+        List<String> tables = new JdbcTemplate(primary).queryForList(FIND_TABLES_QUERY, String.class);
+        try (Connection source = primary.getConnection()) {
+            for (DataSource replica : replicas) {
+                copyData(source, replica, tables);
+            }
+        } catch (SQLException e) {
+            throw new InternalServerException("Не удалось синхронизировать реплику: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    private void syncQuietly() {
+        try {
+            sync();
+        } catch (RuntimeException e) {
+            log.warn("Ошибка синхронизации реплики", e);
+        }
+    }
+
+    private static boolean isReplicatedDdl(String statement) {
+        // Внешние ключи на реплике не нужны и мешают перезаливке таблиц в произвольном порядке
+        return statement.startsWith("CREATE") && !statement.startsWith("CREATE USER")
+                || statement.startsWith("ALTER TABLE") && !statement.contains("FOREIGN KEY");
+    }
+
+    private static void copyData(Connection source, DataSource replica, List<String> tables) throws SQLException {
+        try (Connection target = replica.getConnection()) {
+            target.setAutoCommit(false);
+            try {
+                for (String table : tables) {
+                    copyTable(source, target, table);
+                }
+                target.commit();
+            } catch (SQLException e) {
+                target.rollback();
+                throw e;
+            }
+        }
+    }
+
+    private static void copyTable(Connection source, Connection target, String table) throws SQLException {
+        try (Statement delete = target.createStatement()) {
+            delete.executeUpdate("DELETE FROM \"" + table + "\"");
+        }
+
+        try (Statement select = source.createStatement();
+             ResultSet rs = select.executeQuery("SELECT * FROM \"" + table + "\"")) {
+            int columns = rs.getMetaData().getColumnCount();
+            String placeholders = String.join(", ", Collections.nCopies(columns, "?"));
+            try (PreparedStatement insert = target.prepareStatement(
+                    "INSERT INTO \"" + table + "\" VALUES (" + placeholders + ")")) {
+                while (rs.next()) {
+                    for (int column = 1; column <= columns; column++) {
+                        insert.setObject(column, rs.getObject(column));
+                    }
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package ru.yandex.practicum.filmorate.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+@RequiredArgsConstructor
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+    static final String PRIMARY_UNTIL_COOKIE = "filmorate-primary-until";
+
+    private final Duration stickyWindow;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain chain) throws ServletException, IOException {
+        boolean write = !HttpMethod.GET.matches(request.getMethod())
+                && !HttpMethod.HEAD.matches(request.getMethod());
+
+        if (write || isWithinStickyWindow(request)) {
+            ReadYourWritesContext.pinToPrimary();
+        }
+        if (write) {
+            response.addCookie(primaryUntilCookie());
+        }
+
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ReadYourWritesContext.clear();
+        }
+    }
+
+    private boolean isWithinStickyWindow(HttpServletRequest request) {
+        if (request.getCookies() == null) {
+            return false;
+        }
+        for (Cookie cookie : request.getCookies()) {
+            if (PRIMARY_UNTIL_COOKIE.equals(cookie.getName())) {
+                try {
+                    return Long.parseLong(cookie.getValue()) > System.currentTimeMillis();
+                } catch (NumberFormatException ignored) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+
+    private Cookie primaryUntilCookie() {
+        long until = System.currentTimeMillis() + stickyWindow.toMillis();
+        Cookie cookie = new Cookie(PRIMARY_UNTIL_COOKIE, String.valueOf(until));
+        cookie.setPath("/");
+        cookie.setHttpOnly(true);
+        cookie.setMaxAge((int) Math.max(1, stickyWindow.toSeconds()));
+        return cookie;
+    }
+}
@@ -0,0 +1,61 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+@Configuration
+@ConditionalOnProperty(prefix = "filmorate.datasource.replicas", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(ReplicaProperties.class)
+public class ReplicaRoutingConfig {
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(DataSourceProperties primaryProperties,
+                                                             ReplicaProperties replicaProperties) {
+        DataSource primary = primaryProperties.initializeDataSourceBuilder().build();
+        List<DataSource> replicas = replicaProperties.urls().stream()
+                .<DataSource>map(url -> DataSourceBuilder.create()
+                        .driverClassName(primaryProperties.determineDriverClassName())
+                        .url(url)
+                        .username(replicaProperties.username() != null
+                                ? replicaProperties.username() : primaryProperties.determineUsername())
+                        .password(replicaProperties.password() != null
+                                ? replicaProperties.password() : primaryProperties.determinePassword())
+                        .build())
+                .toList();
+        return new ReplicaRoutingDataSource(primary, replicas);
+    }
+
+    // Соединение берётся лениво, чтобы к моменту выбора источника транзакция уже была помечена как read-only
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    @Bean
+    public FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter(ReplicaProperties properties) {
+        FilterRegistrationBean<ReadYourWritesFilter> registration =
+                new FilterRegistrationBean<>(new ReadYourWritesFilter(properties.stickyWindow()));
+        registration.addUrlPatterns("/*");
+        return registration;
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "filmorate.datasource.replicas", name = "stand-in", havingValue = "true")
+    public H2ReplicationStandIn h2ReplicationStandIn(ReplicaRoutingDataSource replicaRoutingDataSource,
+                                                     ReplicaProperties properties) {
+        return new H2ReplicationStandIn(replicaRoutingDataSource.getPrimary(),
+                replicaRoutingDataSource.getReplicas(),
+                properties.standInInterval());
+    }
+}
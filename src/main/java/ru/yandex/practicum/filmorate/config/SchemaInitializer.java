@@ -0,0 +1,80 @@
+package ru.yandex.practicum.filmorate.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.sql.init.SqlDataSourceScriptDatabaseInitializer;
+import org.springframework.boot.autoconfigure.sql.init.SqlInitializationProperties;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.exception.InternalServerException;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+@Slf4j
+public class SchemaInitializer extends SqlDataSourceScriptDatabaseInitializer {
+    private static final List<String> SCRIPTS = List.of("schema.sql", "data.sql");
+    private static final String CREATE_VERSION_TABLE_QUERY =
+            "CREATE TABLE IF NOT EXISTS schema_version (" +
+            "id INT PRIMARY KEY, " +
+            "checksum VARCHAR(64) NOT NULL, " +
+            "applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)";
+    private static final String FIND_CHECKSUM_QUERY = "SELECT checksum FROM schema_version WHERE id = 1";
+    private static final String SAVE_CHECKSUM_QUERY =
+            "MERGE INTO schema_version (id, checksum, applied_at) KEY(id) VALUES (1, ?, CURRENT_TIMESTAMP)";
+
+    private final JdbcTemplate jdbc;
+
+    public SchemaInitializer(DataSource dataSource, SqlInitializationProperties properties) {
+        super(dataSource, properties);
+        this.jdbc = new JdbcTemplate(dataSource);
+    }
+
+    @Override
+    public boolean initializeDatabase() {
+        String checksum = scriptsChecksum();
+        if (checksum.equals(findAppliedChecksum())) {
+            log.info("Схема базы данных актуальна ({}), инициализация пропущена", checksum);
+            return false;
+        }
+
+        boolean initialized = super.initializeDatabase();
+        if (initialized) {
+            jdbc.execute(CREATE_VERSION_TABLE_QUERY);
+            jdbc.update(SAVE_CHECKSUM_QUERY, checksum);
+            log.info("Схема базы данных инициализирована, версия {}", checksum);
+        }
+        return initialized;
+    }
+
+    private String findAppliedChecksum() {
+        try {
+            return jdbc.queryForObject(FIND_CHECKSUM_QUERY, String.class);
+        } catch (DataAccessException ignored) {
+            return null;
+        }
+    }
+
+    private static String scriptsChecksum() {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String script : SCRIPTS) {
+                Resource resource = new ClassPathResource(script);
+                if (resource.exists()) {
+                    try (InputStream in = resource.getInputStream()) {
+                        digest.update(in.readAllBytes());
+                    }
+                }
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (IOException | NoSuchAlgorithmException e) {
+            throw new InternalServerException("Не удалось вычислить контрольную сумму скриптов схемы");
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package ru.yandex.practicum.filmorate.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.yandex.practicum.filmorate.ratelimit.AdaptiveConcurrencyLimiter;
+import ru.yandex.practicum.filmorate.ratelimit.PoolWaitProbe;
+import ru.yandex.practicum.filmorate.ratelimit.WriteLoadFilter;
+
+@Configuration
+@ConditionalOnProperty(prefix = "filmorate.write-limits", name = "enabled", havingValue = "true",
+        matchIfMissing = true)
+@EnableConfigurationProperties(WriteLimitProperties.class)
+public class WriteLimitConfig {
+
+    // Фильтр-бин Spring Boot сам регистрирует на все адреса, чтения он пропускает
+    @Bean
+    public WriteLoadFilter writeLoadFilter(WriteLimitProperties properties,
+                                           MeterRegistry registry,
+                                           ObjectMapper json) {
+        AdaptiveConcurrencyLimiter concurrencyLimiter = new AdaptiveConcurrencyLimiter(
+                properties.initialConcurrency(),
+                properties.minConcurrency(),
+                properties.maxConcurrency(),
+                properties.latencyThreshold(),
+                properties.poolWaitThreshold(),
+                new PoolWaitProbe(registry, properties.poolWaitSampleInterval()));
+        return new WriteLoadFilter(properties.permitsPerSecond(), properties.burst(), properties.maxClients(),
+                concurrencyLimiter, json);
+    }
+}
@@ -0,0 +1,21 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "filmorate.write-limits")
+public record WriteLimitProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("50") double permitsPerSecond,
+        @DefaultValue("100") int burst,
+        @DefaultValue("100000") int maxClients,
+        @DefaultValue("20") int initialConcurrency,
+        @DefaultValue("2") int minConcurrency,
+        @DefaultValue("200") int maxConcurrency,
+        @DefaultValue("250ms") Duration latencyThreshold,
+        @DefaultValue("50ms") Duration poolWaitThreshold,
+        @DefaultValue("100ms") Duration poolWaitSampleInterval
+) {
+}
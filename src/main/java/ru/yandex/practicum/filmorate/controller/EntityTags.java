@@ -0,0 +1,57 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+// ETag строится из версии строки. У фильма к версии добавляется число лайков: лайки не меняют версию,
+// чтобы не конфликтовать с правками, но меняют представление. If-Match сверяет только версию
+final class EntityTags {
+    private EntityTags() {
+    }
+
+    static String of(Film film) {
+        return "\"" + film.getVersion() + "-" + film.getLikesCount() + "\"";
+    }
+
+    static String of(User user) {
+        return "\"" + user.getVersion() + "\"";
+    }
+
+    // Отсутствующий заголовок и "*" — обновление без проверки версии
+    static Long version(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = unquote(ifMatch.trim());
+        int separator = tag.indexOf('-');
+        try {
+            return Long.parseLong(separator >= 0 ? tag.substring(0, separator) : tag);
+        } catch (NumberFormatException e) {
+            throw new ValidationException("Некорректный заголовок If-Match: " + ifMatch);
+        }
+    }
+
+    // Ответ с ETag; если клиент прислал тот же тег в If-None-Match, тело не отправляется
+    static <T> ResponseEntity<T> respond(T body, String etag, String ifNoneMatch) {
+        if (ifNoneMatch != null) {
+            for (String candidate : ifNoneMatch.split(",")) {
+                String tag = candidate.trim();
+                if (tag.equals("*") || unquote(tag).equals(unquote(etag))) {
+                    return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+                }
+            }
+        }
+        return ResponseEntity.ok().eTag(etag).body(body);
+    }
+
+    private static String unquote(String tag) {
+        String strong = tag.startsWith("W/") ? tag.substring(2) : tag;
+        if (strong.length() >= 2 && strong.startsWith("\"") && strong.endsWith("\"")) {
+            return strong.substring(1, strong.length() - 1);
+        }
+        return strong;
+    }
+}
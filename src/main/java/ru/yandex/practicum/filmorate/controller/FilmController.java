@@ -1,11 +1,18 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import ru.yandex.practicum.filmorate.dto.FilmSuggestion;
+import ru.yandex.practicum.filmorate.dto.LikeOperation;
+import ru.yandex.practicum.filmorate.dto.LikeResult;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.service.FilmService;
 
 import java.util.Collection;
+import java.util.List;
 
 @RestController
 @RequiredArgsConstructor
@@ -19,14 +26,41 @@ public class FilmController {
     }
 
     @GetMapping("/{filmId}")
-    public Film getUserById(@PathVariable Long filmId) {
-        return filmService.getFilmById(filmId);
+    public ResponseEntity<Film> getUserById(
+            @PathVariable Long filmId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Film film = filmService.getFilmById(filmId);
+        return EntityTags.respond(film, EntityTags.of(film), ifNoneMatch);
     }
 
     @GetMapping("/popular")
     public Collection<Film> getPopularFilms(
+            @RequestParam(defaultValue = "10") int count,
+            @RequestParam(required = false) Long genreId,
+            @RequestParam(required = false) Integer year) {
+        return filmService.getPopularFilms(count, genreId, year);
+    }
+
+    @GetMapping("/trending")
+    public Collection<Film> getTrendingFilms(
+            @RequestParam(defaultValue = "day") String window,
+            @RequestParam(defaultValue = "10") int count) {
+        return filmService.getTrendingFilms(window, count);
+    }
+
+    @GetMapping("/search")
+    public Collection<Film> searchFilms(
+            @RequestParam String query,
+            @RequestParam(defaultValue = "title,description") List<String> by,
+            @RequestParam(defaultValue = "10") int count) {
+        return filmService.searchFilms(query, by, count);
+    }
+
+    @GetMapping("/autocomplete")
+    public Collection<FilmSuggestion> suggestFilms(
+            @RequestParam String prefix,
             @RequestParam(defaultValue = "10") int count) {
-        return filmService.getPopularFilms(count);
+        return filmService.suggestFilms(prefix, count);
     }
 
     @PostMapping
@@ -34,9 +68,27 @@ public class FilmController {
         return filmService.createFilm(film);
     }
 
+    // Версия из If-Match важнее версии в теле; без обеих фильм перезаписывается без проверки
     @PutMapping
-    public Film updateFilm(@RequestBody Film film) {
-        return filmService.updateFilm(film);
+    public ResponseEntity<Film> updateFilm(
+            @RequestBody Film film,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Long version = EntityTags.version(ifMatch);
+        if (version != null) {
+            film.setVersion(version);
+        }
+        Film updated = filmService.updateFilm(film);
+        return ResponseEntity.ok().eTag(EntityTags.of(updated)).body(updated);
+    }
+
+    // JSON Merge Patch: в теле только изменяемые поля, отсутствующие остаются прежними
+    @PatchMapping("/{filmId}")
+    public ResponseEntity<Film> patchFilm(
+            @PathVariable Long filmId,
+            @RequestBody JsonNode patch,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Film patched = filmService.patchFilm(filmId, patch, EntityTags.version(ifMatch));
+        return ResponseEntity.ok().eTag(EntityTags.of(patched)).body(patched);
     }
 
     @PutMapping("/{filmId}/like/{userId}")
@@ -47,6 +99,11 @@ public class FilmController {
         return filmService.likeTheFilm(filmId, userId);
     }
 
+    @PostMapping("/likes/batch")
+    public List<LikeResult> applyLikes(@RequestBody List<LikeOperation> operations) {
+        return filmService.applyLikes(operations);
+    }
+
     @DeleteMapping("/{filmId}/like/{userId}")
     public Film dislikeFilm(
             @PathVariable Long filmId,
@@ -0,0 +1,135 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.GenreService;
+import ru.yandex.practicum.filmorate.service.MpaService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+
+// Потоковая выдача списков построчно в NDJSON (Accept: application/x-ndjson) для всех читающих эндпоинтов
+// со списками. Длинные списки (фильмы, пользователи, друзья) читаются из базы страницами по ключу и пишутся
+// по мере чтения: в памяти держится одна страница, а медленный клиент сам притормаживает чтение, потому что
+// запись в сокет блокируется, пока он не заберёт данные. Короткие списки (популярные, общие друзья, жанры,
+// рейтинги) читаются целиком и пишутся построчно. Первая страница читается до начала ответа, поэтому
+// ошибки вроде неизвестного пользователя возвращаются обычным ответом с кодом, а не обрывом потока
+@Slf4j
+@RestController
+public class ListStreamController {
+    private final FilmService filmService;
+    private final UserService userService;
+    private final GenreService genreService;
+    private final MpaService mpaService;
+    private final ObjectMapper json;
+    private final int pageSize;
+
+    public ListStreamController(FilmService filmService,
+                                UserService userService,
+                                GenreService genreService,
+                                MpaService mpaService,
+                                ObjectMapper json,
+                                @Value("${filmorate.stream.page-size:500}") int pageSize) {
+        this.filmService = filmService;
+        this.userService = userService;
+        this.genreService = genreService;
+        this.mpaService = mpaService;
+        this.json = json;
+        this.pageSize = pageSize;
+    }
+
+    @GetMapping(value = "/films", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamFilms() {
+        log.info("Потоковая выдача всех фильмов");
+        return ndjson(pages(afterId -> filmService.getFilmsPage(afterId, pageSize), Film::getId));
+    }
+
+    @GetMapping(value = "/films/popular", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamPopularFilms(
+            @RequestParam(defaultValue = "10") int count,
+            @RequestParam(required = false) Long genreId,
+            @RequestParam(required = false) Integer year) {
+        log.info("Потоковая выдача популярных фильмов");
+        return ndjson(items(filmService.getPopularFilms(count, genreId, year)));
+    }
+
+    @GetMapping(value = "/users", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamUsers() {
+        log.info("Потоковая выдача всех пользователей");
+        return ndjson(pages(afterId -> userService.getUsersPage(afterId, pageSize), User::getId));
+    }
+
+    @GetMapping(value = "/users/{userId}/friends", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamFriends(@PathVariable Long userId) {
+        log.info("Потоковая выдача друзей пользователя {}", userId);
+        return ndjson(pages(afterId -> userService.getFriendsPage(userId, afterId, pageSize), User::getId));
+    }
+
+    @GetMapping(value = "/users/{userId}/friends/common/{otherId}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamCommonFriends(@PathVariable Long userId,
+                                                                     @PathVariable Long otherId) {
+        log.info("Потоковая выдача общих друзей пользователей {} и {}", userId, otherId);
+        return ndjson(items(userService.getCommonFriends(userId, otherId)));
+    }
+
+    @GetMapping(value = "/genres", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamGenres() {
+        return ndjson(items(genreService.getAllGenres()));
+    }
+
+    @GetMapping(value = "/mpa", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamMpa() {
+        return ndjson(items(mpaService.getAllMpa()));
+    }
+
+    private static ResponseEntity<StreamingResponseBody> ndjson(StreamingResponseBody body) {
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    // Неполная страница — последняя; если записей ровно на целое число страниц, последней будет пустая
+    private <T> StreamingResponseBody pages(LongFunction<List<T>> pages, Function<T, Long> idOf) {
+        List<T> first = pages.apply(0);
+        return out -> {
+            try (SequenceWriter writer = writer(out)) {
+                List<T> page = first;
+                while (true) {
+                    writer.writeAll(page);
+                    writer.flush();
+                    if (page.size() < pageSize) {
+                        break;
+                    }
+                    page = pages.apply(idOf.apply(page.getLast()));
+                }
+            }
+        };
+    }
+
+    private StreamingResponseBody items(Collection<?> items) {
+        return out -> {
+            try (SequenceWriter writer = writer(out)) {
+                writer.writeAll(items);
+            }
+        };
+    }
+
+    private SequenceWriter writer(OutputStream out) throws IOException {
+        return json.writer().withRootValueSeparator("\n").writeValues(out);
+    }
+}
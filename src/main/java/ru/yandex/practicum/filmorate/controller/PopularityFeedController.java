@@ -0,0 +1,25 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.yandex.practicum.filmorate.feed.PopularityFeed;
+
+// Потоковая замена опросу /films/popular: сначала снимок рейтинга, затем изменения по мере лайков
+@Slf4j
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/films/popular")
+public class PopularityFeedController {
+    private final PopularityFeed popularityFeed;
+
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamPopularity() {
+        log.info("Новый подписчик ленты популярности");
+        return popularityFeed.subscribe();
+    }
+}
@@ -1,13 +1,18 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import ru.yandex.practicum.filmorate.dto.FriendshipImportResult;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.service.UserService;
 
 import java.util.Collection;
+import java.util.List;
 
 @Slf4j
 @RestController
@@ -22,8 +27,11 @@ public class UserController {
     }
 
     @GetMapping("/{userId}")
-    public User getUserById(@PathVariable Long userId) {
-        return userService.getUserById(userId);
+    public ResponseEntity<User> getUserById(
+            @PathVariable Long userId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        User user = userService.getUserById(userId);
+        return EntityTags.respond(user, EntityTags.of(user), ifNoneMatch);
     }
 
     @GetMapping("/{userId}/friends")
@@ -44,9 +52,30 @@ public class UserController {
         return userService.createUser(user);
     }
 
+    @PostMapping("/friends/import")
+    public FriendshipImportResult importFriendships(@RequestBody List<Friendship> edges) {
+        return userService.importFriendships(edges);
+    }
+
     @PutMapping
-    public User updateUser(@RequestBody User user) {
-        return userService.updateUser(user);
+    public ResponseEntity<User> updateUser(
+            @RequestBody User user,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Long version = EntityTags.version(ifMatch);
+        if (version != null) {
+            user.setVersion(version);
+        }
+        User updated = userService.updateUser(user);
+        return ResponseEntity.ok().eTag(EntityTags.of(updated)).body(updated);
+    }
+
+    @PatchMapping("/{userId}")
+    public ResponseEntity<User> patchUser(
+            @PathVariable Long userId,
+            @RequestBody JsonNode patch,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        User patched = userService.patchUser(userId, patch, EntityTags.version(ifMatch));
+        return ResponseEntity.ok().eTag(EntityTags.of(patched)).body(patched);
     }
 
     @PutMapping("/{userId}/friends/{friendId}")
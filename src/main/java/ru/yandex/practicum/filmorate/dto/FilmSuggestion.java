@@ -0,0 +1,4 @@
+package ru.yandex.practicum.filmorate.dto;
+
+public record FilmSuggestion(Long id, String name) {
+}
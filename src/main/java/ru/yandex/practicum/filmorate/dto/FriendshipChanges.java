@@ -0,0 +1,10 @@
+package ru.yandex.practicum.filmorate.dto;
+
+public record FriendshipChanges(int friendshipsCreated, int requestsCreated, int requestsResolved) {
+    public static final FriendshipChanges NONE = new FriendshipChanges(0, 0, 0);
+
+    public FriendshipChanges plus(FriendshipChanges other) {
+        return new FriendshipChanges(friendshipsCreated + other.friendshipsCreated,
+                requestsCreated + other.requestsCreated, requestsResolved + other.requestsResolved);
+    }
+}
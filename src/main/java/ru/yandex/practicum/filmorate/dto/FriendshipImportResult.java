@@ -0,0 +1,14 @@
+package ru.yandex.practicum.filmorate.dto;
+
+public record FriendshipImportResult(
+        int received,
+        int duplicates,
+        int invalid,
+        int unknownUsers,
+        int friendshipsCreated,
+        int requestsCreated,
+        int requestsResolved,
+        long elapsedMillis,
+        long edgesPerSecond
+) {
+}
@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.dto;
+
+public enum LikeAction {
+    LIKE,
+    UNLIKE;
+
+    // Неизвестное действие — не ошибка всего пакета, а статус INVALID у конкретной операции
+    public static LikeAction fromParameter(String value) {
+        for (LikeAction action : values()) {
+            if (action.name().equalsIgnoreCase(value)) {
+                return action;
+            }
+        }
+        return null;
+    }
+}
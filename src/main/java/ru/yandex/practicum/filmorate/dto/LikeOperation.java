@@ -0,0 +1,4 @@
+package ru.yandex.practicum.filmorate.dto;
+
+public record LikeOperation(Long filmId, Long userId, String action) {
+}
@@ -0,0 +1,10 @@
+package ru.yandex.practicum.filmorate.dto;
+
+public enum LikeStatus {
+    APPLIED,
+    ALREADY_LIKED,
+    NOT_LIKED,
+    FILM_NOT_FOUND,
+    USER_NOT_FOUND,
+    INVALID
+}
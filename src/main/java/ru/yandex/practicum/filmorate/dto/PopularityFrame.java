@@ -0,0 +1,8 @@
+package ru.yandex.practicum.filmorate.dto;
+
+import java.util.List;
+
+// Кадр ленты популярности: snapshot — весь рейтинг целиком, delta — только изменившиеся позиции
+// и фильмы, выпавшие из рейтинга, относительно кадра с номером version - 1
+public record PopularityFrame(String type, long version, List<RankedFilm> films, List<Long> removed) {
+}
@@ -0,0 +1,4 @@
+package ru.yandex.practicum.filmorate.dto;
+
+public record RankedFilm(long filmId, int rank, int likes) {
+}
@@ -0,0 +1,5 @@
+package ru.yandex.practicum.filmorate.event;
+
+// Событие с номером sequence, которое подписчик consumer не обработал за все попытки доставки
+public record DeliveryFailure(long sequence, String consumer, RuntimeException error) {
+}
@@ -0,0 +1,6 @@
+package ru.yandex.practicum.filmorate.event;
+
+// Общий тип событий предметной области: такие события пишутся в outbox в транзакции изменения
+// и после коммита доходят до подписчиков EventBus
+public interface DomainEvent {
+}
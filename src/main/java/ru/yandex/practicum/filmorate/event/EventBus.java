@@ -0,0 +1,284 @@
+package ru.yandex.practicum.filmorate.event;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Асинхронная шина событий в духе Disruptor: кольцевой буфер фиксированного размера без блокировок.
+// Производители занимают номер ячейки через CAS, пишут событие и отмечают ячейку опубликованной;
+// у каждого подписчика свой поток и свой курсор. Производитель не может обогнать самого медленного
+// подписчика больше чем на размер буфера и ждёт — так работает обратное давление.
+// В шину попадают только закоммиченные изменения: события приносит OutboxRelay из таблицы outbox.
+// Событие, которое подписчик не обработал за MAX_ATTEMPTS попыток, не теряется: шина запоминает сбой,
+// и OutboxRelay откладывает событие в очередь повторной доставки этому подписчику
+@Slf4j
+@Component
+public class EventBus implements MeterBinder {
+    private static final int MAX_ATTEMPTS = 5;
+    private static final long FIRST_RETRY_MILLIS = 10;
+    private static final long MAX_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final Duration DRAIN_TIMEOUT = Duration.ofSeconds(5);
+
+    private final int mask;
+    private final DomainEvent[] entries;
+    // Имя подписчика, которому адресовано событие; null — всем
+    private final String[] targets;
+    private final AtomicLongArray published;
+    private final AtomicLong claimed = new AtomicLong(-1);
+    private final List<Subscription> subscriptions = new ArrayList<>();
+    private final Queue<DeliveryFailure> deliveryFailures = new ConcurrentLinkedQueue<>();
+    private final LongAdder publishedEvents = new LongAdder();
+    private final LongAdder backpressureWaits = new LongAdder();
+    private volatile boolean running;
+    private volatile boolean stopped;
+
+    public EventBus(List<EventConsumer> consumers, @Value("${filmorate.events.buffer-size:8192}") int bufferSize) {
+        if (Integer.bitCount(bufferSize) != 1) {
+            throw new IllegalArgumentException("Размер буфера событий должен быть степенью двойки: " + bufferSize);
+        }
+        this.mask = bufferSize - 1;
+        this.entries = new DomainEvent[bufferSize];
+        this.targets = new String[bufferSize];
+        this.published = new AtomicLongArray(bufferSize);
+        for (int idx = 0; idx < bufferSize; idx++) {
+            published.set(idx, -1);
+        }
+        consumers.forEach(consumer -> subscriptions.add(new Subscription(consumer)));
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        subscriptions.forEach(Subscription::start);
+        log.info("Шина событий запущена: буфер {}, подписчики {}", entries.length,
+                subscriptions.stream().map(subscription -> subscription.consumer.name()).toList());
+    }
+
+    // Дожидается, пока подписчики разберут уже опубликованные события, но не дольше DRAIN_TIMEOUT
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        stopped = true;
+        long deadline = System.nanoTime() + DRAIN_TIMEOUT.toNanos();
+        for (Subscription subscription : subscriptions) {
+            subscription.thread.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+            if (subscription.thread.isAlive()) {
+                log.warn("Подписчик {} не успел разобрать {} событий", subscription.consumer.name(),
+                        lag(subscription));
+                subscription.thread.interrupt();
+            }
+        }
+    }
+
+    // Возвращает номер события в шине, по которому можно дождаться доставки
+    public long publish(DomainEvent event) {
+        return publish(event, null);
+    }
+
+    // Доставляет событие только одному подписчику — для повторной доставки после его сбоя
+    public long publishTo(String consumerName, DomainEvent event) {
+        if (!hasConsumer(consumerName)) {
+            throw new IllegalArgumentException("Неизвестный подписчик: " + consumerName);
+        }
+        return publish(event, consumerName);
+    }
+
+    public boolean hasConsumer(String consumerName) {
+        return subscriptions.stream().anyMatch(subscription -> subscription.consumer.name().equals(consumerName));
+    }
+
+    // Забирает накопленные сбои доставки. Сбой попадает в очередь раньше, чем курсор подписчика проходит
+    // событие, поэтому после awaitDelivered здесь уже есть все сбои по событиям до этого номера
+    public List<DeliveryFailure> drainFailures() {
+        List<DeliveryFailure> drained = new ArrayList<>();
+        DeliveryFailure failure;
+        while ((failure = deliveryFailures.poll()) != null) {
+            drained.add(failure);
+        }
+        return drained;
+    }
+
+    private long publish(DomainEvent event, String target) {
+        long sequence = claim();
+        entries[(int) sequence & mask] = event;
+        targets[(int) sequence & mask] = target;
+        published.set((int) sequence & mask, sequence);
+        publishedEvents.increment();
+        return sequence;
+    }
+
+    // Ждёт, пока все подписчики обработают события до sequence включительно.
+    // Возвращает false, если шину остановили раньше
+    public boolean awaitDelivered(long sequence) throws InterruptedException {
+        long waitNanos = 1;
+        while (slowestSequence(sequence) < sequence) {
+            if (stopped) {
+                return false;
+            }
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            LockSupport.parkNanos(waitNanos);
+            waitNanos = Math.min(waitNanos * 2, MAX_WAIT_NANOS);
+        }
+        return true;
+    }
+
+    public long lag(String consumerName) {
+        return subscriptions.stream()
+                .filter(subscription -> subscription.consumer.name().equals(consumerName))
+                .mapToLong(this::lag)
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Неизвестный подписчик: " + consumerName));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("filmorate.events.published", publishedEvents, LongAdder::sum)
+                .register(registry);
+        FunctionCounter.builder("filmorate.events.backpressure.waits", backpressureWaits, LongAdder::sum)
+                .description("Сколько раз производитель ждал освобождения места в буфере")
+                .register(registry);
+        Gauge.builder("filmorate.events.buffer.remaining", this, EventBus::remainingCapacity)
+                .register(registry);
+        for (Subscription subscription : subscriptions) {
+            String name = subscription.consumer.name();
+            Gauge.builder("filmorate.events.lag", subscription, this::lag)
+                    .tag("consumer", name)
+                    .register(registry);
+            FunctionCounter.builder("filmorate.events.retries", subscription.retries, LongAdder::sum)
+                    .tag("consumer", name)
+                    .register(registry);
+            FunctionCounter.builder("filmorate.events.failures", subscription.failures, LongAdder::sum)
+                    .tag("consumer", name)
+                    .register(registry);
+        }
+    }
+
+    private long claim() {
+        long waitNanos = 1;
+        while (true) {
+            long current = claimed.get();
+            long next = current + 1;
+            // После остановки подписчиков ждать некого — старые события просто перезаписываются
+            if (!stopped && next - entries.length > slowestSequence(current)) {
+                backpressureWaits.increment();
+                LockSupport.parkNanos(waitNanos);
+                waitNanos = Math.min(waitNanos * 2, MAX_WAIT_NANOS);
+                continue;
+            }
+            if (claimed.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    private long slowestSequence(long fallback) {
+        long slowest = fallback;
+        for (Subscription subscription : subscriptions) {
+            slowest = Math.min(slowest, subscription.sequence.get());
+        }
+        return slowest;
+    }
+
+    private long lag(Subscription subscription) {
+        return Math.max(0, claimed.get() - subscription.sequence.get());
+    }
+
+    private double remainingCapacity() {
+        long used = claimed.get() - slowestSequence(claimed.get());
+        return entries.length - used;
+    }
+
+    private final class Subscription implements Runnable {
+        private final EventConsumer consumer;
+        private final AtomicLong sequence = new AtomicLong(-1);
+        private final LongAdder retries = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final Thread thread;
+
+        private Subscription(EventConsumer consumer) {
+            this.consumer = consumer;
+            this.thread = new Thread(this, "events-" + consumer.name());
+            this.thread.setDaemon(true);
+        }
+
+        private void start() {
+            thread.start();
+        }
+
+        @Override
+        public void run() {
+            long next = sequence.get() + 1;
+            int idle = 0;
+            while (running || next <= claimed.get()) {
+                int slot = (int) next & mask;
+                if (published.get(slot) != next) {
+                    idle = idle(idle);
+                    continue;
+                }
+                String target = targets[slot];
+                if (target == null || target.equals(consumer.name())) {
+                    deliver(next, entries[slot]);
+                }
+                sequence.set(next);
+                next++;
+                idle = 0;
+            }
+        }
+
+        // Повторяет доставку с растущей паузой; после MAX_ATTEMPTS сбой записывается для OutboxRelay,
+        // а курсор идёт дальше, чтобы один сбойный подписчик не остановил остальных через обратное давление
+        private void deliver(long eventSequence, DomainEvent event) {
+            long pauseMillis = FIRST_RETRY_MILLIS;
+            for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+                try {
+                    consumer.accept(event);
+                    return;
+                } catch (RuntimeException e) {
+                    if (attempt == MAX_ATTEMPTS) {
+                        failures.increment();
+                        deliveryFailures.add(new DeliveryFailure(eventSequence, consumer.name(), e));
+                        log.error("Подписчик {} не обработал событие {} за {} попыток", consumer.name(), event,
+                                MAX_ATTEMPTS, e);
+                        return;
+                    }
+                    retries.increment();
+                    log.warn("Подписчик {} не обработал событие {}, повтор через {} мс", consumer.name(), event,
+                            pauseMillis, e);
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(pauseMillis));
+                    pauseMillis *= 2;
+                }
+            }
+        }
+
+        // Сначала короткое активное ожидание, затем уступаем процессор, затем засыпаем
+        private int idle(int idle) {
+            if (idle < 100) {
+                Thread.onSpinWait();
+            } else if (idle < 200) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(MAX_WAIT_NANOS);
+            }
+            return Math.min(idle + 1, 200);
+        }
+    }
+}
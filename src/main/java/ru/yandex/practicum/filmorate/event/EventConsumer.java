@@ -0,0 +1,10 @@
+package ru.yandex.practicum.filmorate.event;
+
+// Подписчик EventBus. Каждый подписчик получает все события в порядке публикации в своём потоке.
+// Доставка «хотя бы один раз»: после ошибки событие доставляется повторно, поэтому обработка
+// должна быть идемпотентной или терпеть повторы
+public interface EventConsumer {
+    String name();
+
+    void accept(DomainEvent event);
+}
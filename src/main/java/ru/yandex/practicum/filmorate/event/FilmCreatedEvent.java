@@ -0,0 +1,8 @@
+package ru.yandex.practicum.filmorate.event;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+public record FilmCreatedEvent(Long filmId, String name, String description, LocalDate releaseDate,
+                              Set<Long> genreIds) implements DomainEvent {
+}
@@ -0,0 +1,6 @@
+package ru.yandex.practicum.filmorate.event;
+
+import java.time.Instant;
+
+public record FilmUnlikedEvent(Long filmId, Long userId, Instant likedAt) implements DomainEvent {
+}
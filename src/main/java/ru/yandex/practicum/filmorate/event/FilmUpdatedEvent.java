@@ -0,0 +1,13 @@
+package ru.yandex.practicum.filmorate.event;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+// Жанры передаются разницей с прежним составом: подписчикам, которым нужен полный список, хватает своего состояния
+public record FilmUpdatedEvent(Long filmId, String name, String description, LocalDate releaseDate,
+                               Set<Long> addedGenreIds, Set<Long> removedGenreIds) implements DomainEvent {
+    public FilmUpdatedEvent {
+        addedGenreIds = addedGenreIds != null ? addedGenreIds : Set.of();
+        removedGenreIds = removedGenreIds != null ? removedGenreIds : Set.of();
+    }
+}
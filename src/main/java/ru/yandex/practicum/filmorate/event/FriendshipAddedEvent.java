@@ -0,0 +1,4 @@
+package ru.yandex.practicum.filmorate.event;
+
+public record FriendshipAddedEvent(Long userId, Long friendId) implements DomainEvent {
+}
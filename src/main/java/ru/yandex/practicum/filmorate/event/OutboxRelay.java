@@ -0,0 +1,308 @@
+package ru.yandex.practicum.filmorate.event;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.exception.InternalServerException;
+import ru.yandex.practicum.filmorate.repository.outbox.DeadLetter;
+import ru.yandex.practicum.filmorate.repository.outbox.OutboxEntry;
+import ru.yandex.practicum.filmorate.repository.outbox.OutboxRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Переносит события из таблицы outbox в EventBus. Пачка строк занимается на срок lease в короткой транзакции
+// (FOR UPDATE SKIP LOCKED), передаётся в шину уже без транзакции и блокировок, и только после того как её
+// разобрали все подписчики, строки помечаются обработанными во второй короткой транзакции. Если передача
+// падает посреди пачки, строки освобождаются, а если упал весь процесс — их заберут по истечении lease:
+// события не теряются, но могут прийти повторно, а после падения процесса — и позже более новых.
+// Событие, которое подписчик так и не обработал, вместе с отметкой пачки откладывается в outbox_dead_letters
+// и повторно доставляется только этому подписчику с растущей паузой, пока он его не обработает;
+// такое событие может прийти подписчику позже более новых
+@Slf4j
+@Component
+public class OutboxRelay implements MeterBinder {
+    private static final Duration PRUNE_INTERVAL = Duration.ofSeconds(10);
+    private static final Duration STOP_TIMEOUT = Duration.ofSeconds(5);
+    private static final Duration FIRST_REDELIVERY_DELAY = Duration.ofSeconds(1);
+    private static final Duration MAX_REDELIVERY_DELAY = Duration.ofMinutes(10);
+
+    private final OutboxRepository outbox;
+    private final EventBus bus;
+    private final TransactionTemplate transactions;
+    private final int batchSize;
+    private final Duration pollInterval;
+    private final Duration retention;
+    private final Duration lease;
+    private final LongAdder dispatched = new LongAdder();
+    private final LongAdder pruned = new LongAdder();
+    private final LongAdder deadLettered = new LongAdder();
+    private final LongAdder redelivered = new LongAdder();
+    private volatile boolean running;
+    private volatile Thread thread;
+
+    public OutboxRelay(OutboxRepository outbox,
+                       EventBus bus,
+                       PlatformTransactionManager transactionManager,
+                       @Value("${filmorate.outbox.batch-size:500}") int batchSize,
+                       @Value("${filmorate.outbox.poll-interval:200ms}") Duration pollInterval,
+                       @Value("${filmorate.outbox.retention:1m}") Duration retention,
+                       @Value("${filmorate.outbox.lease:30s}") Duration lease) {
+        this.outbox = outbox;
+        this.bus = bus;
+        this.transactions = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.pollInterval = pollInterval;
+        this.retention = retention;
+        this.lease = lease;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        running = true;
+        thread = new Thread(this::run, "outbox-relay");
+        thread.setDaemon(true);
+        thread.start();
+        log.info("Передача событий из outbox запущена: пачка {}, опрос раз в {}", batchSize, pollInterval);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        Thread current = thread;
+        if (current != null) {
+            LockSupport.unpark(current);
+            current.join(STOP_TIMEOUT.toMillis());
+        }
+    }
+
+    // Будит передачу сразу после коммита, не дожидаясь очередного опроса
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCommitted(DomainEvent event) {
+        Thread current = thread;
+        if (current != null) {
+            LockSupport.unpark(current);
+        }
+    }
+
+    // Передаёт одну пачку и возвращает число обработанных строк
+    public int dispatchBatch() {
+        Instant now = Instant.now();
+        List<OutboxEntry> entries = transactions.execute(status -> outbox.claim(batchSize, now, now.plus(lease)));
+        if (entries == null || entries.isEmpty()) {
+            return 0;
+        }
+        List<Long> ids = entries.stream().map(OutboxEntry::id).toList();
+        Map<Long, OutboxEntry> bySequence = new HashMap<>();
+        List<DeliveryFailure> failures;
+        try {
+            long last = -1;
+            for (OutboxEntry entry : entries) {
+                if (entry.event() != null) {
+                    last = bus.publish(entry.event());
+                    bySequence.put(last, entry);
+                }
+            }
+            if (last >= 0) {
+                awaitDelivered(last);
+            }
+            failures = bus.drainFailures();
+        } catch (RuntimeException e) {
+            releaseQuietly(ids);
+            throw e;
+        }
+        Instant nextAttemptAt = Instant.now().plus(redeliveryDelay(1));
+        transactions.executeWithoutResult(status -> {
+            for (DeliveryFailure failure : failures) {
+                OutboxEntry entry = bySequence.get(failure.sequence());
+                if (entry == null) {
+                    log.error("Сбой доставки события {} подписчику {} не относится к пачке из outbox",
+                            failure.sequence(), failure.consumer());
+                    continue;
+                }
+                outbox.deadLetter(entry.id(), failure.consumer(), failure.error().toString(), nextAttemptAt);
+                deadLettered.increment();
+                log.warn("Событие {} отложено для повторной доставки подписчику {}", entry.event(), failure.consumer());
+            }
+            outbox.markProcessed(ids);
+        });
+        dispatched.add(entries.size());
+        return entries.size();
+    }
+
+    // Повторно доставляет отложенные события, срок которых наступил, и возвращает число обработанных.
+    // Успешно доставленные удаляются, остальные откладываются на вдвое больший срок
+    public int redeliverBatch() {
+        Instant now = Instant.now();
+        List<DeadLetter> letters = transactions.execute(status ->
+                outbox.claimDeadLetters(batchSize, now, now.plus(lease)));
+        if (letters == null || letters.isEmpty()) {
+            return 0;
+        }
+        Map<Long, DeadLetter> bySequence = new HashMap<>();
+        List<DeadLetter> undeliverable = new ArrayList<>();
+        long last = -1;
+        for (DeadLetter letter : letters) {
+            if (letter.event() == null || !bus.hasConsumer(letter.consumer())) {
+                undeliverable.add(letter);
+                continue;
+            }
+            last = bus.publishTo(letter.consumer(), letter.event());
+            bySequence.put(last, letter);
+        }
+        if (last >= 0) {
+            awaitDelivered(last);
+        }
+        List<DeliveryFailure> failures = bus.drainFailures();
+        Integer count = transactions.execute(status -> {
+            for (DeadLetter letter : undeliverable) {
+                outbox.rescheduleDeadLetter(letter.id(), letter.attempts(), "Событие нельзя доставить",
+                        now.plus(MAX_REDELIVERY_DELAY));
+            }
+            for (DeliveryFailure failure : failures) {
+                DeadLetter letter = bySequence.remove(failure.sequence());
+                if (letter == null) {
+                    log.error("Сбой доставки события {} подписчику {} не относится к отложенным событиям",
+                            failure.sequence(), failure.consumer());
+                    continue;
+                }
+                int attempts = letter.attempts() + 1;
+                outbox.rescheduleDeadLetter(letter.id(), attempts, failure.error().toString(),
+                        now.plus(redeliveryDelay(attempts)));
+            }
+            List<Long> delivered = new ArrayList<>();
+            bySequence.values().forEach(letter -> delivered.add(letter.id()));
+            outbox.deleteDeadLetters(delivered);
+            return delivered.size();
+        });
+        int processed = count != null ? count : 0;
+        redelivered.add(processed);
+        return processed;
+    }
+
+    public int prune() {
+        int deleted = outbox.pruneProcessedBefore(Instant.now().minus(retention));
+        pruned.add(deleted);
+        return deleted;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("filmorate.outbox.dispatched", dispatched, LongAdder::sum)
+                .description("Сколько событий из outbox передано подписчикам")
+                .register(registry);
+        FunctionCounter.builder("filmorate.outbox.pruned", pruned, LongAdder::sum)
+                .register(registry);
+        FunctionCounter.builder("filmorate.outbox.dead_lettered", deadLettered, LongAdder::sum)
+                .description("Сколько событий отложено для повторной доставки после сбоя подписчика")
+                .register(registry);
+        FunctionCounter.builder("filmorate.outbox.redelivered", redelivered, LongAdder::sum)
+                .register(registry);
+        Gauge.builder("filmorate.outbox.dead_letters", this, OutboxRelay::deadLetters)
+                .register(registry);
+        Gauge.builder("filmorate.outbox.pending", this, OutboxRelay::pending)
+                .register(registry);
+        Gauge.builder("filmorate.outbox.lag", this, OutboxRelay::lagSeconds)
+                .description("Возраст самого старого необработанного события")
+                .baseUnit("seconds")
+                .register(registry);
+    }
+
+    private void run() {
+        long nextPruneAt = System.nanoTime();
+        while (running) {
+            try {
+                int count = dispatchBatch();
+                if (System.nanoTime() - nextPruneAt >= 0) {
+                    redeliverBatch();
+                    prune();
+                    nextPruneAt = System.nanoTime() + PRUNE_INTERVAL.toNanos();
+                }
+                if (count < batchSize) {
+                    LockSupport.parkNanos(pollInterval.toNanos());
+                }
+            } catch (RuntimeException e) {
+                if (running) {
+                    log.warn("Ошибка передачи событий из outbox, повтор через {}", pollInterval, e);
+                    LockSupport.parkNanos(pollInterval.toNanos());
+                }
+            }
+        }
+    }
+
+    private void awaitDelivered(long sequence) {
+        try {
+            if (!bus.awaitDelivered(sequence)) {
+                throw new InternalServerException("Шина событий остановлена до доставки пачки из outbox");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InternalServerException("Передача событий из outbox прервана");
+        }
+    }
+
+    // Передача прервалась внутри процесса: строки не ждут истечения lease, следующая пачка заберёт их сразу
+    private void releaseQuietly(List<Long> ids) {
+        boolean interrupted = Thread.interrupted();
+        try {
+            outbox.release(ids);
+        } catch (DataAccessException e) {
+            log.warn("Не удалось освободить пачку из outbox, строки вернутся через {}", lease, e);
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static Duration redeliveryDelay(int attempts) {
+        Duration delay = FIRST_REDELIVERY_DELAY.multipliedBy(1L << Math.min(attempts - 1, 20));
+        return delay.compareTo(MAX_REDELIVERY_DELAY) < 0 ? delay : MAX_REDELIVERY_DELAY;
+    }
+
+    private double deadLetters() {
+        try {
+            return outbox.countDeadLetters();
+        } catch (DataAccessException e) {
+            return Double.NaN;
+        }
+    }
+
+    private double pending() {
+        try {
+            return outbox.countPending();
+        } catch (DataAccessException e) {
+            return Double.NaN;
+        }
+    }
+
+    private double lagSeconds() {
+        try {
+            Instant oldest = outbox.findOldestPendingCreatedAt();
+            if (oldest == null) {
+                return 0;
+            }
+            return Duration.between(oldest, Instant.now()).toMillis() / (double) TimeUnit.SECONDS.toMillis(1);
+        } catch (DataAccessException e) {
+            return Double.NaN;
+        }
+    }
+}
@@ -2,49 +2,60 @@ package ru.yandex.practicum.filmorate.exception;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
-import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import ru.yandex.practicum.filmorate.dto.ErrorResponse;
 
+// Тип ответа задаётся явно: клиент потоковой выдачи принимает только application/x-ndjson,
+// и без этого для ошибки не нашлось бы подходящего представления
 @Slf4j
 @RestControllerAdvice
 public class ErrorHandler {
 
-    @ResponseStatus(HttpStatus.NOT_FOUND)
     @ExceptionHandler
-    public ErrorResponse handleNotFound(final NotFoundException e) {
-        return new ErrorResponse(
+    public ResponseEntity<ErrorResponse> handleNotFound(final NotFoundException e) {
+        return error(HttpStatus.NOT_FOUND, new ErrorResponse(
                 "Не удалось найти объект",
                 e.getMessage()
-        );
+        ));
     }
 
-    @ResponseStatus(HttpStatus.BAD_REQUEST)
     @ExceptionHandler
-    public ErrorResponse handleValidation(final  ValidationException e) {
-        return new ErrorResponse(
+    public ResponseEntity<ErrorResponse> handleValidation(final  ValidationException e) {
+        return error(HttpStatus.BAD_REQUEST, new ErrorResponse(
                 "Ошибка валидации данных",
                 e.getMessage()
-        );
+        ));
     }
 
-    @ResponseStatus(HttpStatus.BAD_REQUEST)
     @ExceptionHandler
-    public ErrorResponse handleInvalidFriendship(final InvalidFriendshipException e) {
-        return new ErrorResponse(
+    public ResponseEntity<ErrorResponse> handleInvalidFriendship(final InvalidFriendshipException e) {
+        return error(HttpStatus.BAD_REQUEST, new ErrorResponse(
                 "Ошибка валидации дружбы",
                 e.getMessage()
-        );
+        ));
+    }
+
+    @ExceptionHandler
+    public ResponseEntity<ErrorResponse> handleConflict(final ConflictException e) {
+        return error(HttpStatus.CONFLICT, new ErrorResponse(
+                "Конфликт изменений",
+                e.getMessage()
+        ));
     }
 
-    @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     @ExceptionHandler(Exception.class)
-    public ErrorResponse handleInternalError(final Exception e) {
+    public ResponseEntity<ErrorResponse> handleInternalError(final Exception e) {
         log.error("Внутренняя ошибка сервера: {}", e.getMessage(), e);
-        return new ErrorResponse(
+        return error(HttpStatus.INTERNAL_SERVER_ERROR, new ErrorResponse(
                 "Внутренняя ошибка сервера",
                 e.getMessage()
-        );
+        ));
+    }
+
+    private static ResponseEntity<ErrorResponse> error(HttpStatus status, ErrorResponse body) {
+        return ResponseEntity.status(status).contentType(MediaType.APPLICATION_JSON).body(body);
     }
 }
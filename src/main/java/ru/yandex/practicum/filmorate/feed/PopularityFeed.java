@@ -0,0 +1,361 @@
+package ru.yandex.practicum.filmorate.feed;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.yandex.practicum.filmorate.dto.PopularityFrame;
+import ru.yandex.practicum.filmorate.dto.RankedFilm;
+import ru.yandex.practicum.filmorate.event.DomainEvent;
+import ru.yandex.practicum.filmorate.event.EventConsumer;
+import ru.yandex.practicum.filmorate.event.FilmCreatedEvent;
+import ru.yandex.practicum.filmorate.event.FilmLikedEvent;
+import ru.yandex.practicum.filmorate.event.FilmUnlikedEvent;
+import ru.yandex.practicum.filmorate.exception.InternalServerException;
+import ru.yandex.practicum.filmorate.index.PopularityLeaderboards;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+// Лента изменений общего рейтинга популярности для SSE-подписчиков. Лайки копятся в течение окна,
+// затем один раз на всех считается разница с прошлым рейтингом и сериализуется в готовый кадр.
+// У подписчика в очереди не больше одного кадра: если прошлый ещё не ушёл, новый его заменяет,
+// а вместо пропущенных разниц подписчик получает полный снимок рейтинга.
+// Запись в сокет блокирующая, поэтому у каждой отправки есть срок: подписчик, который не читает дольше
+// sendTimeout, отключается, а вместо занятого им потока отправки пул получает новый
+@Slf4j
+@Component
+public class PopularityFeed implements EventConsumer, MeterBinder {
+    private static final String SNAPSHOT = "snapshot";
+    private static final String DELTA = "delta";
+    private static final Duration HEARTBEAT_INTERVAL = Duration.ofSeconds(15);
+    private static final long MAX_STALL_CHECK_MILLIS = 1000;
+
+    private final PopularityLeaderboards leaderboards;
+    private final ObjectMapper json;
+    private final int size;
+    private final Duration window;
+    private final Duration sendTimeout;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean changed = new AtomicBoolean();
+    private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "popularity-feed");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ThreadPoolExecutor senders;
+    private final int senderCount;
+    private final LongAdder framesPublished = new LongAdder();
+    private final LongAdder framesDropped = new LongAdder();
+    private final LongAdder stalledSubscribers = new LongAdder();
+    // Потоки отправки, застрявшие в записи отключённым подписчикам; на столько же расширен пул
+    private int stalledSenders;
+    // Рейтинг последнего кадра; меняется только в потоке ticker
+    private List<RankedFilm> ranking;
+    private volatile Published latest;
+
+    public PopularityFeed(PopularityLeaderboards leaderboards,
+                          ObjectMapper json,
+                          @Value("${filmorate.popularity-feed.size:100}") int size,
+                          @Value("${filmorate.popularity-feed.window:250ms}") Duration window,
+                          @Value("${filmorate.popularity-feed.senders:8}") int senders,
+                          @Value("${filmorate.popularity-feed.send-timeout:5s}") Duration sendTimeout) {
+        this.leaderboards = leaderboards;
+        this.json = json;
+        this.size = size;
+        this.window = window;
+        this.sendTimeout = sendTimeout;
+        this.senderCount = senders;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.senders = new ThreadPoolExecutor(senders, senders, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "popularity-feed-send-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        ranking = leaderboards.overall(size);
+        latest = new Published(0, null, render(SNAPSHOT, 0, ranking, List.of()));
+    }
+
+    @PostConstruct
+    public void start() {
+        ticker.scheduleAtFixedRate(this::tickQuietly, window.toMillis(), window.toMillis(), TimeUnit.MILLISECONDS);
+        ticker.scheduleAtFixedRate(this::heartbeat, HEARTBEAT_INTERVAL.toMillis(), HEARTBEAT_INTERVAL.toMillis(),
+                TimeUnit.MILLISECONDS);
+        long stallCheckMillis = Math.max(1, Math.min(sendTimeout.toMillis() / 2, MAX_STALL_CHECK_MILLIS));
+        ticker.scheduleAtFixedRate(this::evictStalled, stallCheckMillis, stallCheckMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        ticker.shutdownNow();
+        senders.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        subscribers.clear();
+    }
+
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(0L);
+        subscribe(emitter);
+        return emitter;
+    }
+
+    // Новый подписчик сразу получает текущий снимок, дальше — разницы
+    public void subscribe(SseEmitter emitter) {
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(error -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        subscriber.offer(latest);
+    }
+
+    @Override
+    public String name() {
+        return "popularity-feed";
+    }
+
+    // Рейтинг уже обновлён синхронными слушателями, здесь достаточно отметить, что кадр нужно пересчитать
+    @Override
+    public void accept(DomainEvent event) {
+        if (event instanceof FilmLikedEvent || event instanceof FilmUnlikedEvent || event instanceof FilmCreatedEvent) {
+            changed.set(true);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("filmorate.popularity.subscribers", subscribers, Set::size)
+                .register(registry);
+        FunctionCounter.builder("filmorate.popularity.frames", framesPublished, LongAdder::sum)
+                .register(registry);
+        FunctionCounter.builder("filmorate.popularity.frames.dropped", framesDropped, LongAdder::sum)
+                .description("Кадры, заменённые более новыми до отправки медленному подписчику")
+                .register(registry);
+        FunctionCounter.builder("filmorate.popularity.subscribers.stalled", stalledSubscribers, LongAdder::sum)
+                .description("Подписчики, отключённые из-за отправки дольше send-timeout")
+                .register(registry);
+    }
+
+    int subscriberCount() {
+        return subscribers.size();
+    }
+
+    int senderPoolSize() {
+        return senders.getMaximumPoolSize();
+    }
+
+    // Один пересчёт на окно для всех подписчиков
+    void tick() {
+        if (!changed.getAndSet(false)) {
+            return;
+        }
+        List<RankedFilm> next = leaderboards.overall(size);
+        Map<Long, RankedFilm> previous = new HashMap<>();
+        ranking.forEach(film -> previous.put(film.filmId(), film));
+
+        List<RankedFilm> changedFilms = new ArrayList<>();
+        for (RankedFilm film : next) {
+            if (!film.equals(previous.remove(film.filmId()))) {
+                changedFilms.add(film);
+            }
+        }
+        if (changedFilms.isEmpty() && previous.isEmpty()) {
+            return;
+        }
+
+        long version = latest.version() + 1;
+        List<Long> removed = new ArrayList<>(previous.keySet());
+        Published published = new Published(version, render(DELTA, version, changedFilms, removed),
+                render(SNAPSHOT, version, next, List.of()));
+        ranking = next;
+        latest = published;
+        framesPublished.increment();
+        subscribers.forEach(subscriber -> subscriber.offer(published));
+    }
+
+    private void tickQuietly() {
+        try {
+            tick();
+        } catch (RuntimeException e) {
+            log.warn("Не удалось разослать кадр ленты популярности", e);
+        }
+    }
+
+    // Комментарий раз в HEARTBEAT_INTERVAL не даёт прокси закрыть молчащее соединение
+    // и помогает заметить отключившихся подписчиков
+    void heartbeat() {
+        subscribers.forEach(subscriber -> subscriber.offer(null));
+    }
+
+    // Подписчик, застрявший в отправке дольше sendTimeout, отключается сразу, а не когда запись вернётся
+    void evictStalled() {
+        long now = System.nanoTime();
+        subscribers.forEach(subscriber -> {
+            long startedAt = subscriber.sendStartedAt;
+            if (startedAt != 0 && now - startedAt > sendTimeout.toNanos()) {
+                subscriber.evict();
+            }
+        });
+    }
+
+    // Пока поток отправки заблокирован записью отключённому подписчику, пул временно расширяется на один поток
+    private synchronized void adjustSenders(int delta) {
+        stalledSenders += delta;
+        int poolSize = senderCount + stalledSenders;
+        if (delta > 0) {
+            senders.setMaximumPoolSize(poolSize);
+            senders.setCorePoolSize(poolSize);
+        } else {
+            senders.setCorePoolSize(poolSize);
+            senders.setMaximumPoolSize(poolSize);
+        }
+    }
+
+    private String render(String type, long version, List<RankedFilm> films, List<Long> removed) {
+        try {
+            return json.writeValueAsString(new PopularityFrame(type, version, films, removed));
+        } catch (JsonProcessingException e) {
+            throw new InternalServerException("Не удалось сериализовать кадр ленты популярности: " + e.getMessage());
+        }
+    }
+
+    // Кадр версии version в двух видах: разница с предыдущей версией и полный снимок
+    private record Published(long version, String delta, String snapshot) {
+    }
+
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private final AtomicReference<Published> pending = new AtomicReference<>();
+        private final AtomicBoolean heartbeatPending = new AtomicBoolean();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean evicted = new AtomicBoolean();
+        // Момент начала текущей отправки по System.nanoTime(); 0 — отправки нет.
+        // Меняется под монитором подписчика, чтобы отключение не разошлось с концом отправки
+        private volatile long sendStartedAt;
+        private Thread sender;
+        // Пул расширен ради отправки, зависшей при отключении; сужает его обратно только она, и только один раз
+        private boolean senderCompensated;
+        // Читается и пишется только внутри drain, который для подписчика всегда один
+        private long sentVersion = -1;
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        // null — только проверка соединения
+        private void offer(Published published) {
+            if (published == null) {
+                heartbeatPending.set(true);
+            } else if (pending.getAndSet(published) != null) {
+                framesDropped.increment();
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            if (!evicted.get() && scheduled.compareAndSet(false, true)) {
+                try {
+                    senders.execute(this::drain);
+                } catch (RuntimeException e) {
+                    scheduled.set(false);
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                Published published;
+                while (!evicted.get() && (published = pending.getAndSet(null)) != null) {
+                    if (published.version() <= sentVersion) {
+                        continue;
+                    }
+                    boolean consecutive = published.delta() != null && published.version() == sentVersion + 1;
+                    String type = consecutive ? DELTA : SNAPSHOT;
+                    send(SseEmitter.event()
+                            .id(String.valueOf(published.version()))
+                            .name(type)
+                            .data(consecutive ? published.delta() : published.snapshot(), MediaType.APPLICATION_JSON));
+                    sentVersion = published.version();
+                }
+                if (!evicted.get() && heartbeatPending.getAndSet(false)) {
+                    send(SseEmitter.event().comment("keep-alive"));
+                }
+            } catch (IOException | IllegalStateException e) {
+                subscribers.remove(this);
+                emitter.completeWithError(e);
+                return;
+            } finally {
+                scheduled.set(false);
+            }
+            if (evicted.get()) {
+                emitter.completeWithError(new TimeoutException("Подписчик не читал ленту дольше " + sendTimeout));
+                return;
+            }
+            if (pending.get() != null || heartbeatPending.get()) {
+                schedule();
+            }
+        }
+
+        private void send(SseEmitter.SseEventBuilder event) throws IOException {
+            synchronized (this) {
+                sender = Thread.currentThread();
+                sendStartedAt = Math.max(1, System.nanoTime());
+            }
+            try {
+                emitter.send(event);
+            } finally {
+                synchronized (this) {
+                    sendStartedAt = 0;
+                    sender = null;
+                    if (senderCompensated) {
+                        // Прерывание было адресовано этой отправке, потоку пула оно больше не нужно
+                        senderCompensated = false;
+                        Thread.interrupted();
+                        adjustSenders(-1);
+                    }
+                }
+            }
+        }
+
+        // Вызывается из ticker, пока отправка ещё висит. Закрыть emitter отсюда нельзя: его методы
+        // синхронизированы и ждут зависшую запись. Поток отправки прерывается, а emitter закрывается,
+        // как только запись вернётся — с ошибкой от прерывания или по таймауту записи контейнера
+        private synchronized void evict() {
+            if (sendStartedAt == 0 || !evicted.compareAndSet(false, true)) {
+                return;
+            }
+            subscribers.remove(this);
+            stalledSubscribers.increment();
+            adjustSenders(1);
+            senderCompensated = true;
+            log.warn("Подписчик ленты популярности не читает дольше {} и отключён", sendTimeout);
+            sender.interrupt();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package ru.yandex.practicum.filmorate.index;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.yandex.practicum.filmorate.event.FilmLikedEvent;
+import ru.yandex.practicum.filmorate.event.FilmUnlikedEvent;
+import ru.yandex.practicum.filmorate.repository.FilmStorage;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+@RequiredArgsConstructor
+public class FilmLikeCounts {
+    private final FilmStorage filmStorage;
+    private final Map<Long, Integer> counts = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+
+    @PostConstruct
+    public void load() {
+        counts.clear();
+        counts.putAll(filmStorage.getLikesCounts());
+        version.incrementAndGet();
+    }
+
+    public int get(Long filmId) {
+        return counts.getOrDefault(filmId, 0);
+    }
+
+    public long version() {
+        return version.get();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFilmLiked(FilmLikedEvent event) {
+        counts.merge(event.filmId(), 1, Integer::sum);
+        version.incrementAndGet();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFilmUnliked(FilmUnlikedEvent event) {
+        counts.computeIfPresent(event.filmId(), (filmId, count) -> count > 1 ? count - 1 : null);
+        version.incrementAndGet();
+    }
+}
@@ -0,0 +1,258 @@
+package ru.yandex.practicum.filmorate.index;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.yandex.practicum.filmorate.event.FilmCreatedEvent;
+import ru.yandex.practicum.filmorate.event.FilmUpdatedEvent;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.repository.FilmStorage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+@Slf4j
+@Component
+public class FilmSearchIndex {
+    // Насыщение частоты терма: повтор слова в тексте даёт убывающий прирост релевантности
+    private static final double TERM_FREQUENCY_SATURATION = 1.2;
+    private static final double POPULARITY_WEIGHT = 0.25;
+    private static final String[] NO_TERMS = new String[0];
+    // Для очень частых термов держим "список чемпионов" — лучшие по частоте и популярности фильмы,
+    // чтобы запрос из одних частых слов не перебирал сотни тысяч вхождений
+    private static final int CHAMPIONS_THRESHOLD = 2_000;
+    private static final int CHAMPIONS_SIZE = 1_000;
+    private static final long CHAMPIONS_TTL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final FilmStorage filmStorage;
+    private final FilmLikeCounts likeCounts;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<SearchField, Map<String, LongIntPostings>> postings = new EnumMap<>(SearchField.class);
+    // Для каждого фильма храним только его термы по полям, чтобы при переиндексации убрать старые вхождения
+    private final Map<Long, String[][]> filmTerms = new HashMap<>();
+    private final Map<String, String> dictionary = new HashMap<>();
+    private final Map<LongIntPostings, Champions> champions = new ConcurrentHashMap<>();
+
+    public FilmSearchIndex(FilmStorage filmStorage, FilmLikeCounts likeCounts) {
+        this.filmStorage = filmStorage;
+        this.likeCounts = likeCounts;
+        for (SearchField field : SearchField.values()) {
+            postings.put(field, new HashMap<>());
+        }
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        long startedAt = System.currentTimeMillis();
+        for (Film film : filmStorage.getAllFilms()) {
+            index(film.getId(), film.getName(), film.getDescription());
+        }
+        log.info("Поисковый индекс построен: {} фильмов за {} мс", size(), System.currentTimeMillis() - startedAt);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFilmCreated(FilmCreatedEvent event) {
+        index(event.filmId(), event.name(), event.description());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFilmUpdated(FilmUpdatedEvent event) {
+        index(event.filmId(), event.name(), event.description());
+    }
+
+    public void index(Long filmId, String title, String description) {
+        Map<String, Integer> titleTerms = termFrequencies(title);
+        Map<String, Integer> descriptionTerms = termFrequencies(description);
+
+        lock.writeLock().lock();
+        try {
+            removeLocked(filmId);
+            String[][] terms = new String[SearchField.values().length][];
+            terms[SearchField.TITLE.ordinal()] = addPostings(SearchField.TITLE, filmId, titleTerms);
+            terms[SearchField.DESCRIPTION.ordinal()] = addPostings(SearchField.DESCRIPTION, filmId, descriptionTerms);
+            filmTerms.put(filmId, terms);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long filmId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(filmId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<Long> search(String query, Set<SearchField> fields, int limit) {
+        Set<String> terms = new LinkedHashSet<>(TextTokenizer.tokenize(query));
+        if (terms.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        Map<Long, Double> relevance = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            int totalFilms = Math.max(filmTerms.size(), 1);
+            List<TermPostings> matched = new ArrayList<>();
+            for (SearchField field : fields) {
+                for (String term : terms) {
+                    LongIntPostings films = postings.get(field).get(term);
+                    if (films != null) {
+                        matched.add(new TermPostings(field, films));
+                    }
+                }
+            }
+            // Редкие термы обходим первыми. Когда кандидатов уже достаточно, а список вхождений терма
+            // длиннее их числа, частый терм только уточняет оценку найденных фильмов, а не перебирается целиком
+            matched.sort(Comparator.comparingInt(termPostings -> termPostings.films().size()));
+            for (TermPostings termPostings : matched) {
+                LongIntPostings films = termPostings.films();
+                double weight = termPostings.field().weight() * Math.log(1 + (double) totalFilms / films.size());
+                if (relevance.isEmpty() && films.size() > CHAMPIONS_THRESHOLD && limit <= CHAMPIONS_SIZE) {
+                    for (long filmId : championsOf(films).filmIds()) {
+                        relevance.put(filmId, weight * saturate(films.get(filmId)));
+                    }
+                } else if (relevance.size() >= limit && films.size() > relevance.size()) {
+                    relevance.replaceAll((filmId, score) -> score + weight * saturate(films.get(filmId)));
+                } else {
+                    films.forEach((filmId, frequency) -> relevance.merge(filmId,
+                            weight * saturate(frequency), Double::sum));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return topByScore(relevance, limit);
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return filmTerms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private String[] addPostings(SearchField field, Long filmId, Map<String, Integer> frequencies) {
+        if (frequencies.isEmpty()) {
+            return NO_TERMS;
+        }
+        String[] terms = new String[frequencies.size()];
+        int idx = 0;
+        for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+            String term = dictionary.computeIfAbsent(entry.getKey(), key -> key);
+            postings.get(field).computeIfAbsent(term, key -> new LongIntPostings()).put(filmId, entry.getValue());
+            terms[idx++] = term;
+        }
+        return terms;
+    }
+
+    private void removeLocked(Long filmId) {
+        String[][] terms = filmTerms.remove(filmId);
+        if (terms == null) {
+            return;
+        }
+        for (SearchField field : SearchField.values()) {
+            Map<String, LongIntPostings> fieldPostings = postings.get(field);
+            for (String term : terms[field.ordinal()]) {
+                LongIntPostings films = fieldPostings.get(term);
+                films.remove(filmId);
+                if (films.isEmpty()) {
+                    fieldPostings.remove(term);
+                    champions.remove(films);
+                }
+            }
+        }
+    }
+
+    // Вызывается под блокировкой чтения: вхождения не меняются, а гонка двух читателей лишь дважды построит список
+    private Champions championsOf(LongIntPostings films) {
+        Champions current = champions.get(films);
+        long now = System.nanoTime();
+        if (current != null && current.modCount() == films.modCount()
+                && (current.likesVersion() == likeCounts.version() || now - current.builtAt() < CHAMPIONS_TTL_NANOS)) {
+            return current;
+        }
+
+        long likesVersion = likeCounts.version();
+        PriorityQueue<ScoredFilm> top = new PriorityQueue<>(CHAMPIONS_SIZE + 1);
+        films.forEach((filmId, frequency) -> {
+            top.add(new ScoredFilm(filmId, saturate(frequency) * popularity(filmId)));
+            if (top.size() > CHAMPIONS_SIZE) {
+                top.poll();
+            }
+        });
+        long[] filmIds = new long[top.size()];
+        int idx = 0;
+        for (ScoredFilm film : top) {
+            filmIds[idx++] = film.filmId();
+        }
+        Champions rebuilt = new Champions(filmIds, films.modCount(), likesVersion, now);
+        champions.put(films, rebuilt);
+        return rebuilt;
+    }
+
+    private double popularity(long filmId) {
+        return 1 + POPULARITY_WEIGHT * Math.log1p(likeCounts.get(filmId));
+    }
+
+    private List<Long> topByScore(Map<Long, Double> relevance, int limit) {
+        PriorityQueue<ScoredFilm> top = new PriorityQueue<>(limit + 1);
+        relevance.forEach((filmId, score) -> {
+            top.add(new ScoredFilm(filmId, score * popularity(filmId)));
+            if (top.size() > limit) {
+                top.poll();
+            }
+        });
+
+        List<Long> result = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            result.add(top.poll().filmId());
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    private static double saturate(int frequency) {
+        return frequency / (frequency + TERM_FREQUENCY_SATURATION);
+    }
+
+    private static Map<String, Integer> termFrequencies(String text) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String token : TextTokenizer.tokenize(text)) {
+            frequencies.merge(token, 1, Integer::sum);
+        }
+        return frequencies;
+    }
+
+    private record TermPostings(SearchField field, LongIntPostings films) {
+    }
+
+    private record Champions(long[] filmIds, int modCount, long likesVersion, long builtAt) {
+    }
+
+    // Порядок "от худшего к лучшему": на вершине очереди лежит кандидат на вытеснение
+    private record ScoredFilm(long filmId, double score) implements Comparable<ScoredFilm> {
+        @Override
+        public int compareTo(ScoredFilm other) {
+            int byScore = Double.compare(score, other.score);
+            return byScore != 0 ? byScore : Long.compare(other.filmId, filmId);
+        }
+    }
+}
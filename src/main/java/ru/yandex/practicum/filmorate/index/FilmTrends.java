@@ -0,0 +1,239 @@
+package ru.yandex.practicum.filmorate.index;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.event.DomainEvent;
+import ru.yandex.practicum.filmorate.event.EventConsumer;
+import ru.yandex.practicum.filmorate.event.FilmLikedEvent;
+import ru.yandex.practicum.filmorate.event.FilmUnlikedEvent;
+import ru.yandex.practicum.filmorate.repository.FilmStorage;
+import ru.yandex.practicum.filmorate.repository.outbox.OutboxRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Скользящие счётчики лайков: поминутное кольцо на последний час и почасовое на последнюю неделю.
+// Поминутная детализация старше часа не хранится, а фильмы без лайков за неделю удаляются,
+// поэтому память зависит от числа недавно лайкнутых фильмов, а не от длины истории
+@Slf4j
+@Component
+public class FilmTrends implements EventConsumer {
+    private static final int MINUTE_BUCKETS = 60;
+    private static final int HOUR_BUCKETS = 24 * 7;
+    private static final long MINUTE_MILLIS = Duration.ofMinutes(1).toMillis();
+    private static final long HOUR_MILLIS = Duration.ofHours(1).toMillis();
+    private static final int SWEEP_INTERVAL = 4096;
+
+    private final FilmStorage filmStorage;
+    private final OutboxRepository outbox;
+    private final Map<Long, Activity> activities = new ConcurrentHashMap<>();
+    // События, которые уже учтены при загрузке из базы, но ещё придут из outbox — например, после падения
+    // посреди пачки. Каждое пропускается один раз, поэтому набор пустеет по мере догрузки outbox
+    private final Set<DomainEvent> loadedAhead = ConcurrentHashMap.newKeySet();
+    private final Map<TrendingWindow, double[]> decayWeights = new EnumMap<>(TrendingWindow.class);
+    private final AtomicLong recorded = new AtomicLong();
+
+    public FilmTrends(FilmStorage filmStorage, OutboxRepository outbox) {
+        this.filmStorage = filmStorage;
+        this.outbox = outbox;
+        for (TrendingWindow window : TrendingWindow.values()) {
+            decayWeights.put(window, decayWeights(window));
+        }
+    }
+
+    // Загрузка идёт до запуска веб-сервера и передачи из outbox, поэтому между двумя чтениями лайки не меняются
+    @PostConstruct
+    public void load() {
+        Instant now = Instant.now();
+        activities.clear();
+        loadedAhead.clear();
+        loadedAhead.addAll(outbox.findUndelivered(name(), List.of(FilmLikedEvent.class, FilmUnlikedEvent.class)));
+        List<FilmLikedEvent> likes = filmStorage.getLikesSince(now.minus(TrendingWindow.WEEK.length()));
+        likes.forEach(like -> record(like.filmId(), like.likedAt(), 1, now));
+        log.info("Тренды загружены: {} лайков за неделю по {} фильмам, {} событий из outbox уже учтено",
+                likes.size(), activities.size(), loadedAhead.size());
+    }
+
+    @Override
+    public String name() {
+        return "trends";
+    }
+
+    // Тренды допускают небольшую задержку, поэтому обновляются из шины событий, а не в потоке запроса
+    @Override
+    public void accept(DomainEvent event) {
+        if (!loadedAhead.isEmpty() && loadedAhead.remove(event)) {
+            return;
+        }
+        if (event instanceof FilmLikedEvent liked) {
+            record(liked.filmId(), liked.likedAt(), 1, Instant.now());
+        } else if (event instanceof FilmUnlikedEvent unliked && unliked.likedAt() != null) {
+            record(unliked.filmId(), unliked.likedAt(), -1, Instant.now());
+        }
+    }
+
+    public void record(Long filmId, Instant likedAt, int delta, Instant now) {
+        long nowMinute = now.toEpochMilli() / MINUTE_MILLIS;
+        long nowHour = now.toEpochMilli() / HOUR_MILLIS;
+        activities.compute(filmId, (key, activity) -> {
+            Activity target = activity != null ? activity : new Activity(nowMinute, nowHour);
+            target.add(likedAt.toEpochMilli() / MINUTE_MILLIS, likedAt.toEpochMilli() / HOUR_MILLIS, delta);
+            return target;
+        });
+        if (recorded.incrementAndGet() % SWEEP_INTERVAL == 0) {
+            sweep(now);
+        }
+    }
+
+    public List<Long> trending(TrendingWindow window, int limit) {
+        return trending(window, limit, Instant.now());
+    }
+
+    public List<Long> trending(TrendingWindow window, int limit, Instant now) {
+        long nowMinute = now.toEpochMilli() / MINUTE_MILLIS;
+        long nowHour = now.toEpochMilli() / HOUR_MILLIS;
+        double[] weights = decayWeights.get(window);
+
+        PriorityQueue<ScoredFilm> top = new PriorityQueue<>(limit + 1);
+        activities.forEach((filmId, activity) -> {
+            double score = activity.score(window, weights, nowMinute, nowHour);
+            if (score > 0) {
+                top.add(new ScoredFilm(filmId, score));
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            } else {
+                removeIfIdle(filmId);
+            }
+        });
+
+        List<Long> result = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            result.add(top.poll().filmId());
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    public int activeFilms() {
+        return activities.size();
+    }
+
+    // Число лайков фильма за последнюю неделю без затухания
+    public int weeklyLikes(Long filmId) {
+        return weeklyLikes(filmId, Instant.now());
+    }
+
+    public int weeklyLikes(Long filmId, Instant now) {
+        Activity activity = activities.get(filmId);
+        if (activity == null) {
+            return 0;
+        }
+        return activity.weeklyLikes(now.toEpochMilli() / MINUTE_MILLIS, now.toEpochMilli() / HOUR_MILLIS);
+    }
+
+    private void sweep(Instant now) {
+        long nowMinute = now.toEpochMilli() / MINUTE_MILLIS;
+        long nowHour = now.toEpochMilli() / HOUR_MILLIS;
+        activities.forEach((filmId, activity) -> {
+            activity.advance(nowMinute, nowHour);
+            removeIfIdle(filmId);
+        });
+    }
+
+    private void removeIfIdle(Long filmId) {
+        activities.computeIfPresent(filmId, (key, activity) -> activity.isIdle() ? null : activity);
+    }
+
+    // Вес корзины убывает вдвое за каждый период полураспада окна
+    private static double[] decayWeights(TrendingWindow window) {
+        boolean byMinute = window == TrendingWindow.HOUR;
+        long bucketMillis = byMinute ? MINUTE_MILLIS : HOUR_MILLIS;
+        double[] weights = new double[(int) (window.length().toMillis() / bucketMillis)];
+        for (int age = 0; age < weights.length; age++) {
+            weights[age] = Math.pow(0.5, (double) age * bucketMillis / window.halfLife().toMillis());
+        }
+        return weights;
+    }
+
+    private static final class Activity {
+        private final int[] minutes = new int[MINUTE_BUCKETS];
+        private final int[] hours = new int[HOUR_BUCKETS];
+        private long headMinute;
+        private long headHour;
+
+        private Activity(long nowMinute, long nowHour) {
+            this.headMinute = nowMinute;
+            this.headHour = nowHour;
+        }
+
+        synchronized void add(long minute, long hour, int delta) {
+            advance(minute, hour);
+            if (headMinute - minute < MINUTE_BUCKETS) {
+                minutes[Math.floorMod(minute, MINUTE_BUCKETS)] += delta;
+            }
+            if (headHour - hour < HOUR_BUCKETS) {
+                hours[Math.floorMod(hour, HOUR_BUCKETS)] += delta;
+            }
+        }
+
+        // Сдвигает голову колец вперёд, обнуляя корзины, которые вышли из окна
+        synchronized void advance(long minute, long hour) {
+            for (long next = Math.max(headMinute + 1, minute - MINUTE_BUCKETS + 1); next <= minute; next++) {
+                minutes[Math.floorMod(next, MINUTE_BUCKETS)] = 0;
+            }
+            headMinute = Math.max(headMinute, minute);
+            for (long next = Math.max(headHour + 1, hour - HOUR_BUCKETS + 1); next <= hour; next++) {
+                hours[Math.floorMod(next, HOUR_BUCKETS)] = 0;
+            }
+            headHour = Math.max(headHour, hour);
+        }
+
+        synchronized double score(TrendingWindow window, double[] weights, long nowMinute, long nowHour) {
+            advance(nowMinute, nowHour);
+            int[] buckets = window == TrendingWindow.HOUR ? minutes : hours;
+            long head = window == TrendingWindow.HOUR ? nowMinute : nowHour;
+            double score = 0;
+            for (int age = 0; age < weights.length; age++) {
+                score += buckets[Math.floorMod(head - age, buckets.length)] * weights[age];
+            }
+            return score;
+        }
+
+        synchronized int weeklyLikes(long nowMinute, long nowHour) {
+            advance(nowMinute, nowHour);
+            int total = 0;
+            for (int count : hours) {
+                total += count;
+            }
+            return total;
+        }
+
+        synchronized boolean isIdle() {
+            for (int count : hours) {
+                if (count != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private record ScoredFilm(long filmId, double score) implements Comparable<ScoredFilm> {
+        @Override
+        public int compareTo(ScoredFilm other) {
+            int byScore = Double.compare(score, other.score);
+            return byScore != 0 ? byScore : Long.compare(other.filmId, filmId);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package ru.yandex.practicum.filmorate.index;
+
+// Компактный список вхождений терма: id фильма -> частота, открытая адресация без упаковки в Long/Integer.
+// Потокобезопасность обеспечивает владелец индекса.
+final class LongIntPostings {
+    private static final long EMPTY = 0L;
+    private static final int INITIAL_CAPACITY = 4;
+
+    private long[] keys = new long[INITIAL_CAPACITY];
+    private int[] values = new int[INITIAL_CAPACITY];
+    private int size;
+    private int modCount;
+
+    int size() {
+        return size;
+    }
+
+    int modCount() {
+        return modCount;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int get(long key) {
+        int slot = slotOf(key, keys.length);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & (keys.length - 1);
+        }
+        return 0;
+    }
+
+    void put(long key, int value) {
+        modCount++;
+        if ((size + 1) * 4 > keys.length * 3) {
+            resize(keys.length * 2);
+        }
+        int slot = slotOf(key, keys.length);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & (keys.length - 1);
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+    }
+
+    void remove(long key) {
+        int mask = keys.length - 1;
+        int slot = slotOf(key, keys.length);
+        while (keys[slot] != key) {
+            if (keys[slot] == EMPTY) {
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        // Сдвигаем последующие элементы цепочки, чтобы не оставлять "надгробий"
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (keys[next] != EMPTY) {
+            int home = slotOf(keys[next], keys.length);
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        modCount++;
+        keys[gap] = EMPTY;
+        values[gap] = 0;
+        size--;
+    }
+
+    void forEach(LongIntConsumer consumer) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != EMPTY) {
+                consumer.accept(keys[slot], values[slot]);
+            }
+        }
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[capacity];
+        values = new int[capacity];
+        size = 0;
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldKeys[slot] != EMPTY) {
+                put(oldKeys[slot], oldValues[slot]);
+            }
+        }
+    }
+
+    private static int slotOf(long key, int capacity) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & (capacity - 1);
+    }
+
+    @FunctionalInterface
+    interface LongIntConsumer {
+        void accept(long key, int value);
+    }
+}
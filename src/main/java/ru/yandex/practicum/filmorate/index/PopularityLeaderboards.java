@@ -0,0 +1,244 @@
+package ru.yandex.practicum.filmorate.index;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.yandex.practicum.filmorate.dto.RankedFilm;
+import ru.yandex.practicum.filmorate.event.FilmCreatedEvent;
+import ru.yandex.practicum.filmorate.event.FilmLikedEvent;
+import ru.yandex.practicum.filmorate.event.FilmUnlikedEvent;
+import ru.yandex.practicum.filmorate.event.FilmUpdatedEvent;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.repository.FilmStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+// Рейтинги популярности: общий, по жанру, году выпуска и их сочетанию. Каждый рейтинг — упорядоченное множество,
+// поэтому лайк стоит O(log n) на рейтинг, а выборка первых N — O(N)
+@Slf4j
+@Component
+public class PopularityLeaderboards {
+    private final FilmStorage filmStorage;
+    private final FilmLikeCounts likeCounts;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, FilmPosition> films = new HashMap<>();
+    private final NavigableSet<Ranked> overall = new TreeSet<>();
+    private final Map<Long, NavigableSet<Ranked>> byGenre = new HashMap<>();
+    private final Map<Integer, NavigableSet<Ranked>> byYear = new HashMap<>();
+    private final Map<GenreYear, NavigableSet<Ranked>> byGenreAndYear = new HashMap<>();
+
+    public PopularityLeaderboards(FilmStorage filmStorage, FilmLikeCounts likeCounts) {
+        this.filmStorage = filmStorage;
+        this.likeCounts = likeCounts;
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        long startedAt = System.currentTimeMillis();
+        for (Film film : filmStorage.getAllFilms()) {
+            index(film.getId(), film.getReleaseDate(), genreIds(film));
+        }
+        log.info("Рейтинги популярности построены: {} фильмов за {} мс", films.size(),
+                System.currentTimeMillis() - startedAt);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFilmCreated(FilmCreatedEvent event) {
+        index(event.filmId(), event.releaseDate(), event.genreIds());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFilmUpdated(FilmUpdatedEvent event) {
+        reindex(event.filmId(), event.releaseDate(), event.addedGenreIds(), event.removedGenreIds());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFilmLiked(FilmLikedEvent event) {
+        changeLikes(event.filmId(), 1);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFilmUnliked(FilmUnlikedEvent event) {
+        changeLikes(event.filmId(), -1);
+    }
+
+    public void index(Long filmId, LocalDate releaseDate, Set<Long> genreIds) {
+        Integer year = releaseDate != null ? releaseDate.getYear() : null;
+        long[] genres = genreIds.stream().mapToLong(Long::longValue).sorted().toArray();
+
+        lock.writeLock().lock();
+        try {
+            FilmPosition previous = films.get(filmId);
+            int likes = previous != null ? previous.likes() : likeCounts.get(filmId);
+            if (previous != null) {
+                unlink(filmId, previous);
+            }
+            FilmPosition position = new FilmPosition(year, genres, likes);
+            films.put(filmId, position);
+            link(filmId, position);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Применяет разницу жанров к прежней позиции; если ни год, ни жанры не изменились, рейтинги не трогаются
+    public void reindex(Long filmId, LocalDate releaseDate, Set<Long> addedGenreIds, Set<Long> removedGenreIds) {
+        Integer year = releaseDate != null ? releaseDate.getYear() : null;
+
+        lock.writeLock().lock();
+        try {
+            FilmPosition previous = films.get(filmId);
+            if (previous == null) {
+                // Фильма нет в рейтингах, разницу применять не к чему: полный состав жанров берётся из хранилища
+                index(filmId, releaseDate, genreIds(filmStorage.getFilmById(filmId)));
+                return;
+            }
+            if (Objects.equals(previous.year(), year) && addedGenreIds.isEmpty() && removedGenreIds.isEmpty()) {
+                return;
+            }
+            long[] genres = LongStream.concat(
+                            Arrays.stream(previous.genreIds()).filter(id -> !removedGenreIds.contains(id)),
+                            addedGenreIds.stream().mapToLong(Long::longValue))
+                    .distinct()
+                    .sorted()
+                    .toArray();
+            unlink(filmId, previous);
+            FilmPosition position = new FilmPosition(year, genres, previous.likes());
+            films.put(filmId, position);
+            link(filmId, position);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void changeLikes(Long filmId, int delta) {
+        lock.writeLock().lock();
+        try {
+            FilmPosition previous = films.get(filmId);
+            if (previous == null) {
+                return;
+            }
+            unlink(filmId, previous);
+            FilmPosition position = new FilmPosition(previous.year(), previous.genreIds(),
+                    Math.max(0, previous.likes() + delta));
+            films.put(filmId, position);
+            link(filmId, position);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Порядок совпадает с getPopularFilms: больше лайков выше, при равенстве — меньший ID
+    public List<Long> top(Long genreId, Integer year, int limit) {
+        lock.readLock().lock();
+        try {
+            NavigableSet<Ranked> board;
+            if (genreId != null && year != null) {
+                board = byGenreAndYear.get(new GenreYear(genreId, year));
+            } else if (genreId != null) {
+                board = byGenre.get(genreId);
+            } else {
+                board = byYear.get(year);
+            }
+            if (board == null) {
+                return List.of();
+            }
+
+            List<Long> filmIds = new ArrayList<>(Math.min(limit, board.size()));
+            Iterator<Ranked> iterator = board.iterator();
+            while (iterator.hasNext() && filmIds.size() < limit) {
+                filmIds.add(iterator.next().filmId());
+            }
+            return filmIds;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Первые limit фильмов общего рейтинга вместе с позицией и числом лайков, снятые под одной блокировкой
+    public List<RankedFilm> overall(int limit) {
+        lock.readLock().lock();
+        try {
+            List<RankedFilm> ranking = new ArrayList<>(Math.min(limit, overall.size()));
+            Iterator<Ranked> iterator = overall.iterator();
+            while (iterator.hasNext() && ranking.size() < limit) {
+                Ranked ranked = iterator.next();
+                ranking.add(new RankedFilm(ranked.filmId(), ranking.size() + 1, ranked.likes()));
+            }
+            return ranking;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static Set<Long> genreIds(Film film) {
+        return film.getGenres().stream().map(Genre::getId).collect(Collectors.toSet());
+    }
+
+    private void link(long filmId, FilmPosition position) {
+        Ranked ranked = new Ranked(filmId, position.likes());
+        overall.add(ranked);
+        for (long genreId : position.genreIds()) {
+            byGenre.computeIfAbsent(genreId, key -> new TreeSet<>()).add(ranked);
+            if (position.year() != null) {
+                byGenreAndYear.computeIfAbsent(new GenreYear(genreId, position.year()), key -> new TreeSet<>())
+                        .add(ranked);
+            }
+        }
+        if (position.year() != null) {
+            byYear.computeIfAbsent(position.year(), key -> new TreeSet<>()).add(ranked);
+        }
+    }
+
+    private void unlink(long filmId, FilmPosition position) {
+        Ranked ranked = new Ranked(filmId, position.likes());
+        overall.remove(ranked);
+        for (long genreId : position.genreIds()) {
+            removeFrom(byGenre, genreId, ranked);
+            if (position.year() != null) {
+                removeFrom(byGenreAndYear, new GenreYear(genreId, position.year()), ranked);
+            }
+        }
+        if (position.year() != null) {
+            removeFrom(byYear, position.year(), ranked);
+        }
+    }
+
+    private static <K> void removeFrom(Map<K, NavigableSet<Ranked>> boards, K key, Ranked ranked) {
+        NavigableSet<Ranked> board = boards.get(key);
+        board.remove(ranked);
+        if (board.isEmpty()) {
+            boards.remove(key);
+        }
+    }
+
+    private record FilmPosition(Integer year, long[] genreIds, int likes) {
+    }
+
+    private record GenreYear(long genreId, int year) {
+    }
+
+    private record Ranked(long filmId, int likes) implements Comparable<Ranked> {
+        @Override
+        public int compareTo(Ranked other) {
+            int byLikes = Integer.compare(other.likes, likes);
+            return byLikes != 0 ? byLikes : Long.compare(filmId, other.filmId);
+        }
+    }
+}
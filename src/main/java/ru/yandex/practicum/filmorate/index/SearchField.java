@@ -0,0 +1,29 @@
+package ru.yandex.practicum.filmorate.index;
+
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+public enum SearchField {
+    TITLE("title", 2.0),
+    DESCRIPTION("description", 1.0);
+
+    private final String parameter;
+    private final double weight;
+
+    SearchField(String parameter, double weight) {
+        this.parameter = parameter;
+        this.weight = weight;
+    }
+
+    public double weight() {
+        return weight;
+    }
+
+    public static SearchField fromParameter(String value) {
+        for (SearchField field : values()) {
+            if (field.parameter.equalsIgnoreCase(value.trim())) {
+                return field;
+            }
+        }
+        throw new ValidationException("Неизвестное поле поиска: " + value);
+    }
+}
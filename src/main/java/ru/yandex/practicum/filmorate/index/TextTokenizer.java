@@ -0,0 +1,42 @@
+package ru.yandex.practicum.filmorate.index;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+public final class TextTokenizer {
+    private static final int MIN_WORD_LENGTH = 2;
+
+    private TextTokenizer() {
+    }
+
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isBlank()) {
+            return tokens;
+        }
+
+        String normalized = normalize(text);
+        int start = -1;
+        for (int idx = 0; idx <= normalized.length(); idx++) {
+            boolean wordChar = idx < normalized.length() && Character.isLetterOrDigit(normalized.charAt(idx));
+            if (wordChar && start < 0) {
+                start = idx;
+            } else if (!wordChar && start >= 0) {
+                addToken(tokens, normalized.substring(start, idx));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    public static String normalize(String text) {
+        return text.toLowerCase(Locale.ROOT).replace('ё', 'е');
+    }
+
+    private static void addToken(List<String> tokens, String token) {
+        if (token.length() >= MIN_WORD_LENGTH || Character.isDigit(token.charAt(0))) {
+            tokens.add(token);
+        }
+    }
+}
@@ -0,0 +1,439 @@
+package ru.yandex.practicum.filmorate.index;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.yandex.practicum.filmorate.dto.FilmSuggestion;
+import ru.yandex.practicum.filmorate.event.FilmCreatedEvent;
+import ru.yandex.practicum.filmorate.event.FilmLikedEvent;
+import ru.yandex.practicum.filmorate.event.FilmUnlikedEvent;
+import ru.yandex.practicum.filmorate.event.FilmUpdatedEvent;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.repository.FilmStorage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Сжатое префиксное дерево (radix trie) по нормализованным названиям фильмов.
+// В каждом узле хранится максимум лайков в поддереве, поэтому лучшие дополнения находятся обходом "лучший-первым"
+@Slf4j
+@Component
+public class TitleAutocomplete {
+    private final FilmStorage filmStorage;
+    private final FilmLikeCounts likeCounts;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Node root = new Node(new char[0], null);
+    private final Map<Long, Node> terminals = new HashMap<>();
+
+    public TitleAutocomplete(FilmStorage filmStorage, FilmLikeCounts likeCounts) {
+        this.filmStorage = filmStorage;
+        this.likeCounts = likeCounts;
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        long startedAt = System.currentTimeMillis();
+        for (Film film : filmStorage.getAllFilms()) {
+            index(film.getId(), film.getName());
+        }
+        log.info("Дерево автодополнения построено: {} названий за {} мс", size(),
+                System.currentTimeMillis() - startedAt);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFilmCreated(FilmCreatedEvent event) {
+        index(event.filmId(), event.name());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFilmUpdated(FilmUpdatedEvent event) {
+        index(event.filmId(), event.name());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFilmLiked(FilmLikedEvent event) {
+        changeLikes(event.filmId(), 1);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFilmUnliked(FilmUnlikedEvent event) {
+        changeLikes(event.filmId(), -1);
+    }
+
+    public void index(Long filmId, String title) {
+        String key = title == null ? "" : TextTokenizer.normalize(title.strip());
+
+        lock.writeLock().lock();
+        try {
+            Node existing = terminals.get(filmId);
+            int likes = existing != null ? existing.likes[existing.slotOf(filmId)] : likeCounts.get(filmId);
+            removeLocked(filmId);
+            if (!key.isEmpty()) {
+                terminals.put(filmId, insert(key, filmId, title, likes));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long filmId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(filmId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void changeLikes(Long filmId, int delta) {
+        lock.writeLock().lock();
+        try {
+            Node node = terminals.get(filmId);
+            if (node != null) {
+                int slot = node.slotOf(filmId);
+                node.likes[slot] = Math.max(0, node.likes[slot] + delta);
+                refreshBestUpwards(node);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Сначала идут точные совпадения префикса, затем совпадения с опечатками; внутри группы — по популярности
+    public List<FilmSuggestion> suggest(String prefix, int limit) {
+        String query = prefix == null ? "" : TextTokenizer.normalize(prefix.strip());
+        if (query.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            // Если точных дополнений хватает, нечёткий обход не нужен: опечатки ранжируются ниже
+            Node exact = exactPrefix(query);
+            int maxEdits = maxEdits(query.length());
+            if (maxEdits == 0 || exact != null && exact.count >= limit) {
+                List<Candidate> matches = exact == null ? List.of() : List.of(new Candidate(exact, -1, 0, exact.best));
+                return topCompletions(matches, limit);
+            }
+
+            int[][] rows = new int[query.length() + maxEdits + 2][query.length() + 1];
+            for (int idx = 0; idx <= query.length(); idx++) {
+                rows[0][idx] = idx;
+            }
+            List<Candidate> matches = new ArrayList<>();
+            collectMatches(root, query, rows, 0, maxEdits, Integer.MAX_VALUE, matches);
+            return topCompletions(matches, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return terminals.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Допустимое число опечаток растёт с длиной введённого префикса
+    static int maxEdits(int prefixLength) {
+        if (prefixLength <= 2) {
+            return 0;
+        }
+        return prefixLength <= 5 ? 1 : 2;
+    }
+
+    private Node insert(String key, Long filmId, String title, int likes) {
+        Node node = root;
+        int pos = 0;
+        while (true) {
+            node.best = Math.max(node.best, likes);
+            node.count++;
+            if (pos == key.length()) {
+                node.addFilm(filmId, title, likes);
+                return node;
+            }
+
+            int idx = node.childIndex(key.charAt(pos));
+            if (idx < 0) {
+                Node leaf = new Node(key.substring(pos).toCharArray(), node);
+                leaf.addFilm(filmId, title, likes);
+                leaf.best = likes;
+                leaf.count = 1;
+                node.insertChild(-idx - 1, leaf);
+                return leaf;
+            }
+
+            Node child = node.children[idx];
+            int common = commonPrefix(child.label, key, pos);
+            if (common < child.label.length) {
+                Node middle = new Node(Arrays.copyOf(child.label, common), node);
+                child.label = Arrays.copyOfRange(child.label, common, child.label.length);
+                child.parent = middle;
+                middle.children = new Node[]{child};
+                middle.best = child.best;
+                middle.count = child.count;
+                node.children[idx] = middle;
+                child = middle;
+            }
+            node = child;
+            pos += common;
+        }
+    }
+
+    private void removeLocked(Long filmId) {
+        Node node = terminals.remove(filmId);
+        if (node != null) {
+            node.removeFilm(node.slotOf(filmId));
+            for (Node current = node; current != null; current = current.parent) {
+                current.count--;
+            }
+            refreshBestUpwards(compact(node));
+        }
+    }
+
+    // Убирает опустевшие узлы и склеивает цепочки из единственного потомка, чтобы дерево оставалось сжатым
+    private Node compact(Node node) {
+        Node parent = node.parent;
+        if (parent == null || node.filmIds.length > 0 || node.children.length > 1) {
+            return node;
+        }
+        if (node.children.length == 0) {
+            parent.removeChild(node);
+            return compact(parent);
+        }
+        Node child = node.children[0];
+        char[] label = Arrays.copyOf(node.label, node.label.length + child.label.length);
+        System.arraycopy(child.label, 0, label, node.label.length, child.label.length);
+        child.label = label;
+        child.parent = parent;
+        parent.children[parent.childIndex(label[0])] = child;
+        return parent;
+    }
+
+    private void refreshBestUpwards(Node node) {
+        for (Node current = node; current != null; current = current.parent) {
+            current.refreshBest();
+        }
+    }
+
+    // Обход с построчным пересчётом расстояния Левенштейна: ветка отсекается, как только
+    // минимальное расстояние в строке превысило порог. Первая буква опечаткой не считается —
+    // иначе пришлось бы обходить поддеревья всех букв алфавита
+    private void collectMatches(Node node, String query, int[][] rows, int depth, int maxEdits, int coveredDistance,
+                                List<Candidate> matches) {
+        for (Node child : node.children) {
+            if (depth == 0 && child.label[0] != query.charAt(0)) {
+                continue;
+            }
+            int row = depth;
+            int distance = coveredDistance;
+            boolean alive = true;
+            for (char symbol : child.label) {
+                nextRow(rows[row], rows[++row], query, symbol);
+                distance = Math.min(distance, rows[row][query.length()]);
+                if (min(rows[row]) > maxEdits) {
+                    alive = false;
+                    break;
+                }
+            }
+
+            if (distance <= maxEdits && distance < coveredDistance) {
+                matches.add(new Candidate(child, -1, distance, child.best));
+            }
+            if (alive && distance > 0) {
+                collectMatches(child, query, rows, row, maxEdits, Math.min(distance, coveredDistance), matches);
+            }
+        }
+    }
+
+    private Node exactPrefix(String query) {
+        Node node = root;
+        int pos = 0;
+        while (pos < query.length()) {
+            int idx = node.childIndex(query.charAt(pos));
+            if (idx < 0) {
+                return null;
+            }
+            node = node.children[idx];
+            int common = commonPrefix(node.label, query, pos);
+            if (pos + common < query.length() && common < node.label.length) {
+                return null;
+            }
+            pos += common;
+        }
+        return node;
+    }
+
+    private List<FilmSuggestion> topCompletions(List<Candidate> matches, int limit) {
+        PriorityQueue<Candidate> queue = new PriorityQueue<>(matches);
+        Set<Long> emitted = new HashSet<>();
+        List<FilmSuggestion> result = new ArrayList<>(limit);
+        while (!queue.isEmpty() && result.size() < limit) {
+            Candidate candidate = queue.poll();
+            Node node = candidate.node();
+            if (candidate.slot() >= 0) {
+                long filmId = node.filmIds[candidate.slot()];
+                if (emitted.add(filmId)) {
+                    result.add(new FilmSuggestion(filmId, node.titles[candidate.slot()]));
+                }
+                continue;
+            }
+            for (int slot = 0; slot < node.filmIds.length; slot++) {
+                queue.add(new Candidate(node, slot, candidate.distance(), node.likes[slot]));
+            }
+            for (Node child : node.children) {
+                queue.add(new Candidate(child, -1, candidate.distance(), child.best));
+            }
+        }
+        return result;
+    }
+
+    private static void nextRow(int[] previous, int[] row, String query, char symbol) {
+        row[0] = previous[0] + 1;
+        for (int idx = 1; idx < row.length; idx++) {
+            int substitution = previous[idx - 1] + (query.charAt(idx - 1) == symbol ? 0 : 1);
+            row[idx] = Math.min(substitution, Math.min(previous[idx], row[idx - 1]) + 1);
+        }
+    }
+
+    private static int min(int[] row) {
+        int min = row[0];
+        for (int value : row) {
+            min = Math.min(min, value);
+        }
+        return min;
+    }
+
+    private static int commonPrefix(char[] label, String key, int offset) {
+        int length = 0;
+        while (length < label.length && offset + length < key.length()
+                && label[length] == key.charAt(offset + length)) {
+            length++;
+        }
+        return length;
+    }
+
+    // Порядок обхода: меньше опечаток, больше лайков, готовый фильм раньше поддерева с тем же весом
+    private record Candidate(Node node, int slot, int distance, int weight) implements Comparable<Candidate> {
+        @Override
+        public int compareTo(Candidate other) {
+            if (distance != other.distance) {
+                return Integer.compare(distance, other.distance);
+            }
+            if (weight != other.weight) {
+                return Integer.compare(other.weight, weight);
+            }
+            if ((slot >= 0) != (other.slot >= 0)) {
+                return slot >= 0 ? -1 : 1;
+            }
+            return slot >= 0 ? Long.compare(node.filmIds[slot], other.node.filmIds[other.slot]) : 0;
+        }
+    }
+
+    private static final class Node {
+        private static final Node[] NO_CHILDREN = new Node[0];
+        private static final long[] NO_FILMS = new long[0];
+        private static final int[] NO_LIKES = new int[0];
+        private static final String[] NO_TITLES = new String[0];
+
+        private char[] label;
+        private Node parent;
+        private Node[] children = NO_CHILDREN;
+        private long[] filmIds = NO_FILMS;
+        private int[] likes = NO_LIKES;
+        private String[] titles = NO_TITLES;
+        private int best;
+        // Число фильмов в поддереве
+        private int count;
+
+        private Node(char[] label, Node parent) {
+            this.label = label;
+            this.parent = parent;
+        }
+
+        private int childIndex(char first) {
+            int low = 0;
+            int high = children.length - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                char current = children[middle].label[0];
+                if (current < first) {
+                    low = middle + 1;
+                } else if (current > first) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -(low + 1);
+        }
+
+        private void insertChild(int idx, Node child) {
+            Node[] grown = new Node[children.length + 1];
+            System.arraycopy(children, 0, grown, 0, idx);
+            grown[idx] = child;
+            System.arraycopy(children, idx, grown, idx + 1, children.length - idx);
+            children = grown;
+        }
+
+        private void removeChild(Node child) {
+            int idx = childIndex(child.label[0]);
+            Node[] shrunk = new Node[children.length - 1];
+            System.arraycopy(children, 0, shrunk, 0, idx);
+            System.arraycopy(children, idx + 1, shrunk, idx, children.length - idx - 1);
+            children = shrunk.length == 0 ? NO_CHILDREN : shrunk;
+        }
+
+        private int slotOf(long filmId) {
+            for (int slot = 0; slot < filmIds.length; slot++) {
+                if (filmIds[slot] == filmId) {
+                    return slot;
+                }
+            }
+            throw new IllegalStateException("Фильм " + filmId + " отсутствует в узле дерева автодополнения");
+        }
+
+        private void addFilm(long filmId, String title, int filmLikes) {
+            int size = filmIds.length;
+            filmIds = Arrays.copyOf(filmIds, size + 1);
+            likes = Arrays.copyOf(likes, size + 1);
+            titles = Arrays.copyOf(titles, size + 1);
+            filmIds[size] = filmId;
+            likes[size] = filmLikes;
+            titles[size] = title;
+        }
+
+        private void removeFilm(int slot) {
+            int last = filmIds.length - 1;
+            filmIds[slot] = filmIds[last];
+            likes[slot] = likes[last];
+            titles[slot] = titles[last];
+            filmIds = last == 0 ? NO_FILMS : Arrays.copyOf(filmIds, last);
+            likes = last == 0 ? NO_LIKES : Arrays.copyOf(likes, last);
+            titles = last == 0 ? NO_TITLES : Arrays.copyOf(titles, last);
+        }
+
+        private void refreshBest() {
+            int max = 0;
+            for (int value : likes) {
+                max = Math.max(max, value);
+            }
+            for (Node child : children) {
+                max = Math.max(max, child.best);
+            }
+            best = max;
+        }
+    }
+}
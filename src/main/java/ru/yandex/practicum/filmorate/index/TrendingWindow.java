@@ -0,0 +1,39 @@
+package ru.yandex.practicum.filmorate.index;
+
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+import java.time.Duration;
+
+// Окно тренда и период полураспада веса лайка внутри окна
+public enum TrendingWindow {
+    HOUR("hour", Duration.ofHours(1), Duration.ofMinutes(15)),
+    DAY("day", Duration.ofDays(1), Duration.ofHours(6)),
+    WEEK("week", Duration.ofDays(7), Duration.ofDays(2));
+
+    private final String parameter;
+    private final Duration length;
+    private final Duration halfLife;
+
+    TrendingWindow(String parameter, Duration length, Duration halfLife) {
+        this.parameter = parameter;
+        this.length = length;
+        this.halfLife = halfLife;
+    }
+
+    public Duration length() {
+        return length;
+    }
+
+    public Duration halfLife() {
+        return halfLife;
+    }
+
+    public static TrendingWindow fromParameter(String value) {
+        for (TrendingWindow window : values()) {
+            if (window.parameter.equalsIgnoreCase(value.trim())) {
+                return window;
+            }
+        }
+        throw new ValidationException("Неизвестное окно трендов: " + value);
+    }
+}
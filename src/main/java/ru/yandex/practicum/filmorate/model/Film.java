@@ -19,6 +19,8 @@ public class Film {
     private Long duration;
     private Mpa mpa;
     private Set<Genre> genres = new HashSet<>();
+    private int likesCount;
+    private Long version;
 
     public Film(Long id, String name, String description, LocalDate releaseDate, Long duration) {
         this.id = id;
@@ -0,0 +1,7 @@
+package ru.yandex.practicum.filmorate.model;
+
+public record Friendship(Long userId, Long friendId) {
+    public Friendship reversed() {
+        return new Friendship(friendId, userId);
+    }
+}
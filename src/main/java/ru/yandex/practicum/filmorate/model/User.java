@@ -13,6 +13,7 @@ public class User {
     private String login;
     private String name;
     private LocalDate birthday;
+    private Long version;
 
     public User(Long id, String email, String login, String name, LocalDate birthday) {
         this.id = id;
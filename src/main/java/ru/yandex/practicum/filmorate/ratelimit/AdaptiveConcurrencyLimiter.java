@@ -0,0 +1,73 @@
+package ru.yandex.practicum.filmorate.ratelimit;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleSupplier;
+
+// Предел одновременных запросов по AIMD: пока запросы укладываются в порог задержки и пул соединений
+// не заставляет ждать, предел растёт на единицу за каждые limit успешных запросов; при перегрузке
+// уменьшается в BACKOFF раз, но не чаще раза за порог задержки, чтобы одна волна медленных
+// запросов не обрушила его до минимума
+public class AdaptiveConcurrencyLimiter {
+    private static final double BACKOFF = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double poolWaitThresholdMillis;
+    private final DoubleSupplier poolWaitMillis;
+    private final AtomicInteger limit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger successes = new AtomicInteger();
+    private final AtomicLong nextDecreaseNanos;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit,
+                                      int minLimit,
+                                      int maxLimit,
+                                      Duration latencyThreshold,
+                                      Duration poolWaitThreshold,
+                                      DoubleSupplier poolWaitMillis) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.latencyThresholdNanos = latencyThreshold.toNanos();
+        this.poolWaitThresholdMillis = poolWaitThreshold.toNanos() / 1_000_000d;
+        this.poolWaitMillis = poolWaitMillis;
+        this.limit = new AtomicInteger(Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit)));
+        this.nextDecreaseNanos = new AtomicLong(System.nanoTime());
+    }
+
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit.get()) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public void release(long latencyNanos, long nowNanos) {
+        inFlight.decrementAndGet();
+        if (latencyNanos > latencyThresholdNanos || poolWaitMillis.getAsDouble() > poolWaitThresholdMillis) {
+            successes.set(0);
+            long next = nextDecreaseNanos.get();
+            if (nowNanos - next >= 0 && nextDecreaseNanos.compareAndSet(next, nowNanos + latencyThresholdNanos)) {
+                limit.updateAndGet(current -> Math.max(minLimit, (int) (current * BACKOFF)));
+            }
+        } else if (successes.incrementAndGet() >= limit.get()) {
+            successes.set(0);
+            limit.updateAndGet(current -> Math.min(maxLimit, current + 1));
+        }
+    }
+
+    public int limit() {
+        return limit.get();
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+}
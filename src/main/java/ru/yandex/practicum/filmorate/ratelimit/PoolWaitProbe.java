@@ -0,0 +1,52 @@
+package ru.yandex.practicum.filmorate.ratelimit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleSupplier;
+
+// Среднее ожидание соединения из пулов Hikari за последний интервал. Таймеры hikaricp.connections.acquire
+// накопительные, поэтому считается разница с прошлым замером; замер делает не чаще раза за интервал
+// тот поток, который первым заметил, что интервал истёк
+public class PoolWaitProbe implements DoubleSupplier {
+    private static final String ACQUIRE_TIMER = "hikaricp.connections.acquire";
+
+    private final MeterRegistry registry;
+    private final long intervalNanos;
+    private final AtomicLong nextSampleNanos;
+    private long lastCount;
+    private double lastTotalMillis;
+    private volatile double recentWaitMillis;
+
+    public PoolWaitProbe(MeterRegistry registry, Duration interval) {
+        this.registry = registry;
+        this.intervalNanos = interval.toNanos();
+        this.nextSampleNanos = new AtomicLong(System.nanoTime());
+    }
+
+    @Override
+    public double getAsDouble() {
+        long now = System.nanoTime();
+        long next = nextSampleNanos.get();
+        if (now - next >= 0 && nextSampleNanos.compareAndSet(next, now + intervalNanos)) {
+            sample();
+        }
+        return recentWaitMillis;
+    }
+
+    private synchronized void sample() {
+        long count = 0;
+        double totalMillis = 0;
+        for (Timer timer : registry.find(ACQUIRE_TIMER).timers()) {
+            count += timer.count();
+            totalMillis += timer.totalTime(TimeUnit.MILLISECONDS);
+        }
+        long acquired = count - lastCount;
+        recentWaitMillis = acquired > 0 ? (totalMillis - lastTotalMillis) / acquired : 0;
+        lastCount = count;
+        lastTotalMillis = totalMillis;
+    }
+}
@@ -0,0 +1,35 @@
+package ru.yandex.practicum.filmorate.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Маркерная корзина в виде одного числа — времени, когда корзина снова станет полной (GCRA).
+// Каждый запрос сдвигает его на интервал одного маркера; запрос отклоняется, если сдвиг
+// ушёл в будущее дальше, чем помещается в корзину. Обновление — один CAS, без блокировок
+final class TokenBucket {
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final AtomicLong fullAt;
+
+    TokenBucket(double permitsPerSecond, int capacity, long nowNanos) {
+        this.intervalNanos = Math.max(1, Math.round(1_000_000_000d / permitsPerSecond));
+        this.toleranceNanos = intervalNanos * (Math.max(1, capacity) - 1);
+        this.fullAt = new AtomicLong(nowNanos);
+    }
+
+    boolean tryAcquire(long nowNanos) {
+        while (true) {
+            long current = fullAt.get();
+            long base = current - nowNanos > 0 ? current : nowNanos;
+            if (base - nowNanos > toleranceNanos) {
+                return false;
+            }
+            if (fullAt.compareAndSet(current, base + intervalNanos)) {
+                return true;
+            }
+        }
+    }
+
+    long nanosUntilPermit(long nowNanos) {
+        return Math.max(0, fullAt.get() - toleranceNanos - nowNanos);
+    }
+}
@@ -0,0 +1,135 @@
+package ru.yandex.practicum.filmorate.ratelimit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+import ru.yandex.practicum.filmorate.dto.ErrorResponse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+// Защита пишущих запросов: сначала маркерная корзина клиента для конкретного эндпоинта,
+// затем общий адаптивный предел одновременных записей. Отказ в обоих случаях — 429 с Retry-After.
+// Клиент определяется по адресу; за прокси адрес берётся из X-Forwarded-For
+// при включённом server.forward-headers-strategy
+@Slf4j
+public class WriteLoadFilter extends OncePerRequestFilter implements MeterBinder {
+    private static final Pattern NUMERIC_SEGMENT = Pattern.compile("/\\d+(?=/|$)");
+    private static final long SHED_RETRY_AFTER_SECONDS = 1;
+
+    private final double permitsPerSecond;
+    private final int burst;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final ObjectMapper json;
+    private final Cache<BucketKey, TokenBucket> buckets;
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rateLimited = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+
+    public WriteLoadFilter(double permitsPerSecond,
+                           int burst,
+                           int maxClients,
+                           AdaptiveConcurrencyLimiter concurrencyLimiter,
+                           ObjectMapper json) {
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.json = json;
+        // Корзина, простоявшая дольше времени полного наполнения, ничем не отличается от новой
+        long refillNanos = Math.round(burst * 1_000_000_000d / permitsPerSecond);
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxClients)
+                .expireAfterAccess(Duration.ofNanos(Math.max(refillNanos, TimeUnit.SECONDS.toNanos(1))))
+                .build();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return HttpMethod.GET.matches(request.getMethod())
+                || HttpMethod.HEAD.matches(request.getMethod())
+                || HttpMethod.OPTIONS.matches(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain chain) throws ServletException, IOException {
+        long start = System.nanoTime();
+        String endpoint = request.getMethod() + " " + NUMERIC_SEGMENT.matcher(request.getRequestURI())
+                .replaceAll("/{id}");
+        TokenBucket bucket = buckets.get(new BucketKey(request.getRemoteAddr(), endpoint),
+                key -> new TokenBucket(permitsPerSecond, burst, start));
+        if (!bucket.tryAcquire(start)) {
+            rateLimited.increment();
+            long retryAfter = Math.max(1, (bucket.nanosUntilPermit(start) + 999_999_999) / 1_000_000_000);
+            reject(response, retryAfter, "Превышен лимит запросов",
+                    String.format("Слишком много запросов %s, повторите через %d с", endpoint, retryAfter));
+            return;
+        }
+        if (!concurrencyLimiter.tryAcquire()) {
+            shed.increment();
+            log.warn("Запрос {} отклонён: достигнут предел одновременных записей {}",
+                    endpoint, concurrencyLimiter.limit());
+            reject(response, SHED_RETRY_AFTER_SECONDS, "Сервер перегружен",
+                    "Слишком много одновременных изменений, повторите позже");
+            return;
+        }
+
+        admitted.increment();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            long now = System.nanoTime();
+            concurrencyLimiter.release(now - start, now);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("filmorate.writes.requests", admitted, LongAdder::sum)
+                .tag("result", "admitted")
+                .register(registry);
+        FunctionCounter.builder("filmorate.writes.requests", rateLimited, LongAdder::sum)
+                .description("Запросы, отклонённые маркерной корзиной клиента")
+                .tag("result", "rate-limited")
+                .register(registry);
+        FunctionCounter.builder("filmorate.writes.requests", shed, LongAdder::sum)
+                .description("Запросы, отклонённые адаптивным пределом одновременных записей")
+                .tag("result", "shed")
+                .register(registry);
+        Gauge.builder("filmorate.writes.concurrency.limit", concurrencyLimiter, AdaptiveConcurrencyLimiter::limit)
+                .register(registry);
+        Gauge.builder("filmorate.writes.in-flight", concurrencyLimiter, AdaptiveConcurrencyLimiter::inFlight)
+                .register(registry);
+    }
+
+    private void reject(HttpServletResponse response, long retryAfterSeconds, String error, String description)
+            throws IOException {
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        json.writeValue(response.getOutputStream(), new ErrorResponse(error, description));
+    }
+
+    private record BucketKey(String client, String endpoint) {
+    }
+}
@@ -6,11 +6,16 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import ru.yandex.practicum.filmorate.exception.InternalServerException;
+import ru.yandex.practicum.filmorate.repository.mapper.ColumnIndexRowMapper;
 
 import java.sql.PreparedStatement;
 import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.StringJoiner;
 
 @RequiredArgsConstructor
 public abstract class BaseRepository<T> {
@@ -19,7 +24,7 @@ public abstract class BaseRepository<T> {
 
     protected Optional<T> findOne(String query, Object... params) {
         try {
-            T result = jdbc.queryForObject(query, mapper, params);
+            T result = jdbc.queryForObject(query, rowMapper(), params);
             return Optional.ofNullable(result);
         } catch (EmptyResultDataAccessException ignored) {
             return Optional.empty();
@@ -27,7 +32,11 @@ public abstract class BaseRepository<T> {
     }
 
     protected List<T> findMany(String query, Object... params) {
-        return jdbc.query(query, mapper, params);
+        return jdbc.query(query, rowMapper(), params);
+    }
+
+    private RowMapper<T> rowMapper() {
+        return mapper instanceof ColumnIndexRowMapper<T> columns ? columns.forQuery() : mapper;
     }
 
     protected boolean delete(String query, long id) {
@@ -42,6 +51,28 @@ public abstract class BaseRepository<T> {
         }
     }
 
+    // Обновляет только изменённые колонки и увеличивает version, если в базе всё ещё ожидаемая версия:
+    // запись, успевшая вклиниться между чтением и обновлением, даёт 0 строк
+    protected boolean updateVersioned(String table, long id, long expectedVersion, Map<String, Object> changes) {
+        List<Object> params = new ArrayList<>(changes.size() + 2);
+        StringJoiner assignments = new StringJoiner(", ");
+        changes.forEach((column, value) -> {
+            assignments.add(column + " = ?");
+            params.add(value);
+        });
+        assignments.add("version = version + 1");
+        params.add(id);
+        params.add(expectedVersion);
+        return jdbc.update("UPDATE " + table + " SET " + assignments + " WHERE id = ? AND version = ?",
+                params.toArray()) > 0;
+    }
+
+    protected static void putIfChanged(Map<String, Object> changes, String column, Object before, Object after) {
+        if (!Objects.equals(before, after)) {
+            changes.put(column, after);
+        }
+    }
+
     protected long insert(String query, Object... params) {
         GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
         jdbc.update(connection -> {
@@ -60,4 +91,4 @@ public abstract class BaseRepository<T> {
             throw new InternalServerException("Не удалось сохранить данные");
         }
     }
-}
\ No newline at end of file
+}
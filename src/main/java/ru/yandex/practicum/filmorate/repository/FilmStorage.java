@@ -1,25 +1,47 @@
 package ru.yandex.practicum.filmorate.repository;
 
+import ru.yandex.practicum.filmorate.event.FilmLikedEvent;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
 
+import java.time.Instant;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public interface FilmStorage {
     Collection<Film> getAllFilms();
 
     Film getFilmById(Long filmId);
 
+    List<Film> getFilmsByIds(List<Long> filmIds);
+
+    List<Long> findFilmIdsAfter(long afterId, int limit);
+
     void addFilm(Film film);
 
     void updateFilm(Film film);
 
+    boolean patchFilm(Film original, Film patched);
+
     boolean doesFilmNotExist(Long id);
 
+    Set<Long> findExistingFilmIds(Collection<Long> filmIds);
+
     void addLike(Long filmId, Long userId);
 
     void deleteLike(Long filmId, Long userId);
 
+    Map<FilmLike, Instant> findLikes(Collection<FilmLike> likes);
+
+    void applyLikes(Collection<FilmLike> added, Map<FilmLike, Instant> removed);
+
     Collection<Film> getPopularFilms(int count);
 
     boolean isLikeExists(Long filmId, Long userId);
+
+    Map<Long, Integer> getLikesCounts();
+
+    List<FilmLikedEvent> getLikesSince(Instant since);
 }
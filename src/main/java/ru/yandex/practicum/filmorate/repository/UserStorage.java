@@ -1,29 +1,43 @@
 package ru.yandex.practicum.filmorate.repository;
 
+import ru.yandex.practicum.filmorate.dto.FriendshipChanges;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 public interface UserStorage {
     List<User> getAllUsers();
 
+    List<User> getUsersAfter(long afterId, int limit);
+
     User getUserById(Long userId);
 
     void addUser(User user);
 
     void updateUser(User user);
 
+    boolean patchUser(User original, User patched);
+
     List<User> getFriends(Long userId);
 
     boolean doesUserNotExist(Long id);
 
+    Set<Long> findExistingUserIds(Collection<Long> userIds);
+
     void addFriend(Long userId, Long friendId);
 
     void deleteFriend(Long userId, Long friendId);
 
+    FriendshipChanges importFriendships(Collection<Friendship> edges);
+
     List<Long> getFriendIds(Long userId);
 
     List<User> getFriendsByUserId(Long userId);
 
+    List<User> getFriendsAfter(Long userId, long afterId, int limit);
+
     List<User> getCommonFriends(Long userId, Long otherId);
 }
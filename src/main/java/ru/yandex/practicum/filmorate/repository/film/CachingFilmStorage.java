@@ -0,0 +1,175 @@
+package ru.yandex.practicum.filmorate.repository.film;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.yandex.practicum.filmorate.cache.FilmCache;
+import ru.yandex.practicum.filmorate.event.FilmCreatedEvent;
+import ru.yandex.practicum.filmorate.event.FilmLikedEvent;
+import ru.yandex.practicum.filmorate.index.IdBitmap;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.repository.FilmStorage;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Чтение фильма по ID идёт через кэш; записи сбрасывают закэшированный фильм сразу,
+// а FilmCache повторяет сброс после коммита транзакции.
+// Существование фильма проверяется по битовой карте ID; если бита нет (фильм ещё не закоммичен
+// или добавлен в обход приложения), отвечает база, а найденный ID запоминается
+@Slf4j
+@Repository
+@Primary
+public class CachingFilmStorage implements FilmStorage {
+    private final FilmRepository filmRepository;
+    private final FilmCache filmCache;
+    private final IdBitmap filmIds = new IdBitmap();
+
+    public CachingFilmStorage(FilmRepository filmRepository, FilmCache filmCache) {
+        this.filmRepository = filmRepository;
+        this.filmCache = filmCache;
+    }
+
+    @PostConstruct
+    public void loadFilmIds() {
+        filmRepository.forEachFilmId(filmIds::add);
+        log.info("Индекс существования фильмов построен: {} ID", filmIds.cardinality());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFilmCreated(FilmCreatedEvent event) {
+        filmIds.add(event.filmId());
+    }
+
+    @Override
+    public Collection<Film> getAllFilms() {
+        return filmRepository.getAllFilms();
+    }
+
+    @Override
+    public Film getFilmById(Long filmId) {
+        return filmCache.get(filmId, filmRepository::getFilmById);
+    }
+
+    @Override
+    public List<Film> getFilmsByIds(List<Long> filmIds) {
+        return filmRepository.getFilmsByIds(filmIds);
+    }
+
+    @Override
+    public List<Long> findFilmIdsAfter(long afterId, int limit) {
+        return filmRepository.findFilmIdsAfter(afterId, limit);
+    }
+
+    @Override
+    public void addFilm(Film film) {
+        filmRepository.addFilm(film);
+    }
+
+    @Override
+    // Закэшированный фильм передаётся репозиторию, чтобы тот не перечитывал жанры, если кэш не устарел
+    public void updateFilm(Film film) {
+        Film cached = filmCache.getIfPresent(film.getId());
+        filmCache.invalidate(film.getId());
+        filmRepository.updateFilm(film, cached);
+    }
+
+    // Патч без изменений ничего не пишет, поэтому и закэшированный фильм остаётся на месте
+    @Override
+    public boolean patchFilm(Film original, Film patched) {
+        boolean changed = filmRepository.patchFilm(original, patched);
+        if (changed) {
+            filmCache.invalidate(original.getId());
+        }
+        return changed;
+    }
+
+    @Override
+    public boolean doesFilmNotExist(Long id) {
+        if (id == null || filmIds.contains(id)) {
+            return id == null;
+        }
+        if (filmRepository.doesFilmNotExist(id)) {
+            return true;
+        }
+        // Внутри транзакции строка может оказаться незакоммиченной, поэтому запоминаем только снаружи
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            filmIds.add(id);
+        }
+        return false;
+    }
+
+    @Override
+    public Set<Long> findExistingFilmIds(Collection<Long> ids) {
+        Set<Long> existing = new HashSet<>();
+        List<Long> unknown = new ArrayList<>();
+        for (Long id : ids) {
+            if (id != null && filmIds.contains(id)) {
+                existing.add(id);
+            } else if (id != null) {
+                unknown.add(id);
+            }
+        }
+        if (!unknown.isEmpty()) {
+            Set<Long> found = filmRepository.findExistingFilmIds(unknown);
+            if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+                found.forEach(filmIds::add);
+            }
+            existing.addAll(found);
+        }
+        return existing;
+    }
+
+    @Override
+    public void addLike(Long filmId, Long userId) {
+        filmCache.invalidate(filmId);
+        filmRepository.addLike(filmId, userId);
+    }
+
+    @Override
+    public void deleteLike(Long filmId, Long userId) {
+        filmCache.invalidate(filmId);
+        filmRepository.deleteLike(filmId, userId);
+    }
+
+    @Override
+    public Map<FilmLike, Instant> findLikes(Collection<FilmLike> likes) {
+        return filmRepository.findLikes(likes);
+    }
+
+    @Override
+    public void applyLikes(Collection<FilmLike> added, Map<FilmLike, Instant> removed) {
+        added.forEach(like -> filmCache.invalidate(like.filmId()));
+        removed.keySet().forEach(like -> filmCache.invalidate(like.filmId()));
+        filmRepository.applyLikes(added, removed);
+    }
+
+    @Override
+    public Collection<Film> getPopularFilms(int count) {
+        return filmRepository.getPopularFilms(count);
+    }
+
+    @Override
+    public boolean isLikeExists(Long filmId, Long userId) {
+        return filmRepository.isLikeExists(filmId, userId);
+    }
+
+    @Override
+    public Map<Long, Integer> getLikesCounts() {
+        return filmRepository.getLikesCounts();
+    }
+
+    @Override
+    public List<FilmLikedEvent> getLikesSince(Instant since) {
+        return filmRepository.getLikesSince(since);
+    }
+}
@@ -1,72 +1,113 @@
 package ru.yandex.practicum.filmorate.repository.film;
 
-import org.springframework.context.annotation.Primary;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.event.FilmCreatedEvent;
+import ru.yandex.practicum.filmorate.event.FilmLikedEvent;
+import ru.yandex.practicum.filmorate.event.FilmUnlikedEvent;
+import ru.yandex.practicum.filmorate.event.FilmUpdatedEvent;
+import ru.yandex.practicum.filmorate.exception.ConflictException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.repository.BaseRepository;
 import ru.yandex.practicum.filmorate.repository.FilmStorage;
 import ru.yandex.practicum.filmorate.repository.mapper.FilmRowMapper;
 
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.LongConsumer;
+import java.util.stream.Collectors;
 
 @Repository
-@Primary
 public class FilmRepository extends BaseRepository<Film> implements FilmStorage {
+    // Фильм, рейтинг и ID жанров одной строкой: жанры собираются подзапросом по первичному ключу film_genres,
+    // поэтому строки фильмов не размножаются и группировка по всем колонкам не нужна
     private static final String FIND_ALL_QUERY =
             "SELECT f.*, " +
             "m.id as mpa_id, " +
-            "m.name as mpa_name " +
+            "m.name as mpa_name, " +
+            "(SELECT ARRAY_AGG(fg.genre_id ORDER BY fg.genre_id) " +
+            "FROM film_genres fg WHERE fg.film_id = f.id) AS genre_ids " +
             "FROM films f " +
             "JOIN mpa m ON f.mpa_id = m.id";
-    private static final String FIND_BY_ID_QUERY =
-            "SELECT f.*, " +
-            "m.id as mpa_id, " +
-            "m.name as mpa_name " +
-            "FROM films f " +
-            "JOIN mpa m ON f.mpa_id = m.id " +
-            "WHERE f.id = ?";
+    private static final String FIND_BY_ID_QUERY = FIND_ALL_QUERY + " WHERE f.id = ?";
     private static final String INSERT_QUERY =
             "INSERT INTO films " +
             "(name, description, release_date, duration, mpa_id) " +
             "VALUES (?, ?, ?, ?, ?)";
     private static final String UPDATE_QUERY =
             "UPDATE films " +
-            "SET name = ?, description = ?, release_date = ?, duration = ?, mpa_id = ? WHERE id = ?";
-    private static final String INSERT_LIKE_QUERY = "INSERT INTO film_likes (film_id, user_id) VALUES (?, ?)";
+            "SET name = ?, description = ?, release_date = ?, duration = ?, mpa_id = ?, version = version + 1 " +
+            "WHERE id = ?";
+    private static final String UPDATE_VERSIONED_QUERY = UPDATE_QUERY + " AND version = ?";
+    private static final String FIND_VERSION_QUERY = "SELECT version FROM films WHERE id = ?";
+    private static final String INSERT_LIKE_QUERY =
+            "INSERT INTO film_likes (film_id, user_id, liked_at) VALUES (?, ?, ?)";
+    private static final String FIND_LIKED_AT_QUERY =
+            "SELECT liked_at FROM film_likes WHERE film_id = ? AND user_id = ?";
+    private static final String FIND_LIKES_SINCE_QUERY =
+            "SELECT film_id, user_id, liked_at FROM film_likes WHERE liked_at >= ?";
     private static final String EXISTS_QUERY = "SELECT COUNT(*) FROM films WHERE id = ?";
+    private static final String FIND_IDS_QUERY = "SELECT id FROM films";
+    private static final String FIND_IDS_AFTER_QUERY = "SELECT id FROM films WHERE id > ? ORDER BY id LIMIT ?";
+    private static final String FIND_EXISTING_IDS_QUERY = "SELECT id FROM films WHERE id IN (%s)";
+    // Пары сравниваются целиком, поэтому приходят только запрошенные лайки, а не все сочетания фильмов и пользователей
+    private static final String FIND_LIKES_QUERY =
+            "SELECT film_id, user_id, liked_at FROM film_likes WHERE (film_id, user_id) IN (%s)";
+    private static final String INSERT_LIKE_IF_ABSENT_QUERY =
+            "INSERT INTO film_likes (film_id, user_id, liked_at) SELECT ?, ?, ? " +
+            "WHERE NOT EXISTS (SELECT 1 FROM film_likes WHERE film_id = ? AND user_id = ?)";
+    private static final String DELETE_LIKE_QUERY = "DELETE FROM film_likes WHERE film_id = ? AND user_id = ?";
+    private static final String LIKES_COUNTS_QUERY = "SELECT id, likes_count FROM films WHERE likes_count > 0";
+    private static final String FIND_LIKES_COUNT_QUERY = "SELECT likes_count FROM films WHERE id = ?";
+    private static final String ADD_LIKES_COUNT_QUERY = "UPDATE films SET likes_count = likes_count + ? WHERE id = ?";
 
     private final GenreRepository genreRepository;
+    private final MpaRepository mpaRepository;
+    private final ApplicationEventPublisher events;
 
     public FilmRepository(JdbcTemplate jdbc,
                           FilmRowMapper filmRowMapper,
-                          GenreRepository genreRepository
+                          GenreRepository genreRepository,
+                          MpaRepository mpaRepository,
+                          ApplicationEventPublisher events
     ) {
         super(jdbc, filmRowMapper);
         this.genreRepository = genreRepository;
+        this.mpaRepository = mpaRepository;
+        this.events = events;
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Collection<Film> getAllFilms() {
-        List<Film> films = findMany(FIND_ALL_QUERY);
-        films.forEach(this::loadFilmGenres);
-        return films;
+        return findMany(FIND_ALL_QUERY);
     }
 
     @Override
     public Film getFilmById(Long filmId) {
-        Film film = findOne(FIND_BY_ID_QUERY, filmId)
+        return findOne(FIND_BY_ID_QUERY, filmId)
                 .orElseThrow(() -> new NotFoundException("Фильм с ID " + filmId + " не найден"));
-        loadFilmGenres(film);
-        return film;
     }
 
     @Override
+    @Transactional
     public void addFilm(Film film) {
         Long mpaId = (film.getMpa() != null) ? film.getMpa().getId() : 1;
 
@@ -85,16 +126,18 @@ public class FilmRepository extends BaseRepository<Film> implements FilmStorage
                 film.getDuration(),
                 mpaId);
         film.setId(id);
+        film.setLikesCount(0);
+        film.setVersion(0L);
         if (film.getGenres() != null && !film.getGenres().isEmpty()) {
             saveFilmGenres(film);
         }
+        events.publishEvent(new FilmCreatedEvent(id, film.getName(), film.getDescription(), film.getReleaseDate(),
+                genreIds(film)));
     }
 
+    // Справочники рейтингов и жанров держатся в памяти, поэтому проверки не обращаются к базе
     private void validateMpaExists(Long mpaId) {
-        String sql = "SELECT COUNT(*) FROM mpa WHERE id = ?";
-        Integer count = jdbc.queryForObject(sql, Integer.class, mpaId);
-
-        if (count == 0) {
+        if (!mpaRepository.existsById(mpaId)) {
             throw new NotFoundException("MPA рейтинг с ID " + mpaId + " не найден");
         }
     }
@@ -108,41 +151,220 @@ public class FilmRepository extends BaseRepository<Film> implements FilmStorage
     }
 
     private void validateGenreExists(Long genreId) {
-        String sql = "SELECT COUNT(*) FROM genres WHERE id = ?";
-        Integer count = jdbc.queryForObject(sql, Integer.class, genreId);
-
-        if (count == null || count == 0) {
+        if (!genreRepository.existsById(genreId)) {
             throw new NotFoundException("Жанр с ID " + genreId + " не найден");
         }
     }
 
     @Override
+    @Transactional
     public void addLike(Long filmId, Long userId) {
         String checkSql = "SELECT COUNT(*) FROM film_likes WHERE film_id = ? AND user_id = ?";
         Integer count = jdbc.queryForObject(checkSql, Integer.class, filmId, userId);
 
         if (count == null || count == 0) {
-            jdbc.update(INSERT_LIKE_QUERY, filmId, userId);
+            Instant likedAt = Instant.now();
+            jdbc.update(INSERT_LIKE_QUERY, filmId, userId, Timestamp.from(likedAt));
+            jdbc.update(ADD_LIKES_COUNT_QUERY, 1, filmId);
+            events.publishEvent(new FilmLikedEvent(filmId, userId, likedAt));
         }
     }
 
     @Override
+    @Transactional
     public void deleteLike(Long filmId, Long userId) {
+        List<Timestamp> likedAt = jdbc.queryForList(FIND_LIKED_AT_QUERY, Timestamp.class, filmId, userId);
         String sql = "DELETE FROM film_likes WHERE film_id = ? AND user_id = ?";
-        jdbc.update(sql, filmId, userId);
+        if (jdbc.update(sql, filmId, userId) > 0) {
+            jdbc.update(ADD_LIKES_COUNT_QUERY, -1, filmId);
+            Timestamp timestamp = likedAt.isEmpty() ? null : likedAt.getFirst();
+            events.publishEvent(new FilmUnlikedEvent(filmId, userId, timestamp != null ? timestamp.toInstant() : null));
+        }
+    }
+
+    // Выбирает ровно запрошенные пары одним запросом (film_id, user_id) IN ((?, ?), ...).
+    // Время лайка может быть пустым у лайков, поставленных до появления колонки liked_at
+    @Override
+    public Map<FilmLike, Instant> findLikes(Collection<FilmLike> likes) {
+        if (likes.isEmpty()) {
+            return Map.of();
+        }
+        List<Object> params = new ArrayList<>(likes.size() * 2);
+        for (FilmLike like : likes) {
+            params.add(like.filmId());
+            params.add(like.userId());
+        }
+
+        Map<FilmLike, Instant> found = new HashMap<>();
+        String pairs = String.join(", ", Collections.nCopies(likes.size(), "(?, ?)"));
+        jdbc.query(String.format(FIND_LIKES_QUERY, pairs), rs -> {
+            Timestamp likedAt = rs.getTimestamp("liked_at");
+            found.put(new FilmLike(rs.getLong("film_id"), rs.getLong("user_id")),
+                    likedAt != null ? likedAt.toInstant() : null);
+        }, params.toArray());
+        return found;
     }
 
+    // Вставка защищена от параллельного лайка той же пары, поэтому события публикуются
+    // и счётчики меняются только для строк, которые действительно изменились
     @Override
+    @Transactional
+    public void applyLikes(Collection<FilmLike> added, Map<FilmLike, Instant> removed) {
+        Map<Long, Integer> deltas = new TreeMap<>();
+        Instant now = Instant.now();
+        Timestamp likedAt = Timestamp.from(now);
+        List<FilmLike> inserts = List.copyOf(added);
+        int[] inserted = jdbc.batchUpdate(INSERT_LIKE_IF_ABSENT_QUERY, inserts.stream()
+                .map(like -> new Object[]{like.filmId(), like.userId(), likedAt, like.filmId(), like.userId()})
+                .toList());
+        for (int idx = 0; idx < inserted.length; idx++) {
+            if (inserted[idx] > 0) {
+                FilmLike like = inserts.get(idx);
+                deltas.merge(like.filmId(), 1, Integer::sum);
+                events.publishEvent(new FilmLikedEvent(like.filmId(), like.userId(), now));
+            }
+        }
+
+        List<FilmLike> deletes = List.copyOf(removed.keySet());
+        int[] deleted = jdbc.batchUpdate(DELETE_LIKE_QUERY, deletes.stream()
+                .map(like -> new Object[]{like.filmId(), like.userId()})
+                .toList());
+        for (int idx = 0; idx < deleted.length; idx++) {
+            if (deleted[idx] > 0) {
+                FilmLike like = deletes.get(idx);
+                deltas.merge(like.filmId(), -1, Integer::sum);
+                events.publishEvent(new FilmUnlikedEvent(like.filmId(), like.userId(), removed.get(like)));
+            }
+        }
+        updateLikesCounts(deltas);
+    }
+
+    // Строки фильмов блокируются по возрастанию ID, чтобы встречные пакеты не ждали друг друга по кругу
+    private void updateLikesCounts(Map<Long, Integer> deltas) {
+        List<Object[]> updates = deltas.entrySet().stream()
+                .filter(delta -> delta.getValue() != 0)
+                .map(delta -> new Object[]{delta.getValue(), delta.getKey()})
+                .toList();
+        if (!updates.isEmpty()) {
+            jdbc.batchUpdate(ADD_LIKES_COUNT_QUERY, updates);
+        }
+    }
+
+    @Override
+    @Transactional
     public void updateFilm(Film film) {
+        updateFilm(film, null);
+    }
+
+    // known — прочитанный ранее фильм (например, из кэша); его жанрам можно верить, только если после него
+    // фильм никто не менял, то есть его версия ровно на единицу меньше версии после этого обновления.
+    // Жанры заменяются целиком, как и остальные поля: запрос без жанров оставляет фильм без жанров
+    @Transactional
+    public void updateFilm(Film film, Film known) {
         Long mpaId = (film.getMpa() != null) ? film.getMpa().getId() : 1;
-        update(UPDATE_QUERY,
-                film.getName(),
-                film.getDescription(),
-                film.getReleaseDate(),
-                film.getDuration(),
-                mpaId,
-                film.getId());
-        updateFilmGenres(film);
+        // Без ожидаемой версии фильм перезаписывается как раньше; с версией — только если его не меняли после чтения
+        if (film.getVersion() == null) {
+            update(UPDATE_QUERY,
+                    film.getName(),
+                    film.getDescription(),
+                    film.getReleaseDate(),
+                    film.getDuration(),
+                    mpaId,
+                    film.getId());
+            film.setVersion(jdbc.queryForObject(FIND_VERSION_QUERY, Long.class, film.getId()));
+        } else {
+            int updated = jdbc.update(UPDATE_VERSIONED_QUERY,
+                    film.getName(),
+                    film.getDescription(),
+                    film.getReleaseDate(),
+                    film.getDuration(),
+                    mpaId,
+                    film.getId(),
+                    film.getVersion());
+            if (updated == 0) {
+                throw new ConflictException("Фильм с ID " + film.getId() + " изменён после версии "
+                        + film.getVersion());
+            }
+            film.setVersion(film.getVersion() + 1);
+        }
+        // Строка фильма уже заблокирована обновлением, поэтому прежний состав жанров не изменится до конца транзакции
+        Set<Long> current = isPreviousVersion(known, film.getVersion())
+                ? genreIds(known)
+                : genreRepository.findGenreIdsByFilmId(film.getId());
+        Set<Long> requested = genreIds(film);
+        Set<Long> added = difference(requested, current);
+        Set<Long> removed = difference(current, requested);
+        if (!added.isEmpty() || !removed.isEmpty()) {
+            genreRepository.removeGenreIdsFromFilm(film.getId(), removed);
+            genreRepository.addGenreIdsToFilm(film.getId(), added);
+        }
+        film.setLikesCount(getLikesCount(film.getId()));
+        events.publishEvent(new FilmUpdatedEvent(film.getId(), film.getName(), film.getDescription(),
+                film.getReleaseDate(), added, removed));
+    }
+
+    // Частичное обновление: в UPDATE попадают только изменённые колонки, жанры трогаются, только если изменился
+    // их состав. Версия сверяется с patched.getVersion(); если фильм изменили после неё, бросает ConflictException
+    @Override
+    @Transactional
+    public boolean patchFilm(Film original, Film patched) {
+        Long id = original.getId();
+        Map<String, Object> changes = new LinkedHashMap<>();
+        putIfChanged(changes, "name", original.getName(), patched.getName());
+        putIfChanged(changes, "description", original.getDescription(), patched.getDescription());
+        putIfChanged(changes, "release_date", original.getReleaseDate(), patched.getReleaseDate());
+        putIfChanged(changes, "duration", original.getDuration(), patched.getDuration());
+        putIfChanged(changes, "mpa_id", mpaId(original), mpaId(patched));
+        Set<Long> before = genreIds(original);
+        Set<Long> after = genreIds(patched);
+        if (changes.isEmpty() && before.equals(after)) {
+            if (!Objects.equals(original.getVersion(), patched.getVersion())) {
+                throw new ConflictException("Фильм с ID " + id + " изменён после версии " + patched.getVersion());
+            }
+            return false;
+        }
+
+        // Смена одних жанров тоже увеличивает версию: после успешного обновления версии состав жанров в базе
+        // совпадает с прочитанным, и разницу можно применять без повторного чтения
+        if (!updateVersioned("films", id, patched.getVersion(), changes)) {
+            throw new ConflictException("Фильм с ID " + id + " изменён после версии " + patched.getVersion());
+        }
+        patched.setVersion(patched.getVersion() + 1);
+        Set<Long> added = difference(after, before);
+        Set<Long> removed = difference(before, after);
+        genreRepository.removeGenreIdsFromFilm(id, removed);
+        genreRepository.addGenreIdsToFilm(id, added);
+        events.publishEvent(new FilmUpdatedEvent(id, patched.getName(), patched.getDescription(),
+                patched.getReleaseDate(), added, removed));
+        return true;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Film> getFilmsByIds(List<Long> filmIds) {
+        if (filmIds.isEmpty()) {
+            return List.of();
+        }
+        List<Film> films = findMany(FIND_ALL_QUERY + " WHERE f.id IN (" + placeholders(filmIds.size()) + ")",
+                filmIds.toArray());
+
+        Map<Long, Integer> positions = new HashMap<>();
+        for (int idx = 0; idx < filmIds.size(); idx++) {
+            positions.putIfAbsent(filmIds.get(idx), idx);
+        }
+        films.sort(Comparator.comparing(film -> positions.get(film.getId())));
+        return films;
+    }
+
+    @Override
+    public List<Long> findFilmIdsAfter(long afterId, int limit) {
+        return jdbc.queryForList(FIND_IDS_AFTER_QUERY, Long.class, afterId, limit);
+    }
+
+    public void forEachFilmId(LongConsumer consumer) {
+        jdbc.query(FIND_IDS_QUERY, rs -> {
+            consumer.accept(rs.getLong("id"));
+        });
     }
 
     @Override
@@ -151,10 +373,20 @@ public class FilmRepository extends BaseRepository<Film> implements FilmStorage
         return count == 0;
     }
 
-    private void loadFilmGenres(Film film) {
-        if (film != null) {
-            film.setGenres(new HashSet<>(genreRepository.findGenresByFilmId(film.getId())));
+    @Override
+    public Set<Long> findExistingFilmIds(Collection<Long> filmIds) {
+        if (filmIds.isEmpty()) {
+            return Set.of();
         }
+        Set<Long> existing = new HashSet<>();
+        jdbc.query(String.format(FIND_EXISTING_IDS_QUERY, placeholders(filmIds.size())), rs -> {
+            existing.add(rs.getLong("id"));
+        }, filmIds.toArray());
+        return existing;
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
     }
 
     private void saveFilmGenres(Film film) {
@@ -163,28 +395,43 @@ public class FilmRepository extends BaseRepository<Film> implements FilmStorage
         }
     }
 
-    private void updateFilmGenres(Film film) {
-        genreRepository.removeAllGenresFromFilm(film.getId());
-        saveFilmGenres(film);
+    private static Set<Long> genreIds(Film film) {
+        if (film.getGenres() == null) {
+            return Set.of();
+        }
+        return film.getGenres().stream()
+                .filter(genre -> genre != null && genre.getId() != null)
+                .map(Genre::getId)
+                .collect(Collectors.toUnmodifiableSet());
     }
 
+    private static boolean isPreviousVersion(Film known, long version) {
+        return known != null && known.getVersion() != null && known.getVersion() == version - 1;
+    }
+
+    private static Long mpaId(Film film) {
+        return film.getMpa() != null ? film.getMpa().getId() : 1L;
+    }
+
+    private static Set<Long> difference(Set<Long> from, Set<Long> subtract) {
+        return from.stream()
+                .filter(id -> !subtract.contains(id))
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    @Transactional(readOnly = true)
     public Collection<Film> getPopularFilms(int count) {
         String sql = """
-        SELECT f.*, m.id as mpa_id, m.name as mpa_name, m.description as mpa_description
+        SELECT f.*, m.id as mpa_id, m.name as mpa_name, m.description as mpa_description,
+            (SELECT ARRAY_AGG(fg.genre_id ORDER BY fg.genre_id)
+             FROM film_genres fg WHERE fg.film_id = f.id) AS genre_ids
         FROM films f
         JOIN mpa m ON f.mpa_id = m.id
-        LEFT JOIN (
-            SELECT film_id, COUNT(user_id) as likes_count
-            FROM film_likes
-            GROUP BY film_id
-        ) l ON f.id = l.film_id
-        ORDER BY l.likes_count DESC NULLS LAST, f.id ASC
+        ORDER BY f.likes_count DESC, f.id ASC
         LIMIT ?
     """;
 
-        List<Film> films = findMany(sql, count);
-        films.forEach(this::loadFilmGenres);
-        return films;
+        return findMany(sql, count);
     }
 
     @Override
@@ -194,9 +441,26 @@ public class FilmRepository extends BaseRepository<Film> implements FilmStorage
         return count != null && count > 0;
     }
 
+    @Override
+    public Map<Long, Integer> getLikesCounts() {
+        Map<Long, Integer> counts = new HashMap<>();
+        jdbc.query(LIKES_COUNTS_QUERY, rs -> {
+            counts.put(rs.getLong("id"), rs.getInt("likes_count"));
+        });
+        return counts;
+    }
+
+    @Override
+    public List<FilmLikedEvent> getLikesSince(Instant since) {
+        return jdbc.query(FIND_LIKES_SINCE_QUERY, (rs, rowNum) -> new FilmLikedEvent(
+                rs.getLong("film_id"),
+                rs.getLong("user_id"),
+                rs.getTimestamp("liked_at").toInstant()
+        ), Timestamp.from(since));
+    }
+
     public int getLikesCount(Long filmId) {
-        String sql = "SELECT COUNT(*) FROM film_likes WHERE film_id = ?";
-        Integer count = jdbc.queryForObject(sql, Integer.class, filmId);
-        return count != null ? count : 0;
+        List<Integer> count = jdbc.queryForList(FIND_LIKES_COUNT_QUERY, Integer.class, filmId);
+        return count.isEmpty() ? 0 : count.getFirst();
     }
 }
\ No newline at end of file
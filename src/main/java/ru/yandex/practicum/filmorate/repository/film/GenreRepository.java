@@ -3,12 +3,19 @@ package ru.yandex.practicum.filmorate.repository.film;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.repository.BaseRepository;
 
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
 
 @Repository
 public class GenreRepository extends BaseRepository<Genre> {
@@ -16,29 +23,67 @@ public class GenreRepository extends BaseRepository<Genre> {
     private static final String FIND_BY_ID_QUERY = "SELECT * FROM genres WHERE id = ?";
     private static final String FIND_BY_FILM_QUERY =
             "SELECT g.* FROM genres g JOIN film_genres fg ON g.id = fg.genre_id WHERE fg.film_id = ? ORDER BY g.id";
+    private static final String FIND_IDS_BY_FILM_QUERY = "SELECT genre_id FROM film_genres WHERE film_id = ?";
+    private static final String INSERT_GENRE_QUERY = "INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)";
     private static final String DELETE_GENRES_QUERY = "DELETE FROM film_genres WHERE film_id = ?";
+    private static final String DELETE_GENRE_QUERY = "DELETE FROM film_genres WHERE film_id = ? AND genre_id = ?";
+
+    // Справочник жанров меняется только скриптом data.sql, поэтому для сборки фильмов названия берутся из памяти;
+    // незнакомый ID перечитывает справочник
+    private volatile Map<Long, String> names = Map.of();
+    // Не монитор: перечитывание ходит в базу, а монитор закрепил бы виртуальный поток за потоком-носителем
+    private final Lock reloadLock = new ReentrantLock();
 
     public GenreRepository(JdbcTemplate jdbc, RowMapper<Genre> genreRowMapper) {
         super(jdbc, genreRowMapper);
     }
 
+    @Transactional(readOnly = true)
     public List<Genre> findAll() {
         return findMany(FIND_ALL_QUERY);
     }
 
+    @Transactional(readOnly = true)
     public Optional<Genre> findById(Long id) {
         return findOne(FIND_BY_ID_QUERY, id);
     }
 
+    public Genre getReference(Long id) {
+        String name = names.get(id);
+        if (name == null) {
+            reloadNames();
+            name = names.get(id);
+        }
+        return new Genre(id, name);
+    }
+
+    @Transactional(readOnly = true)
     public List<Genre> findGenresByFilmId(Long filmId) {
         return findMany(FIND_BY_FILM_QUERY, filmId);
     }
 
+    public Set<Long> findGenreIdsByFilmId(Long filmId) {
+        return new HashSet<>(jdbc.queryForList(FIND_IDS_BY_FILM_QUERY, Long.class, filmId));
+    }
+
     public void addGenresToFilm(Long filmId, Set<Genre> genres) {
         if (genres != null && !genres.isEmpty()) {
-            String sql = "INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)";
-            jdbc.batchUpdate(sql, genres.stream()
-                    .map(genre -> new Object[]{filmId, genre.getId()})
+            addGenreIdsToFilm(filmId, genres.stream().map(Genre::getId).toList());
+        }
+    }
+
+    public void addGenreIdsToFilm(Long filmId, Collection<Long> genreIds) {
+        if (!genreIds.isEmpty()) {
+            jdbc.batchUpdate(INSERT_GENRE_QUERY, genreIds.stream()
+                    .map(genreId -> new Object[]{filmId, genreId})
+                    .toList());
+        }
+    }
+
+    public void removeGenreIdsFromFilm(Long filmId, Collection<Long> genreIds) {
+        if (!genreIds.isEmpty()) {
+            jdbc.batchUpdate(DELETE_GENRE_QUERY, genreIds.stream()
+                    .map(genreId -> new Object[]{filmId, genreId})
                     .toList());
         }
     }
@@ -47,9 +92,24 @@ public class GenreRepository extends BaseRepository<Genre> {
         jdbc.update(DELETE_GENRES_QUERY, filmId);
     }
 
+    private void reloadNames() {
+        reloadLock.lock();
+        try {
+            names = findMany(FIND_ALL_QUERY).stream()
+                    .collect(Collectors.toUnmodifiableMap(Genre::getId, Genre::getName));
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    // Проверка при каждом создании и обновлении фильма отвечает из справочника в памяти, не обращаясь к таблице
     public boolean existsById(Long id) {
-        String sql = "SELECT COUNT(*) FROM genres WHERE id = ?";
-        Integer count = jdbc.queryForObject(sql, Integer.class, id);
-        return (count > 0);
+        if (id == null) {
+            return false;
+        }
+        if (!names.containsKey(id)) {
+            reloadNames();
+        }
+        return names.containsKey(id);
     }
 }
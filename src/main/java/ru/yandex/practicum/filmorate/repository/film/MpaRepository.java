@@ -3,11 +3,15 @@ package ru.yandex.practicum.filmorate.repository.film;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.repository.BaseRepository;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Repository
 public class MpaRepository extends BaseRepository<Mpa> {
@@ -16,22 +20,42 @@ public class MpaRepository extends BaseRepository<Mpa> {
 
     private final JdbcTemplate jdbcTemplate;
 
+    // Справочник рейтингов, как и жанров, меняется только скриптом data.sql; незнакомый ID перечитывает его
+    private volatile Set<Long> ids = Set.of();
+    // Не монитор: перечитывание ходит в базу, а монитор закрепил бы виртуальный поток за потоком-носителем
+    private final Lock reloadLock = new ReentrantLock();
+
     public MpaRepository(JdbcTemplate jdbc, RowMapper<Mpa> mpaRowMapper) {
         super(jdbc, mpaRowMapper);
         jdbcTemplate = jdbc;
     }
 
+    @Transactional(readOnly = true)
     public List<Mpa> findAll() {
         return findMany(FIND_ALL_QUERY);
     }
 
+    @Transactional(readOnly = true)
     public Optional<Mpa> findById(Long id) {
         return findOne(FIND_BY_ID_QUERY, id);
     }
 
     public boolean existsById(Long id) {
-        String sql = "SELECT COUNT(*) FROM mpa WHERE id = ?";
-        Integer count = jdbcTemplate.queryForObject(sql, Integer.class, id);
-        return count > 0;
+        if (id == null) {
+            return false;
+        }
+        if (!ids.contains(id)) {
+            reloadIds();
+        }
+        return ids.contains(id);
+    }
+
+    private void reloadIds() {
+        reloadLock.lock();
+        try {
+            ids = Set.copyOf(jdbcTemplate.queryForList("SELECT id FROM mpa", Long.class));
+        } finally {
+            reloadLock.unlock();
+        }
     }
 }
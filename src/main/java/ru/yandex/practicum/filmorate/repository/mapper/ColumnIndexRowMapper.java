@@ -0,0 +1,85 @@
+package ru.yandex.practicum.filmorate.repository.mapper;
+
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.time.LocalDate;
+
+// Основа мапперов, которые находят номера колонок один раз на запрос, а не ищут колонку по имени в каждой строке.
+// Для каждой колонки задаётся список допустимых имён: берётся первое, которое есть в результате.
+// Маппер — общий бин без состояния; номера колонок хранит маппер одного запроса из forQuery()
+public abstract class ColumnIndexRowMapper<T> implements RowMapper<T> {
+    protected static final int ABSENT = 0;
+
+    private final String[][] labels;
+
+    protected ColumnIndexRowMapper(String[]... labels) {
+        this.labels = labels;
+    }
+
+    // Вызов в обход forQuery() ищет колонки для каждой строки заново
+    @Override
+    public final T mapRow(ResultSet rs, int rowNum) throws SQLException {
+        return mapRow(rs, resolve(rs.getMetaData()));
+    }
+
+    // Маппер для одного запроса: колонки ищутся на первой строке, остальные строки используют найденные номера
+    public RowMapper<T> forQuery() {
+        return new RowMapper<>() {
+            private int[] indexes;
+
+            @Override
+            public T mapRow(ResultSet rs, int rowNum) throws SQLException {
+                if (indexes == null || rowNum == 0) {
+                    indexes = resolve(rs.getMetaData());
+                }
+                return ColumnIndexRowMapper.this.mapRow(rs, indexes);
+            }
+        };
+    }
+
+    protected abstract T mapRow(ResultSet rs, int[] columns) throws SQLException;
+
+    protected static Long getLong(ResultSet rs, int column) throws SQLException {
+        if (column == ABSENT) {
+            return null;
+        }
+        long value = rs.getLong(column);
+        return rs.wasNull() ? null : value;
+    }
+
+    protected static String getString(ResultSet rs, int column) throws SQLException {
+        return column == ABSENT ? null : rs.getString(column);
+    }
+
+    protected static LocalDate getLocalDate(ResultSet rs, int column) throws SQLException {
+        return column == ABSENT ? null : rs.getObject(column, LocalDate.class);
+    }
+
+    private int[] resolve(ResultSetMetaData metaData) throws SQLException {
+        int count = metaData.getColumnCount();
+        String[] present = new String[count];
+        for (int column = 1; column <= count; column++) {
+            present[column - 1] = metaData.getColumnLabel(column);
+        }
+
+        int[] indexes = new int[labels.length];
+        for (int field = 0; field < labels.length; field++) {
+            indexes[field] = find(present, labels[field]);
+        }
+        return indexes;
+    }
+
+    private static int find(String[] present, String[] candidates) {
+        for (String candidate : candidates) {
+            for (int column = 0; column < present.length; column++) {
+                if (candidate.equalsIgnoreCase(present[column])) {
+                    return column + 1;
+                }
+            }
+        }
+        return ABSENT;
+    }
+}
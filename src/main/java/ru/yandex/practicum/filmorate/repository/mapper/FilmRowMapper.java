@@ -1,42 +1,80 @@
 package ru.yandex.practicum.filmorate.repository.mapper;
 
-import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.repository.film.GenreRepository;
 
+import java.sql.Array;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.HashSet;
+import java.util.Set;
 
+// Рейтинг MPA читается здесь же по колонкам mpa_*: у films своя колонка name, поэтому MpaRowMapper не подходит.
+// Жанры приходят в той же строке массивом genre_ids (ARRAY_AGG по film_genres), а названия берутся
+// из справочника жанров, так что отдельный запрос жанров на каждый фильм не нужен
 @Component
-public class FilmRowMapper implements RowMapper<Film> {
+public class FilmRowMapper extends ColumnIndexRowMapper<Film> {
+    private static final int ID = 0;
+    private static final int NAME = 1;
+    private static final int DESCRIPTION = 2;
+    private static final int RELEASE_DATE = 3;
+    private static final int DURATION = 4;
+    private static final int MPA_ID = 5;
+    private static final int MPA_NAME = 6;
+    private static final int MPA_DESCRIPTION = 7;
+    private static final int LIKES_COUNT = 8;
+    private static final int GENRE_IDS = 9;
+    private static final int VERSION = 10;
 
-    private final MpaRowMapper mpaRowMapper;
+    private final GenreRepository genreRepository;
 
-    public FilmRowMapper(MpaRowMapper mpaRowMapper) {
-        this.mpaRowMapper = mpaRowMapper;
+    public FilmRowMapper(GenreRepository genreRepository) {
+        super(new String[]{"id"}, new String[]{"name"}, new String[]{"description"},
+                new String[]{"release_date"}, new String[]{"duration"}, new String[]{"mpa_id"},
+                new String[]{"mpa_name"}, new String[]{"mpa_description"}, new String[]{"likes_count"},
+                new String[]{"genre_ids"}, new String[]{"version"});
+        this.genreRepository = genreRepository;
     }
 
     @Override
-    public Film mapRow(ResultSet rs, int rowNum) throws SQLException {
-        Film film = new Film();
-        film.setId(rs.getLong("id"));
-        film.setName(rs.getString("name"));
-        film.setDescription(rs.getString("description"));
-
-        java.sql.Date releaseDate = rs.getDate("release_date");
-        if (releaseDate != null) {
-            film.setReleaseDate(releaseDate.toLocalDate());
+    protected Film mapRow(ResultSet rs, int[] columns) throws SQLException {
+        Mpa mpa = new Mpa(getLong(rs, columns[MPA_ID]), getString(rs, columns[MPA_NAME]),
+                getString(rs, columns[MPA_DESCRIPTION]));
+        Film film = new Film(
+                rs.getLong(columns[ID]),
+                getString(rs, columns[NAME]),
+                getString(rs, columns[DESCRIPTION]),
+                getLocalDate(rs, columns[RELEASE_DATE]),
+                rs.getLong(columns[DURATION]),
+                mpa
+        );
+        if (columns[LIKES_COUNT] != ABSENT) {
+            film.setLikesCount(rs.getInt(columns[LIKES_COUNT]));
+        }
+        if (columns[VERSION] != ABSENT) {
+            film.setVersion(rs.getLong(columns[VERSION]));
+        }
+        if (columns[GENRE_IDS] != ABSENT) {
+            film.setGenres(genres(rs.getArray(columns[GENRE_IDS])));
         }
-
-        film.setDuration(rs.getLong("duration"));
-
-        Mpa mpa = mpaRowMapper.mapRow(rs, rowNum);
-        film.setMpa(mpa);
-
-        film.setGenres(new HashSet<>());
-
         return film;
     }
+
+    private Set<Genre> genres(Array genreIds) throws SQLException {
+        Set<Genre> genres = new HashSet<>();
+        if (genreIds == null) {
+            return genres;
+        }
+        for (Object id : (Object[]) genreIds.getArray()) {
+            if (id == null) {
+                continue;
+            }
+            Long genreId = ((Number) id).longValue();
+            genres.add(genreRepository.getReference(genreId));
+        }
+        return genres;
+    }
 }
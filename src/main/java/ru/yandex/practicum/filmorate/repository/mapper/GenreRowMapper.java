@@ -1,6 +1,5 @@
 package ru.yandex.practicum.filmorate.repository.mapper;
 
-import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.model.Genre;
 
@@ -8,12 +7,19 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 
 @Component
-public class GenreRowMapper implements RowMapper<Genre> {
+public class GenreRowMapper extends ColumnIndexRowMapper<Genre> {
+    private static final int ID = 0;
+    private static final int NAME = 1;
+
+    public GenreRowMapper() {
+        super(new String[]{"id"}, new String[]{"name"});
+    }
+
     @Override
-    public Genre mapRow(ResultSet rs, int rowNum) throws SQLException {
+    protected Genre mapRow(ResultSet rs, int[] columns) throws SQLException {
         return new Genre(
-                rs.getLong("id"),
-                rs.getString("name")
+                rs.getLong(columns[ID]),
+                getString(rs, columns[NAME])
         );
     }
 }
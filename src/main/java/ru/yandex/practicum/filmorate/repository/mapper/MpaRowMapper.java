@@ -1,44 +1,28 @@
 package ru.yandex.practicum.filmorate.repository.mapper;
 
-import lombok.extern.slf4j.Slf4j;
-import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.model.Mpa;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
 
-@Slf4j
 @Component
-public class MpaRowMapper implements RowMapper<Mpa> {
-    @Override
-    public Mpa mapRow(ResultSet rs, int rowNum) throws SQLException {
-        Mpa mpa = new Mpa();
-
-        try {
-            mpa.setId(rs.getLong("mpa_id"));
-        } catch (SQLException e) {
-            mpa.setId(rs.getLong("id")); // fallback
-        }
-
-        try {
-            mpa.setName(rs.getString("mpa_name"));
-        } catch (SQLException e) {
-            mpa.setName(rs.getString("name")); // fallback
-        }
+public class MpaRowMapper extends ColumnIndexRowMapper<Mpa> {
+    private static final int ID = 0;
+    private static final int NAME = 1;
+    private static final int DESCRIPTION = 2;
 
-        try {
-            String description = rs.getString("mpa_description");
-            if (description != null) {
-                mpa.setDescription(description);
-            } else {
-                mpa.setDescription(rs.getString("description")); // fallback
-            }
-        } catch (SQLException e) {
-            log.warn("Ошибка при получении описания MPA рейтинга из результата запроса", e);
-            mpa.setDescription(null);
-        }
+    public MpaRowMapper() {
+        super(new String[]{"mpa_id", "id"}, new String[]{"mpa_name", "name"},
+                new String[]{"mpa_description", "description"});
+    }
 
-        return mpa;
+    @Override
+    protected Mpa mapRow(ResultSet rs, int[] columns) throws SQLException {
+        return new Mpa(
+                getLong(rs, columns[ID]),
+                getString(rs, columns[NAME]),
+                getString(rs, columns[DESCRIPTION])
+        );
     }
 }
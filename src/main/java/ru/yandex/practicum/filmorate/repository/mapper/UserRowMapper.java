@@ -1,6 +1,5 @@
 package ru.yandex.practicum.filmorate.repository.mapper;
 
-import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.model.User;
 
@@ -8,21 +7,31 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 
 @Component
-public class UserRowMapper implements RowMapper<User> {
+public class UserRowMapper extends ColumnIndexRowMapper<User> {
+    private static final int ID = 0;
+    private static final int EMAIL = 1;
+    private static final int LOGIN = 2;
+    private static final int NAME = 3;
+    private static final int BIRTHDAY = 4;
+    private static final int VERSION = 5;
 
-    @Override
-    public User mapRow(ResultSet rs, int rowNum) throws SQLException {
-        User user = new User();
-        user.setId(rs.getLong("id"));
-        user.setEmail(rs.getString("email"));
-        user.setLogin(rs.getString("login"));
-        user.setName(rs.getString("name"));
+    public UserRowMapper() {
+        super(new String[]{"id"}, new String[]{"email"}, new String[]{"login"}, new String[]{"name"},
+                new String[]{"birthday"}, new String[]{"version"});
+    }
 
-        java.sql.Date birthday = rs.getDate("birthday");
-        if (birthday != null) {
-            user.setBirthday(birthday.toLocalDate());
+    @Override
+    protected User mapRow(ResultSet rs, int[] columns) throws SQLException {
+        User user = new User(
+                rs.getLong(columns[ID]),
+                getString(rs, columns[EMAIL]),
+                getString(rs, columns[LOGIN]),
+                getString(rs, columns[NAME]),
+                getLocalDate(rs, columns[BIRTHDAY])
+        );
+        if (columns[VERSION] != ABSENT) {
+            user.setVersion(rs.getLong(columns[VERSION]));
         }
-
         return user;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,7 @@
+package ru.yandex.practicum.filmorate.repository.outbox;
+
+import ru.yandex.practicum.filmorate.event.DomainEvent;
+
+// Событие, ожидающее повторной доставки одному подписчику; event пуст, если его не удалось прочитать
+public record DeadLetter(long id, String consumer, DomainEvent event, int attempts) {
+}
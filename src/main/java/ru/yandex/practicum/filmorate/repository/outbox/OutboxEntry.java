@@ -0,0 +1,7 @@
+package ru.yandex.practicum.filmorate.repository.outbox;
+
+import ru.yandex.practicum.filmorate.event.DomainEvent;
+
+// Строка outbox; event пуст, если сохранённое событие не удалось прочитать
+public record OutboxEntry(long id, DomainEvent event) {
+}
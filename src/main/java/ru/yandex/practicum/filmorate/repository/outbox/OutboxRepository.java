@@ -0,0 +1,205 @@
+package ru.yandex.practicum.filmorate.repository.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.event.DomainEvent;
+import ru.yandex.practicum.filmorate.exception.InternalServerException;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+@Slf4j
+@Repository
+public class OutboxRepository {
+    private static final String INSERT_QUERY =
+            "INSERT INTO outbox (event_type, payload, created_at) VALUES (?, ?, ?)";
+    private static final String CLAIM_QUERY =
+            "SELECT id, event_type, payload FROM outbox " +
+            "WHERE processed_at IS NULL AND (claimed_until IS NULL OR claimed_until <= ?) " +
+            "ORDER BY id FETCH FIRST ? ROWS ONLY FOR UPDATE SKIP LOCKED";
+    private static final String LEASE_QUERY = "UPDATE outbox SET claimed_until = ? WHERE id = ?";
+    private static final String RELEASE_QUERY =
+            "UPDATE outbox SET claimed_until = NULL WHERE id = ? AND processed_at IS NULL";
+    private static final String MARK_PROCESSED_QUERY = "UPDATE outbox SET processed_at = ? WHERE id = ?";
+    private static final String PRUNE_QUERY = "DELETE FROM outbox WHERE processed_at < ?";
+    private static final String PENDING_COUNT_QUERY = "SELECT COUNT(*) FROM outbox WHERE processed_at IS NULL";
+    private static final String OLDEST_PENDING_QUERY =
+            "SELECT MIN(created_at) FROM outbox WHERE processed_at IS NULL";
+    private static final String DEAD_LETTER_QUERY =
+            "INSERT INTO outbox_dead_letters " +
+            "(outbox_id, consumer, event_type, payload, attempts, last_error, next_attempt_at) " +
+            "SELECT id, ?, event_type, payload, 1, ?, ? FROM outbox WHERE id = ?";
+    private static final String CLAIM_DEAD_LETTERS_QUERY =
+            "SELECT id, event_type, payload, consumer, attempts FROM outbox_dead_letters WHERE next_attempt_at <= ? " +
+            "ORDER BY id FETCH FIRST ? ROWS ONLY FOR UPDATE SKIP LOCKED";
+    private static final String LEASE_DEAD_LETTER_QUERY =
+            "UPDATE outbox_dead_letters SET next_attempt_at = ? WHERE id = ?";
+    private static final String RESCHEDULE_DEAD_LETTER_QUERY =
+            "UPDATE outbox_dead_letters SET attempts = ?, last_error = ?, next_attempt_at = ? WHERE id = ?";
+    private static final String DELETE_DEAD_LETTER_QUERY = "DELETE FROM outbox_dead_letters WHERE id = ?";
+    private static final String DEAD_LETTER_COUNT_QUERY = "SELECT COUNT(*) FROM outbox_dead_letters";
+    private static final String FIND_UNDELIVERED_QUERY =
+            "SELECT id, event_type, payload FROM outbox WHERE processed_at IS NULL AND event_type IN (%1$s) " +
+            "UNION ALL SELECT outbox_id, event_type, payload FROM outbox_dead_letters " +
+            "WHERE consumer = ? AND event_type IN (%1$s)";
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final JdbcTemplate jdbc;
+    private final ObjectMapper json = JsonMapper.builder()
+            .addModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .build();
+
+    public OutboxRepository(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    // Слушатель синхронный: строка пишется в транзакции репозитория, опубликовавшего событие,
+    // и откатывается вместе с ней
+    @EventListener
+    public void onDomainEvent(DomainEvent event) {
+        append(event);
+    }
+
+    public void append(DomainEvent event) {
+        try {
+            jdbc.update(INSERT_QUERY, event.getClass().getName(), json.writeValueAsString(event),
+                    Timestamp.from(Instant.now()));
+        } catch (JsonProcessingException e) {
+            throw new InternalServerException("Не удалось сохранить событие " + event + ": " + e.getMessage());
+        }
+    }
+
+    // Забирает самые старые необработанные строки, которые никто не занял, и занимает их до claimedUntil.
+    // Строки, заблокированные другой транзакцией, пропускаются. Вызывать только внутри транзакции,
+    // а передавать подписчикам уже после её коммита
+    public List<OutboxEntry> claim(int limit, Instant now, Instant claimedUntil) {
+        List<OutboxEntry> entries = jdbc.query(CLAIM_QUERY, this::mapEntry, Timestamp.from(now), limit);
+        Timestamp until = Timestamp.from(claimedUntil);
+        jdbc.batchUpdate(LEASE_QUERY, entries.stream()
+                .map(entry -> new Object[]{until, entry.id()})
+                .toList());
+        return entries;
+    }
+
+    // Возвращает занятые, но не обработанные строки, чтобы их сразу забрала следующая пачка
+    public void release(Collection<Long> ids) {
+        jdbc.batchUpdate(RELEASE_QUERY, ids.stream()
+                .map(id -> new Object[]{id})
+                .toList());
+    }
+
+    public void markProcessed(Collection<Long> ids) {
+        Timestamp now = Timestamp.from(Instant.now());
+        jdbc.batchUpdate(MARK_PROCESSED_QUERY, ids.stream()
+                .map(id -> new Object[]{now, id})
+                .toList());
+    }
+
+    public int pruneProcessedBefore(Instant threshold) {
+        return jdbc.update(PRUNE_QUERY, Timestamp.from(threshold));
+    }
+
+    public long countPending() {
+        Long count = jdbc.queryForObject(PENDING_COUNT_QUERY, Long.class);
+        return count != null ? count : 0;
+    }
+
+    public Instant findOldestPendingCreatedAt() {
+        Timestamp createdAt = jdbc.queryForObject(OLDEST_PENDING_QUERY, Timestamp.class);
+        return createdAt != null ? createdAt.toInstant() : null;
+    }
+
+    // Копирует строку outbox в очередь повторной доставки подписчику consumer
+    public void deadLetter(long outboxId, String consumer, String error, Instant nextAttemptAt) {
+        jdbc.update(DEAD_LETTER_QUERY, consumer, truncate(error), Timestamp.from(nextAttemptAt), outboxId);
+    }
+
+    // Забирает отложенные события, срок повтора которых наступил, и переносит их следующую попытку
+    // на claimedUntil: если повтор не завершится, события вернутся к этому сроку. Вызывать только внутри транзакции
+    public List<DeadLetter> claimDeadLetters(int limit, Instant now, Instant claimedUntil) {
+        List<DeadLetter> letters = jdbc.query(CLAIM_DEAD_LETTERS_QUERY, this::mapDeadLetter, Timestamp.from(now),
+                limit);
+        Timestamp until = Timestamp.from(claimedUntil);
+        jdbc.batchUpdate(LEASE_DEAD_LETTER_QUERY, letters.stream()
+                .map(letter -> new Object[]{until, letter.id()})
+                .toList());
+        return letters;
+    }
+
+    public void rescheduleDeadLetter(long id, int attempts, String error, Instant nextAttemptAt) {
+        jdbc.update(RESCHEDULE_DEAD_LETTER_QUERY, attempts, truncate(error), Timestamp.from(nextAttemptAt), id);
+    }
+
+    public void deleteDeadLetters(Collection<Long> ids) {
+        jdbc.batchUpdate(DELETE_DEAD_LETTER_QUERY, ids.stream()
+                .map(id -> new Object[]{id})
+                .toList());
+    }
+
+    public long countDeadLetters() {
+        Long count = jdbc.queryForObject(DEAD_LETTER_COUNT_QUERY, Long.class);
+        return count != null ? count : 0;
+    }
+
+    // События заданных типов, которые подписчик consumer ещё получит: необработанные строки outbox
+    // и его отложенные события. Непрочитанные события пропускаются
+    public List<DomainEvent> findUndelivered(String consumer, Collection<Class<? extends DomainEvent>> types) {
+        if (types.isEmpty()) {
+            return List.of();
+        }
+        List<String> typeNames = types.stream().map(Class::getName).toList();
+        List<Object> params = new ArrayList<>(typeNames);
+        params.add(consumer);
+        params.addAll(typeNames);
+        String placeholders = String.join(", ", Collections.nCopies(typeNames.size(), "?"));
+        return jdbc.query(FIND_UNDELIVERED_QUERY.formatted(placeholders), this::mapEntry, params.toArray()).stream()
+                .map(OutboxEntry::event)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    private OutboxEntry mapEntry(ResultSet rs, int rowNum) throws SQLException {
+        long id = rs.getLong(1);
+        return new OutboxEntry(id, readEvent("Строка outbox " + id, rs.getString(2), rs.getString(3)));
+    }
+
+    private DeadLetter mapDeadLetter(ResultSet rs, int rowNum) throws SQLException {
+        long id = rs.getLong(1);
+        DomainEvent event = readEvent("Отложенное событие " + id, rs.getString(2), rs.getString(3));
+        return new DeadLetter(id, rs.getString(4), event, rs.getInt(5));
+    }
+
+    private DomainEvent readEvent(String row, String type, String payload) {
+        try {
+            Class<?> eventClass = Class.forName(type);
+            if (DomainEvent.class.isAssignableFrom(eventClass)) {
+                return (DomainEvent) json.readValue(payload, eventClass);
+            }
+            log.error("{}: тип {} не является событием", row, type);
+        } catch (ClassNotFoundException | JsonProcessingException e) {
+            log.error("{}: не удалось прочитать событие {}", row, type, e);
+        }
+        return null;
+    }
+
+    private static String truncate(String error) {
+        return error != null && error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+    }
+}
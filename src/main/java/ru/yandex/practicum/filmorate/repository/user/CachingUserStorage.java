@@ -0,0 +1,170 @@
+package ru.yandex.practicum.filmorate.repository.user;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.yandex.practicum.filmorate.cache.UserCache;
+import ru.yandex.practicum.filmorate.dto.FriendshipChanges;
+import ru.yandex.practicum.filmorate.event.UserCreatedEvent;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.index.IdBitmap;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.repository.UserStorage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+// Чтение пользователя идёт через кэш, включая отрицательные ответы. Существование сначала проверяется
+// по битовой карте ID, и только при отсутствии бита — через кэш и базу
+@Slf4j
+@Repository
+@Primary
+public class CachingUserStorage implements UserStorage {
+    private final UserRepository userRepository;
+    private final UserCache userCache;
+    private final IdBitmap userIds = new IdBitmap();
+
+    public CachingUserStorage(UserRepository userRepository, UserCache userCache) {
+        this.userRepository = userRepository;
+        this.userCache = userCache;
+    }
+
+    @PostConstruct
+    public void loadUserIds() {
+        userRepository.forEachUserId(userIds::add);
+        log.info("Индекс существования пользователей построен: {} ID", userIds.cardinality());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserCreated(UserCreatedEvent event) {
+        userIds.add(event.userId());
+    }
+
+    @Override
+    public List<User> getAllUsers() {
+        return userRepository.getAllUsers();
+    }
+
+    @Override
+    public List<User> getUsersAfter(long afterId, int limit) {
+        return userRepository.getUsersAfter(afterId, limit);
+    }
+
+    @Override
+    public User getUserById(Long userId) {
+        return find(userId)
+                .orElseThrow(() -> new NotFoundException("Пользователь с ID " + userId + " не найден"));
+    }
+
+    @Override
+    public void addUser(User user) {
+        userRepository.addUser(user);
+        userCache.invalidate(user.getId());
+    }
+
+    @Override
+    public void updateUser(User user) {
+        userCache.invalidate(user.getId());
+        userRepository.updateUser(user);
+    }
+
+    @Override
+    public boolean patchUser(User original, User patched) {
+        boolean changed = userRepository.patchUser(original, patched);
+        if (changed) {
+            userCache.invalidate(original.getId());
+        }
+        return changed;
+    }
+
+    @Override
+    public List<User> getFriends(Long userId) {
+        return userRepository.getFriends(userId);
+    }
+
+    @Override
+    public boolean doesUserNotExist(Long id) {
+        if (id != null && userIds.contains(id)) {
+            return false;
+        }
+        if (find(id).isEmpty()) {
+            return true;
+        }
+        // Внутри транзакции строка может оказаться незакоммиченной, поэтому запоминаем только снаружи
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            userIds.add(id);
+        }
+        return false;
+    }
+
+    @Override
+    public Set<Long> findExistingUserIds(Collection<Long> ids) {
+        Set<Long> existing = new HashSet<>();
+        List<Long> unknown = new ArrayList<>();
+        for (Long id : ids) {
+            if (id != null && userIds.contains(id)) {
+                existing.add(id);
+            } else if (id != null) {
+                unknown.add(id);
+            }
+        }
+        if (!unknown.isEmpty()) {
+            Set<Long> found = userRepository.findExistingUserIds(unknown);
+            if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+                found.forEach(userIds::add);
+            }
+            existing.addAll(found);
+        }
+        return existing;
+    }
+
+    @Override
+    public void addFriend(Long userId, Long friendId) {
+        userRepository.addFriend(userId, friendId);
+    }
+
+    @Override
+    public void deleteFriend(Long userId, Long friendId) {
+        userRepository.deleteFriend(userId, friendId);
+    }
+
+    @Override
+    public FriendshipChanges importFriendships(Collection<Friendship> edges) {
+        return userRepository.importFriendships(edges);
+    }
+
+    @Override
+    public List<Long> getFriendIds(Long userId) {
+        return userRepository.getFriendIds(userId);
+    }
+
+    @Override
+    public List<User> getFriendsByUserId(Long userId) {
+        return userRepository.getFriendsByUserId(userId);
+    }
+
+    @Override
+    public List<User> getFriendsAfter(Long userId, long afterId, int limit) {
+        return userRepository.getFriendsAfter(userId, afterId, limit);
+    }
+
+    @Override
+    public List<User> getCommonFriends(Long userId, Long otherId) {
+        return userRepository.getCommonFriends(userId, otherId);
+    }
+
+    private Optional<User> find(Long userId) {
+        if (userId == null) {
+            return Optional.empty();
+        }
+        return userCache.get(userId, userRepository::findById);
+    }
+}
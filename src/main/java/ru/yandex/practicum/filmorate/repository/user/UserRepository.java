@@ -1,30 +1,52 @@
 package ru.yandex.practicum.filmorate.repository.user;
 
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.context.annotation.Primary;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.dto.FriendshipChanges;
+import ru.yandex.practicum.filmorate.event.FriendshipAddedEvent;
+import ru.yandex.practicum.filmorate.event.FriendshipRemovedEvent;
+import ru.yandex.practicum.filmorate.event.UserCreatedEvent;
+import ru.yandex.practicum.filmorate.event.UserUpdatedEvent;
+import ru.yandex.practicum.filmorate.exception.ConflictException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.repository.BaseRepository;
 import ru.yandex.practicum.filmorate.repository.UserStorage;
 import ru.yandex.practicum.filmorate.repository.mapper.UserRowMapper;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.LongConsumer;
 import java.util.stream.Collectors;
 
 @Repository("userRepository")
-@Primary
 @Slf4j
 public class UserRepository extends BaseRepository<User> implements UserStorage {
     private static final String FIND_ALL_QUERY = "SELECT * FROM users";
     private static final String FIND_BY_ID_QUERY = "SELECT * FROM users WHERE id = ?";
+    private static final String FIND_AFTER_QUERY = "SELECT * FROM users WHERE id > ? ORDER BY id LIMIT ?";
+    private static final String FIND_FRIENDS_AFTER_QUERY =
+            "SELECT u.* FROM users u JOIN friendships f ON u.id = f.friend_id " +
+            "WHERE f.user_id = ? AND u.id > ? ORDER BY u.id LIMIT ?";
 
     private static final String INSERT_QUERY = "INSERT INTO users (email, login, name, birthday) VALUES (?, ?, ?, ?)";
     private static final String UPDATE_QUERY =
-            "UPDATE users SET email = ?, login = ?, name = ?, birthday = ? WHERE id = ?";
+            "UPDATE users SET email = ?, login = ?, name = ?, birthday = ?, version = version + 1 WHERE id = ?";
+    private static final String UPDATE_VERSIONED_QUERY = UPDATE_QUERY + " AND version = ?";
+    private static final String FIND_VERSION_QUERY = "SELECT version FROM users WHERE id = ?";
 
     private static final String INSERT_FRIENDSHIP_QUERY =
             "INSERT INTO friendships (user_id, friend_id) VALUES (?, ?)";
@@ -45,9 +67,21 @@ public class UserRepository extends BaseRepository<User> implements UserStorage
 
 
     private static final String EXISTS_QUERY = "SELECT COUNT(*) FROM users WHERE id = ?";
+    private static final String FIND_IDS_QUERY = "SELECT id FROM users";
+    private static final String FIND_EXISTING_IDS_QUERY = "SELECT id FROM users WHERE id IN (%s)";
+    private static final String INSERT_FRIENDSHIP_IF_ABSENT_QUERY =
+            "INSERT INTO friendships (user_id, friend_id) SELECT ?, ? " +
+            "WHERE NOT EXISTS (SELECT 1 FROM friendships WHERE user_id = ? AND friend_id = ?)";
+    private static final String INSERT_FRIEND_REQUEST_IF_ONE_WAY_QUERY =
+            "INSERT INTO friend_requests (sender_id, receiver_id) SELECT ?, ? " +
+            "WHERE NOT EXISTS (SELECT 1 FROM friendships WHERE user_id = ? AND friend_id = ?) " +
+            "AND NOT EXISTS (SELECT 1 FROM friend_requests WHERE sender_id = ? AND receiver_id = ?)";
 
-    public UserRepository(JdbcTemplate jdbc, UserRowMapper userRowMapper) {
+    private final ApplicationEventPublisher events;
+
+    public UserRepository(JdbcTemplate jdbc, UserRowMapper userRowMapper, ApplicationEventPublisher events) {
         super(jdbc, userRowMapper);
+        this.events = events;
     }
 
     @Override
@@ -55,13 +89,23 @@ public class UserRepository extends BaseRepository<User> implements UserStorage
         return findMany(FIND_ALL_QUERY);
     }
 
+    @Override
+    public List<User> getUsersAfter(long afterId, int limit) {
+        return findMany(FIND_AFTER_QUERY, afterId, limit);
+    }
+
     @Override
     public User getUserById(Long userId) {
         return findOne(FIND_BY_ID_QUERY, userId)
                 .orElseThrow(() -> new NotFoundException("Пользователь с ID " + userId + " не найден"));
     }
 
+    public Optional<User> findById(Long userId) {
+        return findOne(FIND_BY_ID_QUERY, userId);
+    }
+
     @Override
+    @Transactional
     public void addUser(User user) {
         long id = insert(INSERT_QUERY,
                 user.getEmail(),
@@ -69,19 +113,66 @@ public class UserRepository extends BaseRepository<User> implements UserStorage
                 user.getName(),
                 user.getBirthday());
         user.setId(id);
+        user.setVersion(0L);
+        events.publishEvent(new UserCreatedEvent(id));
     }
 
     @Override
+    @Transactional
     public void updateUser(User user) {
-        update(UPDATE_QUERY,
-                user.getEmail(),
-                user.getLogin(),
-                user.getName(),
-                user.getBirthday(),
-                user.getId());
+        if (user.getVersion() == null) {
+            update(UPDATE_QUERY,
+                    user.getEmail(),
+                    user.getLogin(),
+                    user.getName(),
+                    user.getBirthday(),
+                    user.getId());
+            user.setVersion(jdbc.queryForObject(FIND_VERSION_QUERY, Long.class, user.getId()));
+        } else {
+            int updated = jdbc.update(UPDATE_VERSIONED_QUERY,
+                    user.getEmail(),
+                    user.getLogin(),
+                    user.getName(),
+                    user.getBirthday(),
+                    user.getId(),
+                    user.getVersion());
+            if (updated == 0) {
+                throw new ConflictException("Пользователь с ID " + user.getId() + " изменён после версии "
+                        + user.getVersion());
+            }
+            user.setVersion(user.getVersion() + 1);
+        }
+        events.publishEvent(new UserUpdatedEvent(user.getId()));
+    }
+
+    // Частичное обновление: в UPDATE попадают только изменённые колонки. Версия сверяется
+    // с patched.getVersion(); если пользователя изменили после неё, бросает ConflictException
+    @Override
+    @Transactional
+    public boolean patchUser(User original, User patched) {
+        Map<String, Object> changes = new LinkedHashMap<>();
+        putIfChanged(changes, "email", original.getEmail(), patched.getEmail());
+        putIfChanged(changes, "login", original.getLogin(), patched.getLogin());
+        putIfChanged(changes, "name", original.getName(), patched.getName());
+        putIfChanged(changes, "birthday", original.getBirthday(), patched.getBirthday());
+        if (changes.isEmpty()) {
+            if (!Objects.equals(original.getVersion(), patched.getVersion())) {
+                throw new ConflictException("Пользователь с ID " + original.getId() + " изменён после версии "
+                        + patched.getVersion());
+            }
+            return false;
+        }
+        if (!updateVersioned("users", original.getId(), patched.getVersion(), changes)) {
+            throw new ConflictException("Пользователь с ID " + original.getId() + " изменён после версии "
+                    + patched.getVersion());
+        }
+        patched.setVersion(patched.getVersion() + 1);
+        events.publishEvent(new UserUpdatedEvent(original.getId()));
+        return true;
     }
 
     @Override
+    @Transactional
     public void addFriend(Long userId, Long friendId) {
         if (userId.equals(friendId)) {
             throw new ValidationException("Нельзя добавить самого себя в друзья");
@@ -100,11 +191,13 @@ public class UserRepository extends BaseRepository<User> implements UserStorage
         if (friendRequestExists(friendId, userId)) {
             jdbc.update(DELETE_FRIEND_REQUEST_QUERY, friendId, userId);
             jdbc.update(INSERT_FRIENDSHIP_QUERY, userId, friendId);
+            events.publishEvent(new FriendshipAddedEvent(userId, friendId));
             return;
         }
 
         jdbc.update(INSERT_FRIEND_REQUEST_QUERY, userId, friendId);
         jdbc.update(INSERT_FRIENDSHIP_QUERY, userId, friendId);
+        events.publishEvent(new FriendshipAddedEvent(userId, friendId));
         log.info("Пользователь {} отправил заявку в друзья пользователю {}", userId, friendId);
     }
 
@@ -119,10 +212,57 @@ public class UserRepository extends BaseRepository<User> implements UserStorage
     }
 
     @Override
+    @Transactional
     public void deleteFriend(Long userId, Long friendId) {
-        jdbc.update(DELETE_FRIENDSHIP_QUERY, userId, friendId);
+        int deleted = jdbc.update(DELETE_FRIENDSHIP_QUERY, userId, friendId);
 
         jdbc.update(DELETE_FRIEND_REQUEST_QUERY, userId, friendId);
+        if (deleted > 0) {
+            events.publishEvent(new FriendshipRemovedEvent(userId, friendId));
+        }
+    }
+
+    // Импорт куска рёбер «пользователь добавил друга» за одну транзакцию с тем же итогом, что addFriend
+    // для каждого ребра: дружба в сторону друга появляется, если её не было; заявка остаётся, только пока нет
+    // встречной дружбы; встречная заявка, ставшая взаимной, удаляется. Встречные рёбра внутри куска
+    // разрешаются в памяти, остальное проверяют условия самих пакетных вставок. Рёбра — без повторов и петель
+    @Override
+    @Transactional
+    public FriendshipChanges importFriendships(Collection<Friendship> edges) {
+        if (edges.isEmpty()) {
+            return FriendshipChanges.NONE;
+        }
+        List<Friendship> ordered = List.copyOf(edges);
+        int[] inserted = jdbc.batchUpdate(INSERT_FRIENDSHIP_IF_ABSENT_QUERY, ordered.stream()
+                .map(edge -> new Object[]{edge.userId(), edge.friendId(), edge.userId(), edge.friendId()})
+                .toList());
+        List<Friendship> created = new ArrayList<>();
+        for (int idx = 0; idx < inserted.length; idx++) {
+            if (inserted[idx] > 0) {
+                created.add(ordered.get(idx));
+            }
+        }
+
+        Set<Friendship> chunk = new HashSet<>(ordered);
+        List<Object[]> requests = created.stream()
+                .filter(edge -> !chunk.contains(edge.reversed()))
+                .map(edge -> new Object[]{edge.userId(), edge.friendId(), edge.friendId(), edge.userId(),
+                        edge.userId(), edge.friendId()})
+                .toList();
+        int requested = sum(jdbc.batchUpdate(INSERT_FRIEND_REQUEST_IF_ONE_WAY_QUERY, requests));
+        int resolved = sum(jdbc.batchUpdate(DELETE_FRIEND_REQUEST_QUERY, created.stream()
+                .map(edge -> new Object[]{edge.friendId(), edge.userId()})
+                .toList()));
+        created.forEach(edge -> events.publishEvent(new FriendshipAddedEvent(edge.userId(), edge.friendId())));
+        return new FriendshipChanges(created.size(), requested, resolved);
+    }
+
+    private static int sum(int[] counts) {
+        int total = 0;
+        for (int count : counts) {
+            total += Math.max(count, 0);
+        }
+        return total;
     }
 
     @Override
@@ -136,12 +276,31 @@ public class UserRepository extends BaseRepository<User> implements UserStorage
                 .collect(Collectors.toList());
     }
 
+    public void forEachUserId(LongConsumer consumer) {
+        jdbc.query(FIND_IDS_QUERY, rs -> {
+            consumer.accept(rs.getLong("id"));
+        });
+    }
+
     @Override
     public boolean doesUserNotExist(Long id) {
         Integer count = jdbc.queryForObject(EXISTS_QUERY, Integer.class, id);
         return count == null || count == 0;
     }
 
+    @Override
+    public Set<Long> findExistingUserIds(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return Set.of();
+        }
+        String placeholders = String.join(", ", Collections.nCopies(userIds.size(), "?"));
+        Set<Long> existing = new HashSet<>();
+        jdbc.query(String.format(FIND_EXISTING_IDS_QUERY, placeholders), rs -> {
+            existing.add(rs.getLong("id"));
+        }, userIds.toArray());
+        return existing;
+    }
+
     @Override
     public List<Long> getFriendIds(Long userId) {
         String sql = "SELECT friend_id FROM friendships WHERE user_id = ?";
@@ -161,6 +320,7 @@ public class UserRepository extends BaseRepository<User> implements UserStorage
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<User> getFriendsByUserId(Long userId) {
         String sql = """
                     SELECT u.*
@@ -173,6 +333,12 @@ public class UserRepository extends BaseRepository<User> implements UserStorage
     }
 
     @Override
+    public List<User> getFriendsAfter(Long userId, long afterId, int limit) {
+        return findMany(FIND_FRIENDS_AFTER_QUERY, userId, afterId, limit);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public List<User> getCommonFriends(Long userId, Long otherId) {
         String sql = """
                     WITH user_friends AS (
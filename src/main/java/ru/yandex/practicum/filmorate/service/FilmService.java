@@ -1,32 +1,65 @@
 package ru.yandex.practicum.filmorate.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.dto.FilmSuggestion;
+import ru.yandex.practicum.filmorate.dto.LikeAction;
+import ru.yandex.practicum.filmorate.dto.LikeOperation;
+import ru.yandex.practicum.filmorate.dto.LikeResult;
+import ru.yandex.practicum.filmorate.dto.LikeStatus;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.FilmTrends;
+import ru.yandex.practicum.filmorate.index.PopularityLeaderboards;
+import ru.yandex.practicum.filmorate.index.SearchField;
+import ru.yandex.practicum.filmorate.index.TitleAutocomplete;
+import ru.yandex.practicum.filmorate.index.TrendingWindow;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
 import ru.yandex.practicum.filmorate.repository.FilmStorage;
 import ru.yandex.practicum.filmorate.repository.UserStorage;
 import ru.yandex.practicum.filmorate.validation.FilmValidator;
 import ru.yandex.practicum.filmorate.validation.LikeValidator;
 
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class FilmService {
     public static final String FILM_NOT_FOUND = "Фильм с ID = %d не найден";
+    public static final int MAX_LIKE_BATCH = 10_000;
+    private static final int LIKE_CHUNK = 500;
 
     private final FilmStorage filmStorage;
     private final UserStorage userStorage;
+    private final FilmSearchIndex filmSearchIndex;
+    private final TitleAutocomplete titleAutocomplete;
+    private final PopularityLeaderboards popularityLeaderboards;
+    private final FilmTrends filmTrends;
+    private final SingleFlight singleFlight;
 
     public Collection<Film> getAllFilms() {
         log.info("Запрос на получение всех фильмов. Текущее количество: {}", filmStorage.getAllFilms().size());
         return filmStorage.getAllFilms();
     }
 
+    // Страница для потоковой выдачи всех фильмов: следующая страница начинается после последнего ID предыдущей
+    public List<Film> getFilmsPage(long afterId, int limit) {
+        return filmStorage.getFilmsByIds(filmStorage.findFilmIdsAfter(afterId, limit));
+    }
+
     public Film createFilm(Film film) {
         log.info("Запрос создания фильма: {}", film);
 
@@ -56,15 +89,50 @@ public class FilmService {
         return film;
     }
 
-    public Film getFilmById(Long filmId) {
-        log.info("Запрос получения фильма по ID: {}", filmId);
+    // Патч накладывается на прочитанный фильм; хранилище пишет только изменившиеся колонки и жанры
+    public Film patchFilm(Long filmId, JsonNode patch, Long expectedVersion) {
+        log.info("Запрос частичного обновления фильма {}: {}", filmId, patch);
+
         if (filmStorage.doesFilmNotExist(filmId)) {
             log.warn((String.format(FILM_NOT_FOUND, filmId)));
             throw new NotFoundException(String.format(FILM_NOT_FOUND, filmId));
         }
+
+        Film original = filmStorage.getFilmById(filmId);
+        Film patched = MergePatch.apply(original, patch, Film.class);
+        if (!filmId.equals(patched.getId())) {
+            throw new ValidationException("ID фильма в теле не совпадает с ID в пути");
+        }
+        if (patched.getGenres() == null) {
+            patched.setGenres(new HashSet<>());
+        }
+        patched.setLikesCount(original.getLikesCount());
+        if (expectedVersion != null) {
+            patched.setVersion(expectedVersion);
+        } else if (patched.getVersion() == null) {
+            patched.setVersion(original.getVersion());
+        }
+        FilmValidator.validateForUpdate(patched);
+
+        if (!filmStorage.patchFilm(original, patched)) {
+            log.info("Фильм с ID: {} не изменился", filmId);
+            return original;
+        }
+        log.info("Фильм с ID: {} успешно обновлен", filmId);
         return filmStorage.getFilmById(filmId);
     }
 
+    public Film getFilmById(Long filmId) {
+        log.info("Запрос получения фильма по ID: {}", filmId);
+        return singleFlight.execute("films.byId", () -> {
+            if (filmStorage.doesFilmNotExist(filmId)) {
+                log.warn((String.format(FILM_NOT_FOUND, filmId)));
+                throw new NotFoundException(String.format(FILM_NOT_FOUND, filmId));
+            }
+            return filmStorage.getFilmById(filmId);
+        }, filmId);
+    }
+
     public Film likeTheFilm(Long filmId, Long userId) {
         log.info("Запрос на лайк фильму = {}, от пользователя = {}", filmId, userId);
         LikeValidator.validate(filmId, userId, userStorage, filmStorage);
@@ -92,10 +160,148 @@ public class FilmService {
         return filmStorage.getFilmById(filmId);
     }
 
+    // Пакетная обработка лайков: ID проверяются разом на кусок пакета, текущие лайки читаются одним запросом,
+    // изменения записываются пакетными вставками и удалениями. Фильмы не перечитываются — на каждую
+    // операцию возвращается только её статус, в том же порядке
+    public List<LikeResult> applyLikes(List<LikeOperation> operations) {
+        if (operations == null || operations.isEmpty()) {
+            throw new ValidationException("Список операций с лайками не может быть пустым");
+        }
+        if (operations.size() > MAX_LIKE_BATCH) {
+            throw new ValidationException("За один запрос можно передать не более " + MAX_LIKE_BATCH + " операций");
+        }
+        log.info("Пакетная обработка лайков: {} операций", operations.size());
+
+        List<LikeResult> results = new ArrayList<>(operations.size());
+        for (int from = 0; from < operations.size(); from += LIKE_CHUNK) {
+            results.addAll(applyLikeChunk(operations.subList(from, Math.min(from + LIKE_CHUNK, operations.size()))));
+        }
+        log.info("Пакет лайков обработан: применено {} из {}",
+                results.stream().filter(result -> result.status() == LikeStatus.APPLIED).count(), results.size());
+        return results;
+    }
+
+    private List<LikeResult> applyLikeChunk(List<LikeOperation> chunk) {
+        Set<Long> filmIds = new HashSet<>();
+        Set<Long> userIds = new HashSet<>();
+        for (LikeOperation operation : chunk) {
+            if (operation != null && operation.filmId() != null && operation.userId() != null) {
+                filmIds.add(operation.filmId());
+                userIds.add(operation.userId());
+            }
+        }
+        Set<Long> existingFilms = filmStorage.findExistingFilmIds(filmIds);
+        Set<Long> existingUsers = userStorage.findExistingUserIds(userIds);
+
+        LikeStatus[] statuses = new LikeStatus[chunk.size()];
+        List<FilmLike> candidates = new ArrayList<>();
+        for (int idx = 0; idx < chunk.size(); idx++) {
+            LikeOperation operation = chunk.get(idx);
+            if (operation == null || operation.filmId() == null || operation.userId() == null
+                    || LikeAction.fromParameter(operation.action()) == null) {
+                statuses[idx] = LikeStatus.INVALID;
+            } else if (!existingUsers.contains(operation.userId())) {
+                statuses[idx] = LikeStatus.USER_NOT_FOUND;
+            } else if (!existingFilms.contains(operation.filmId())) {
+                statuses[idx] = LikeStatus.FILM_NOT_FOUND;
+            } else {
+                candidates.add(new FilmLike(operation.filmId(), operation.userId()));
+            }
+        }
+
+        // Операции одной пары применяются по порядку, в базу уходит только итоговая разница
+        Map<FilmLike, Instant> stored = filmStorage.findLikes(candidates);
+        Map<FilmLike, Boolean> liked = new HashMap<>();
+        for (int idx = 0; idx < chunk.size(); idx++) {
+            if (statuses[idx] != null) {
+                continue;
+            }
+            LikeOperation operation = chunk.get(idx);
+            FilmLike like = new FilmLike(operation.filmId(), operation.userId());
+            boolean likedNow = liked.computeIfAbsent(like, stored::containsKey);
+            if (LikeAction.fromParameter(operation.action()) == LikeAction.LIKE) {
+                statuses[idx] = likedNow ? LikeStatus.ALREADY_LIKED : LikeStatus.APPLIED;
+                liked.put(like, true);
+            } else {
+                statuses[idx] = likedNow ? LikeStatus.APPLIED : LikeStatus.NOT_LIKED;
+                liked.put(like, false);
+            }
+        }
+
+        List<FilmLike> added = new ArrayList<>();
+        Map<FilmLike, Instant> removed = new HashMap<>();
+        liked.forEach((like, likedNow) -> {
+            boolean likedBefore = stored.containsKey(like);
+            if (likedNow && !likedBefore) {
+                added.add(like);
+            } else if (!likedNow && likedBefore) {
+                removed.put(like, stored.get(like));
+            }
+        });
+        if (!added.isEmpty() || !removed.isEmpty()) {
+            filmStorage.applyLikes(added, removed);
+        }
+
+        List<LikeResult> results = new ArrayList<>(chunk.size());
+        for (int idx = 0; idx < chunk.size(); idx++) {
+            LikeOperation operation = chunk.get(idx);
+            results.add(operation == null
+                    ? new LikeResult(null, null, null, statuses[idx])
+                    : new LikeResult(operation.filmId(), operation.userId(), operation.action(), statuses[idx]));
+        }
+        return results;
+    }
+
     public Collection<Film> getPopularFilms(int count) {
         log.info("Запрос на получение {} популярных фильмов", count);
         int limit = count > 0 ? count : 10;
-        return filmStorage.getPopularFilms(limit);
+        return singleFlight.execute("films.popular", () -> filmStorage.getPopularFilms(limit), limit);
+    }
+
+    public Collection<Film> getPopularFilms(int count, Long genreId, Integer year) {
+        if (genreId == null && year == null) {
+            return getPopularFilms(count);
+        }
+
+        log.info("Запрос на получение {} популярных фильмов: жанр = {}, год = {}", count, genreId, year);
+        int limit = count > 0 ? count : 10;
+        return singleFlight.execute("films.popular",
+                () -> filmStorage.getFilmsByIds(popularityLeaderboards.top(genreId, year, limit)),
+                limit, genreId, year);
+    }
+
+    public Collection<Film> getTrendingFilms(String window, int count) {
+        log.info("Запрос на получение {} фильмов в тренде за окно '{}'", count, window);
+        TrendingWindow trendingWindow = TrendingWindow.fromParameter(window);
+        int limit = count > 0 ? count : 10;
+        return singleFlight.execute("films.trending",
+                () -> filmStorage.getFilmsByIds(filmTrends.trending(trendingWindow, limit)), trendingWindow, limit);
+    }
+
+    public Collection<Film> searchFilms(String query, List<String> by, int count) {
+        log.info("Поиск фильмов: запрос = '{}', поля = {}, количество = {}", query, by, count);
+
+        if (query == null || query.isBlank()) {
+            throw new ValidationException("Поисковый запрос не может быть пустым");
+        }
+
+        Set<SearchField> fields = EnumSet.noneOf(SearchField.class);
+        by.forEach(value -> fields.add(SearchField.fromParameter(value)));
+
+        int limit = count > 0 ? count : 10;
+        List<Long> filmIds = filmSearchIndex.search(query, fields, limit);
+        return filmStorage.getFilmsByIds(filmIds);
+    }
+
+    public List<FilmSuggestion> suggestFilms(String prefix, int count) {
+        log.info("Автодополнение названий: префикс = '{}', количество = {}", prefix, count);
+
+        if (prefix == null || prefix.isBlank()) {
+            throw new ValidationException("Префикс для автодополнения не может быть пустым");
+        }
+
+        int limit = count > 0 ? count : 10;
+        return titleAutocomplete.suggest(prefix, limit);
     }
 
     public boolean isLikeExists(Long filmId, Long userId) {
@@ -0,0 +1,37 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+import java.io.IOException;
+
+// JSON Merge Patch (RFC 7396) поверх копии сущности: поля, которых нет в патче, не меняются, null сбрасывает
+// значение, вложенные объекты и списки заменяются целиком
+final class MergePatch {
+    private static final ObjectMapper JSON = JsonMapper.builder()
+            .addModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+
+    private MergePatch() {
+    }
+
+    static <T> T apply(T original, JsonNode patch, Class<T> type) {
+        if (patch == null || !patch.isObject()) {
+            throw new ValidationException("Тело PATCH должно быть JSON-объектом");
+        }
+        try {
+            T copy = JSON.convertValue(original, type);
+            return JSON.readerForUpdating(copy).readValue(patch);
+        } catch (JsonProcessingException e) {
+            throw new ValidationException("Некорректное тело PATCH: " + e.getOriginalMessage());
+        } catch (IOException | IllegalArgumentException e) {
+            throw new ValidationException("Некорректное тело PATCH: " + e.getMessage());
+        }
+    }
+}
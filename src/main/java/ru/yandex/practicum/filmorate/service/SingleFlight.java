@@ -0,0 +1,164 @@
+package ru.yandex.practicum.filmorate.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.yandex.practicum.filmorate.config.ReadYourWritesContext;
+import ru.yandex.practicum.filmorate.event.DomainEvent;
+import ru.yandex.practicum.filmorate.exception.InternalServerException;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// Склейка одинаковых одновременных чтений: пока запрос с тем же методом и аргументами выполняется,
+// остальные ждут его результата (или его исключения) вместо собственного похода в хранилище.
+// Результат общий для всех дождавшихся, поэтому вызывающие не должны его менять.
+// Дождаться можно не дольше timeout, потом запрос выполняется сам. Чтение, начатое до последнего коммита
+// изменений, к новым запросам не присоединяется: оно могло не увидеть запись, после которой пришёл запрос.
+// Запросы, привязанные к основной базе после записи, не склеиваются вовсе
+@Slf4j
+@Component
+public class SingleFlight implements MeterBinder {
+    private final Duration timeout;
+    private final ConcurrentHashMap<Key, Flight> inFlight = new ConcurrentHashMap<>();
+    // Число закоммиченных изменений; растёт до того, как записавший получит ответ
+    private final AtomicLong commits = new AtomicLong();
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder shared = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder bypassed = new LongAdder();
+
+    public SingleFlight(@Value("${filmorate.single-flight.timeout:2s}") Duration timeout) {
+        this.timeout = timeout;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String operation, Supplier<T> call, Object... args) {
+        if (ReadYourWritesContext.isPinnedToPrimary()) {
+            bypassed.increment();
+            return call.get();
+        }
+
+        Key key = new Key(operation, Arrays.asList(args));
+        Flight own = new Flight(commits.get(), new CompletableFuture<>());
+        Flight running = inFlight.putIfAbsent(key, own);
+        if (running == null) {
+            return lead(key, own, call);
+        }
+        if (running.commits() < own.commits()) {
+            // Идущее чтение началось до чьей-то записи: новые запросы склеиваются уже со свежим
+            if (inFlight.replace(key, running, own)) {
+                return lead(key, own, call);
+            }
+            executed.increment();
+            return call.get();
+        }
+
+        try {
+            T result = (T) running.result().get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            shared.increment();
+            return result;
+        } catch (TimeoutException e) {
+            timedOut.increment();
+            log.warn("Не дождались общего запроса {} за {} мс, выполняем отдельно", key, timeout.toMillis());
+            executed.increment();
+            return call.get();
+        } catch (ExecutionException e) {
+            shared.increment();
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw new InternalServerException("Общий запрос " + key + " завершился ошибкой: " + e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InternalServerException("Ожидание общего запроса " + key + " прервано");
+        }
+    }
+
+    // Вызывается после коммита, поэтому запрос, пришедший после ответа на запись, уже видит новый счётчик
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCommitted(DomainEvent event) {
+        commits.incrementAndGet();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("filmorate.single-flight.calls", executed, LongAdder::sum)
+                .description("Запросы, которые сами сходили в хранилище")
+                .tag("result", "executed")
+                .register(registry);
+        FunctionCounter.builder("filmorate.single-flight.calls", shared, LongAdder::sum)
+                .description("Запросы, получившие результат чужого одинакового запроса")
+                .tag("result", "shared")
+                .register(registry);
+        FunctionCounter.builder("filmorate.single-flight.calls", timedOut, LongAdder::sum)
+                .description("Запросы, не дождавшиеся общего результата за отведённое время")
+                .tag("result", "timeout")
+                .register(registry);
+        FunctionCounter.builder("filmorate.single-flight.calls", bypassed, LongAdder::sum)
+                .description("Запросы после записи, выполненные без склейки")
+                .tag("result", "bypassed")
+                .register(registry);
+        Gauge.builder("filmorate.single-flight.dedup.ratio", this, SingleFlight::dedupRatio)
+                .description("Доля запросов, обслуженных чужим результатом")
+                .register(registry);
+        Gauge.builder("filmorate.single-flight.in-flight", inFlight, ConcurrentHashMap::size)
+                .register(registry);
+    }
+
+    double dedupRatio() {
+        long sharedCount = shared.sum();
+        long total = sharedCount + executed.sum() + bypassed.sum();
+        return total == 0 ? 0 : (double) sharedCount / total;
+    }
+
+    int inFlightCount() {
+        return inFlight.size();
+    }
+
+    // Ожидающий get() регистрируется в future как зависимое завершение
+    int waitingCount() {
+        return inFlight.values().stream().mapToInt(flight -> flight.result().getNumberOfDependents()).sum();
+    }
+
+    // Ключ убирается до публикации результата: кто придёт после завершения чтения,
+    // запустит новое, а не получит уже готовый старый результат
+    private <T> T lead(Key key, Flight own, Supplier<T> call) {
+        executed.increment();
+        T result;
+        try {
+            result = call.get();
+        } catch (RuntimeException | Error e) {
+            inFlight.remove(key, own);
+            own.result().completeExceptionally(e);
+            throw e;
+        }
+        inFlight.remove(key, own);
+        own.result().complete(result);
+        return result;
+    }
+
+    private record Key(String operation, List<Object> args) {
+    }
+
+    // Идущее чтение и число коммитов на момент его начала
+    private record Flight(long commits, CompletableFuture<Object> result) {
+    }
+}
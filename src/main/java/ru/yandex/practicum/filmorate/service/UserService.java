@@ -1,29 +1,43 @@
 package ru.yandex.practicum.filmorate.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.web.bind.annotation.RequestBody;
+import ru.yandex.practicum.filmorate.dto.FriendshipChanges;
+import ru.yandex.practicum.filmorate.dto.FriendshipImportResult;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.repository.UserStorage;
 import ru.yandex.practicum.filmorate.validation.FriendshipValidator;
 import ru.yandex.practicum.filmorate.validation.UserValidator;
 
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class UserService {
+    public static final int MAX_FRIENDSHIP_IMPORT = 5_000_000;
+    private static final int FRIENDSHIP_IMPORT_CHUNK = 5_000;
+
     private final UserStorage userStorage;
+    private final SingleFlight singleFlight;
 
     public List<User> getAllUsers() {
         log.info("Запрос на получение всех пользователей. Текущее количество: {}", userStorage.getAllUsers().size());
         return userStorage.getAllUsers();
     }
 
+    // Страница для потоковой выдачи всех пользователей: следующая начинается после последнего ID предыдущей
+    public List<User> getUsersPage(long afterId, int limit) {
+        return userStorage.getUsersAfter(afterId, limit);
+    }
+
     public User createUser(User user) {
         log.info("Запрос создания пользователя: {}", user);
 
@@ -56,13 +70,41 @@ public class UserService {
         return user;
     }
 
-    public User getUserById(Long userId) {
-        log.info("Запрос получения пользователя с ID = {}", userId);
+    public User patchUser(Long userId, JsonNode patch, Long expectedVersion) {
+        log.info("Запрос частичного обновления пользователя {}: {}", userId, patch);
 
         if (userStorage.doesUserNotExist(userId)) {
-            throw  new NotFoundException(String.format("Пользователь с ID %d не найден", userId));
+            log.warn("Пользователь с ID {} не найден", userId);
+            throw new NotFoundException(String.format("Пользователь с ID %d не найден", userId));
+        }
+
+        User original = userStorage.getUserById(userId);
+        User patched = MergePatch.apply(original, patch, User.class);
+        if (!userId.equals(patched.getId())) {
+            throw new ValidationException("ID пользователя в теле не совпадает с ID в пути");
+        }
+        if (expectedVersion != null) {
+            patched.setVersion(expectedVersion);
+        } else if (patched.getVersion() == null) {
+            patched.setVersion(original.getVersion());
+        }
+        UserValidator.validate(patched);
+
+        if (userStorage.patchUser(original, patched)) {
+            log.info("Пользователь с ID: {} успешно обновлен", userId);
         }
-        return userStorage.getUserById(userId);
+        return patched;
+    }
+
+    public User getUserById(Long userId) {
+        log.info("Запрос получения пользователя с ID = {}", userId);
+
+        return singleFlight.execute("users.byId", () -> {
+            if (userStorage.doesUserNotExist(userId)) {
+                throw new NotFoundException(String.format("Пользователь с ID %d не найден", userId));
+            }
+            return userStorage.getUserById(userId);
+        }, userId);
     }
 
     public User addFriend(Long userId, Long friendId) {
@@ -87,22 +129,89 @@ public class UserService {
         return user;
     }
 
+    // Массовый импорт дружб из другой системы. Повторы и петли отсекаются в памяти, пользователи проверяются
+    // разом на кусок, рёбра пишутся пакетами по куску в отдельной транзакции. Рёбра сортируются по паре
+    // пользователей, чтобы встречные заявки попадали в один кусок
+    public FriendshipImportResult importFriendships(List<Friendship> edges) {
+        if (edges == null || edges.isEmpty()) {
+            throw new ValidationException("Список дружб для импорта не может быть пустым");
+        }
+        if (edges.size() > MAX_FRIENDSHIP_IMPORT) {
+            throw new ValidationException("За один импорт можно передать не более " + MAX_FRIENDSHIP_IMPORT + " дружб");
+        }
+        log.info("Импорт дружб: получено {} рёбер", edges.size());
+        long startedAt = System.nanoTime();
+
+        Set<Friendship> unique = new HashSet<>(edges.size() * 2);
+        int invalid = 0;
+        for (Friendship edge : edges) {
+            if (edge == null || edge.userId() == null || edge.friendId() == null
+                    || edge.userId().equals(edge.friendId())) {
+                invalid++;
+            } else {
+                unique.add(edge);
+            }
+        }
+        int duplicates = edges.size() - invalid - unique.size();
+
+        List<Friendship> sorted = new ArrayList<>(unique);
+        sorted.sort(Comparator.comparingLong((Friendship edge) -> Math.min(edge.userId(), edge.friendId()))
+                .thenComparingLong(edge -> Math.max(edge.userId(), edge.friendId()))
+                .thenComparingLong(Friendship::userId));
+
+        int unknownUsers = 0;
+        FriendshipChanges changes = FriendshipChanges.NONE;
+        for (int from = 0; from < sorted.size(); from += FRIENDSHIP_IMPORT_CHUNK) {
+            List<Friendship> chunk = sorted.subList(from, Math.min(from + FRIENDSHIP_IMPORT_CHUNK, sorted.size()));
+            Set<Long> userIds = new HashSet<>();
+            chunk.forEach(edge -> {
+                userIds.add(edge.userId());
+                userIds.add(edge.friendId());
+            });
+            Set<Long> existing = userStorage.findExistingUserIds(userIds);
+            List<Friendship> known = chunk.stream()
+                    .filter(edge -> existing.contains(edge.userId()) && existing.contains(edge.friendId()))
+                    .toList();
+            unknownUsers += chunk.size() - known.size();
+            changes = changes.plus(userStorage.importFriendships(known));
+        }
+
+        long elapsedNanos = System.nanoTime() - startedAt;
+        long edgesPerSecond = edges.size() * TimeUnit.SECONDS.toNanos(1) / Math.max(elapsedNanos, 1);
+        FriendshipImportResult result = new FriendshipImportResult(edges.size(), duplicates, invalid, unknownUsers,
+                changes.friendshipsCreated(), changes.requestsCreated(), changes.requestsResolved(),
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos), edgesPerSecond);
+        log.info("Импорт дружб завершён: {}", result);
+        return result;
+    }
+
     public List<User> getFriendsByUserId(Long userId) {
         log.info("Запрос получения друзей по ID пользователя = {}", userId);
 
+        return singleFlight.execute("users.friends", () -> {
+            if (userStorage.doesUserNotExist(userId)) {
+                throw new NotFoundException(String.format("Пользователь с ID %d не найден", userId));
+            }
+            return userStorage.getFriendsByUserId(userId);
+        }, userId);
+    }
+
+    // Страница друзей для потоковой выдачи; отсутствие пользователя проверяется на каждой странице,
+    // поэтому первая страница, прочитанная до начала ответа, превращает его в 404
+    public List<User> getFriendsPage(Long userId, long afterId, int limit) {
         if (userStorage.doesUserNotExist(userId)) {
             throw new NotFoundException(String.format("Пользователь с ID %d не найден", userId));
         }
-
-        return userStorage.getFriendsByUserId(userId);
+        return userStorage.getFriendsAfter(userId, afterId, limit);
     }
 
     public List<User> getCommonFriends(Long userId, Long otherId) {
         log.info("Запрос общих друзей пользователей {} и {}", userId, otherId);
 
-        FriendshipValidator.validate(userId, otherId, userStorage);
-
-        return userStorage.getCommonFriends(userId, otherId);
+        return singleFlight.execute("users.commonFriends", () -> {
+            FriendshipValidator.validate(userId, otherId, userStorage);
+            return userStorage.getCommonFriends(userId, otherId);
+        }, userId, otherId);
     }
 }
 
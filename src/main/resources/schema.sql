@@ -38,6 +38,23 @@ CREATE TABLE IF NOT EXISTS film_likes (
     PRIMARY KEY (film_id, user_id)
 );
 
+-- Число лайков хранится в самом фильме и меняется в той же транзакции, что и film_likes,
+-- поэтому списки фильмов отдают его без подсчёта по film_likes. При изменении схемы счётчик пересчитывается
+ALTER TABLE films ADD COLUMN IF NOT EXISTS likes_count INT DEFAULT 0 NOT NULL;
+
+UPDATE films f SET likes_count = (SELECT COUNT(*) FROM film_likes l WHERE l.film_id = f.id);
+
+CREATE INDEX IF NOT EXISTS films_likes_count_idx ON films (likes_count DESC, id);
+
+-- Версия строки растёт при каждой правке фильма или пользователя: обновление с ожидаемой версией проходит,
+-- только если строку никто не изменил после чтения. Лайки и дружба версию не меняют
+ALTER TABLE films ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0 NOT NULL;
+
+ALTER TABLE users ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0 NOT NULL;
+
+-- Время лайка нужно для трендов; у лайков, поставленных до появления колонки, оно остаётся пустым
+ALTER TABLE film_likes ADD COLUMN IF NOT EXISTS liked_at TIMESTAMP;
+
 CREATE TABLE IF NOT EXISTS friendships (
     user_id BIGINT REFERENCES users(id) ON DELETE CASCADE,
     friend_id BIGINT REFERENCES users(id) ON DELETE CASCADE,
@@ -48,4 +65,34 @@ CREATE TABLE IF NOT EXISTS friend_requests (
     sender_id BIGINT REFERENCES users(id) ON DELETE CASCADE,
     receiver_id BIGINT REFERENCES users(id) ON DELETE CASCADE,
     PRIMARY KEY (sender_id, receiver_id)
-);
\ No newline at end of file
+);
+-- Исходящие события пишутся в той же транзакции, что и изменения данных, и после коммита
+-- передаются подписчикам шины; обработанные строки через некоторое время удаляются
+CREATE TABLE IF NOT EXISTS outbox (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    event_type VARCHAR(255) NOT NULL,
+    payload VARCHAR(1000000) NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    processed_at TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS outbox_processed_at_idx ON outbox (processed_at);
+
+-- Передача забирает пачку на срок claimed_until и передаёт её подписчикам вне транзакции. Если она упала,
+-- не пометив строки обработанными, после этого срока их заберёт следующая
+ALTER TABLE outbox ADD COLUMN IF NOT EXISTS claimed_until TIMESTAMP;
+
+-- Событие, которое подписчик не обработал за все попытки, откладывается сюда с копией данных и повторно
+-- доставляется только ему; строка удаляется, когда подписчик наконец обработает событие
+CREATE TABLE IF NOT EXISTS outbox_dead_letters (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    outbox_id BIGINT NOT NULL,
+    consumer VARCHAR(255) NOT NULL,
+    event_type VARCHAR(255) NOT NULL,
+    payload VARCHAR(1000000) NOT NULL,
+    attempts INT NOT NULL,
+    last_error VARCHAR(1000),
+    next_attempt_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS outbox_dead_letters_next_attempt_at_idx ON outbox_dead_letters (next_attempt_at);
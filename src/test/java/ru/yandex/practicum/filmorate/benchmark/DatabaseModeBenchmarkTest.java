@@ -0,0 +1,83 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.repository.FilmStorage;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@Slf4j
+@Tag("benchmark")
+class DatabaseModeBenchmarkTest {
+    private static final int OPERATIONS = 5_000;
+
+    @TempDir
+    private Path dbDir;
+
+    @Test
+    @DisplayName("Время старта и пропускная способность: in-memory против файловой базы")
+    void compareMemoryAndFileModes() {
+        report("mem", run("spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1"));
+
+        String dbPath = "filmorate.db.path=" + dbDir.resolve("filmorate");
+        report("file, первый старт", run(dbPath, "spring.profiles.active=file"));
+        report("file, повторный старт", run(dbPath, "spring.profiles.active=file"));
+    }
+
+    private Result run(String... properties) {
+        long startedAt = System.nanoTime();
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(FilmorateApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("logging.level.root=WARN", "logging.level.ru.yandex.practicum.filmorate.config=INFO")
+                .properties(properties)
+                .run()) {
+            long startupMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+            FilmStorage filmStorage = context.getBean(FilmStorage.class);
+
+            List<Long> ids = new ArrayList<>(OPERATIONS);
+            long writeStartedAt = System.nanoTime();
+            for (int i = 0; i < OPERATIONS; i++) {
+                Film film = new Film(null, "Фильм " + i, "Описание " + i,
+                        LocalDate.of(2000, 1, 1), 120L, new Mpa(1L, null, null));
+                filmStorage.addFilm(film);
+                ids.add(film.getId());
+            }
+            long writeNanos = System.nanoTime() - writeStartedAt;
+
+            long readStartedAt = System.nanoTime();
+            for (Long id : ids) {
+                assertEquals(id, filmStorage.getFilmById(id).getId());
+            }
+            long readNanos = System.nanoTime() - readStartedAt;
+
+            return new Result(startupMillis, opsPerSecond(writeNanos), opsPerSecond(readNanos));
+        }
+    }
+
+    private static long opsPerSecond(long nanos) {
+        return OPERATIONS * TimeUnit.SECONDS.toNanos(1) / Math.max(nanos, 1);
+    }
+
+    private static void report(String mode, Result result) {
+        log.warn("[{}] старт: {} мс, запись: {} оп/с, чтение по ID: {} оп/с",
+                mode, result.startupMillis(), result.writesPerSecond(), result.readsPerSecond());
+    }
+
+    private record Result(long startupMillis, long writesPerSecond, long readsPerSecond) {
+    }
+}
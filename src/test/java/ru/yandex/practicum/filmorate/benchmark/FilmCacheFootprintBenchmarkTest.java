@@ -0,0 +1,74 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.cache.FilmCache;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@Slf4j
+@Tag("benchmark")
+class FilmCacheFootprintBenchmarkTest {
+    private static final int FILMS = 1_000_000;
+    private static final String[] GENRES = {"Комедия", "Драма", "Мультфильм", "Триллер", "Документальный", "Боевик"};
+    private static final String[] RATINGS = {"G", "PG", "PG-13", "R", "NC-17"};
+
+    @Test
+    @DisplayName("Память кэша на миллион фильмов: объекты Film против компактного представления")
+    void compareHeapFootprint() {
+        long baseline = usedHeap();
+        Cache<Long, Film> plain = Caffeine.newBuilder().maximumSize(FILMS).build();
+        for (long filmId = 1; filmId <= FILMS; filmId++) {
+            plain.put(filmId, film(filmId));
+        }
+        long plainBytes = usedHeap() - baseline;
+        assertEquals(FILMS, plain.estimatedSize());
+        plain.invalidateAll();
+        plain.cleanUp();
+        plain = null;
+
+        baseline = usedHeap();
+        FilmCache compact = new FilmCache(Long.MAX_VALUE, 0);
+        for (long filmId = 1; filmId <= FILMS; filmId++) {
+            compact.get(filmId, FilmCacheFootprintBenchmarkTest::film);
+        }
+        long compactBytes = usedHeap() - baseline;
+        assertEquals("Фильм 42", compact.get(42L, FilmCacheFootprintBenchmarkTest::film).getName());
+
+        log.warn("[Film] {} МБ, {} байт на фильм", plainBytes >> 20, plainBytes / FILMS);
+        log.warn("[CompactFilm] {} МБ, {} байт на фильм", compactBytes >> 20, compactBytes / FILMS);
+    }
+
+    // Фильм в том виде, в каком его собирает FilmRepository: свои Mpa и Genre у каждого экземпляра
+    private static Film film(Long filmId) {
+        int seed = filmId.intValue();
+        Set<Genre> genres = new HashSet<>();
+        for (int genre = 0; genre < 1 + seed % 3; genre++) {
+            int genreId = (seed + genre * 2) % GENRES.length;
+            genres.add(new Genre((long) genreId + 1, new String(GENRES[genreId])));
+        }
+        int ratingId = seed % RATINGS.length;
+        return new Film(filmId, "Фильм " + filmId, "Описание фильма " + filmId,
+                LocalDate.of(1950 + seed % 70, 1 + seed % 12, 1 + seed % 28), 60L + seed % 120,
+                new Mpa((long) ratingId + 1, new String(RATINGS[ratingId]), null), genres, seed % 50, 0L);
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
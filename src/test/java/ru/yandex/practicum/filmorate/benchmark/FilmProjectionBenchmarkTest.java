@@ -0,0 +1,141 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.repository.film.GenreRepository;
+import ru.yandex.practicum.filmorate.repository.mapper.FilmRowMapper;
+import ru.yandex.practicum.filmorate.repository.mapper.GenreRowMapper;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@Slf4j
+@Tag("benchmark")
+class FilmProjectionBenchmarkTest {
+    private static final int FILMS = 100_000;
+    private static final int ROUNDS = 5;
+    private static final String FILMS_QUERY =
+            "SELECT f.*, m.id as mpa_id, m.name as mpa_name FROM films f JOIN mpa m ON f.mpa_id = m.id";
+    private static final String GENRES_QUERY =
+            "SELECT g.* FROM genres g JOIN film_genres fg ON g.id = fg.genre_id WHERE fg.film_id = ? ORDER BY g.id";
+    private static final String JOIN_QUERY =
+            "SELECT f.*, m.id as mpa_id, m.name as mpa_name, g.id AS genre_id, g.name AS genre_name " +
+            "FROM films f JOIN mpa m ON f.mpa_id = m.id " +
+            "LEFT JOIN film_genres fg ON fg.film_id = f.id LEFT JOIN genres g ON g.id = fg.genre_id " +
+            "ORDER BY f.id";
+    private static final String GROUP_BY_QUERY =
+            "SELECT f.id, f.name, f.description, f.release_date, f.duration, f.likes_count, " +
+            "m.id as mpa_id, m.name as mpa_name, ARRAY_AGG(fg.genre_id ORDER BY fg.genre_id) " +
+            "FILTER (WHERE fg.genre_id IS NOT NULL) AS genre_ids " +
+            "FROM films f JOIN mpa m ON f.mpa_id = m.id LEFT JOIN film_genres fg ON fg.film_id = f.id " +
+            "GROUP BY f.id, f.name, f.description, f.release_date, f.duration, f.likes_count, m.id, m.name";
+    private static final String PROJECTION_QUERY =
+            "SELECT f.*, m.id as mpa_id, m.name as mpa_name, " +
+            "(SELECT ARRAY_AGG(fg.genre_id ORDER BY fg.genre_id) FROM film_genres fg WHERE fg.film_id = f.id) " +
+            "AS genre_ids FROM films f JOIN mpa m ON f.mpa_id = m.id";
+
+    private EmbeddedDatabase database;
+    private long genreLinks;
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    @DisplayName("Список из 100 тысяч фильмов с жанрами: запрос жанров на фильм, JOIN, GROUP BY, ARRAY_AGG в подзапросе")
+    void compareGenreLoading() {
+        JdbcTemplate jdbc = populate();
+        GenreRowMapper genreMapper = new GenreRowMapper();
+        FilmRowMapper filmMapper = new FilmRowMapper(new GenreRepository(jdbc, genreMapper));
+
+        for (int round = 0; round <= ROUNDS; round++) {
+            // Нулевой круг — прогрев
+            long perFilm = measure(() -> {
+                List<Film> films = jdbc.query(FILMS_QUERY, filmMapper.forQuery());
+                films.forEach(film -> film.setGenres(new HashSet<>(jdbc.query(GENRES_QUERY, genreMapper.forQuery(),
+                        film.getId()))));
+                return films;
+            });
+            long join = measure(() -> joinAndGroup(jdbc, filmMapper.forQuery()));
+            long groupBy = measure(() -> jdbc.query(GROUP_BY_QUERY, filmMapper.forQuery()));
+            long projection = measure(() -> jdbc.query(PROJECTION_QUERY, filmMapper.forQuery()));
+            if (round > 0) {
+                log.warn("[круг {}] запрос на фильм: {} мс, JOIN: {} мс, GROUP BY: {} мс, ARRAY_AGG в подзапросе: {} мс",
+                        round, perFilm, join, groupBy, projection);
+            }
+        }
+    }
+
+    // Одна строка на пару фильм-жанр, строки одного фильма идут подряд и склеиваются в Java
+    private List<Film> joinAndGroup(JdbcTemplate jdbc, RowMapper<Film> mapper) {
+        Map<Long, Film> films = new LinkedHashMap<>();
+        jdbc.query(JOIN_QUERY, rs -> {
+            Film film = films.get(rs.getLong("id"));
+            if (film == null) {
+                film = mapper.mapRow(rs, films.size());
+                films.put(film.getId(), film);
+            }
+            long genreId = rs.getLong("genre_id");
+            if (!rs.wasNull()) {
+                film.addGenre(new Genre(genreId, rs.getString("genre_name")));
+            }
+        });
+        return new ArrayList<>(films.values());
+    }
+
+    private long measure(Supplier<List<Film>> listing) {
+        long startedAt = System.nanoTime();
+        List<Film> films = listing.get();
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+        assertEquals(FILMS, films.size());
+        assertEquals(genreLinks, films.stream().mapToLong(film -> film.getGenres().size()).sum());
+        assertEquals(films.size(), films.stream()
+                .filter(film -> film.getGenres().stream().allMatch(genre -> genre.getName() != null))
+                .count());
+        return millis;
+    }
+
+    private JdbcTemplate populate() {
+        database = new EmbeddedDatabaseBuilder()
+                .generateUniqueName(true)
+                .setType(EmbeddedDatabaseType.H2)
+                .addScripts("schema.sql", "data.sql")
+                .build();
+        JdbcTemplate jdbc = new JdbcTemplate(database);
+
+        List<Object[]> films = new ArrayList<>(FILMS);
+        List<Object[]> genres = new ArrayList<>();
+        for (int i = 1; i <= FILMS; i++) {
+            films.add(new Object[]{i, "Фильм " + i, "Описание фильма " + i, LocalDate.of(1950 + i % 70, 1, 1),
+                    60 + i % 120, 1 + i % 5});
+            // От нуля до трёх жанров на фильм
+            for (int genre = 0; genre < i % 4; genre++) {
+                genres.add(new Object[]{i, 1 + (i + genre * 2) % 6});
+            }
+        }
+        jdbc.batchUpdate("INSERT INTO films (id, name, description, release_date, duration, mpa_id) "
+                + "VALUES (?, ?, ?, ?, ?, ?)", films);
+        jdbc.batchUpdate("INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)", genres);
+        genreLinks = genres.size();
+        return jdbc;
+    }
+}
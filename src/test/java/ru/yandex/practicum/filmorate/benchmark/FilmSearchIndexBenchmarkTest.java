@@ -0,0 +1,83 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.index.FilmLikeCounts;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.SearchField;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Tag("benchmark")
+class FilmSearchIndexBenchmarkTest {
+    private static final int FILMS = Integer.getInteger("benchmark.films", 1_000_000);
+    private static final int VOCABULARY = 50_000;
+    private static final int QUERIES = 10_000;
+    private static final Set<SearchField> ALL_FIELDS = EnumSet.allOf(SearchField.class);
+
+    @Test
+    @DisplayName("Латентность поиска по индексу на миллионе фильмов")
+    void searchLatency() {
+        Random random = new Random(42);
+        String[] words = vocabulary(random);
+        FilmSearchIndex index = new FilmSearchIndex(null, new FilmLikeCounts(null));
+
+        long buildStartedAt = System.nanoTime();
+        for (long filmId = 1; filmId <= FILMS; filmId++) {
+            index.index(filmId, text(words, random, 3), text(words, random, 12));
+        }
+        long buildMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - buildStartedAt);
+
+        // Прогрев: JIT и списки чемпионов для частых термов строятся до замеров
+        for (int idx = 0; idx < QUERIES; idx++) {
+            index.search(text(words, random, 2), ALL_FIELDS, 10);
+        }
+
+        long[] latencies = new long[QUERIES];
+        for (int idx = 0; idx < QUERIES; idx++) {
+            String query = text(words, random, 2);
+            long startedAt = System.nanoTime();
+            index.search(query, ALL_FIELDS, 10);
+            latencies[idx] = System.nanoTime() - startedAt;
+        }
+        Arrays.sort(latencies);
+
+        log.warn("Индекс {} фильмов построен за {} мс; поиск: p50 = {} мкс, p99 = {} мкс, max = {} мкс",
+                FILMS, buildMillis, micros(latencies[QUERIES / 2]), micros(latencies[QUERIES * 99 / 100]),
+                micros(latencies[QUERIES - 1]));
+    }
+
+    // Частоты слов распределены по Ципфу, как в реальных текстах
+    private static String text(String[] words, Random random, int length) {
+        StringBuilder text = new StringBuilder();
+        for (int idx = 0; idx < length; idx++) {
+            int rank = (int) Math.min(words.length - 1, Math.floor(Math.pow(words.length, random.nextDouble())));
+            text.append(words[rank]).append(' ');
+        }
+        return text.toString();
+    }
+
+    private static String[] vocabulary(Random random) {
+        String[] words = new String[VOCABULARY];
+        for (int idx = 0; idx < VOCABULARY; idx++) {
+            char base = idx % 2 == 0 ? 'а' : 'a';
+            StringBuilder word = new StringBuilder();
+            for (int len = 3 + random.nextInt(7); len > 0; len--) {
+                word.append((char) (base + random.nextInt(26)));
+            }
+            words[idx] = word.toString();
+        }
+        return words;
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+}
@@ -0,0 +1,86 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.dto.FriendshipImportResult;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.repository.UserStorage;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@Slf4j
+@Tag("benchmark")
+class FriendshipImportBenchmarkTest {
+    private static final int USERS = 100_000;
+    private static final int EDGES = 1_000_000;
+    private static final int SINGLE_EDGES = 20_000;
+
+    @Test
+    @DisplayName("Скорость импорта дружб: пакетный импорт против addFriend по одному ребру")
+    void compareImportWithSingleEdges() {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(FilmorateApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("logging.level.root=WARN",
+                        "spring.datasource.url=jdbc:h2:mem:friendships;DB_CLOSE_DELAY=-1")
+                .run()) {
+            JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+            createUsers(jdbc);
+            UserService userService = context.getBean(UserService.class);
+            UserStorage userStorage = context.getBean(UserStorage.class);
+
+            List<Friendship> edges = edges(new Random(42), EDGES);
+            FriendshipImportResult result = userService.importFriendships(edges);
+            log.warn("[импорт] {} рёбер за {} мс: {} рёбер/с; дружб {}, заявок {}, взаимных {}, повторов {}",
+                    result.received(), result.elapsedMillis(), result.edgesPerSecond(), result.friendshipsCreated(),
+                    result.requestsCreated(), result.requestsResolved(), result.duplicates());
+            Integer stored = jdbc.queryForObject("SELECT COUNT(*) FROM friendships", Integer.class);
+            assertEquals(result.friendshipsCreated(), stored);
+
+            List<Friendship> single = edges(new Random(7), SINGLE_EDGES);
+            long startedAt = System.nanoTime();
+            single.forEach(edge -> userStorage.addFriend(edge.userId(), edge.friendId()));
+            long nanos = System.nanoTime() - startedAt;
+            log.warn("[addFriend] {} рёбер за {} мс: {} рёбер/с", SINGLE_EDGES, TimeUnit.NANOSECONDS.toMillis(nanos),
+                    SINGLE_EDGES * TimeUnit.SECONDS.toNanos(1) / Math.max(nanos, 1));
+        }
+    }
+
+    private static void createUsers(JdbcTemplate jdbc) {
+        List<Object[]> rows = new ArrayList<>(USERS);
+        for (int i = 1; i <= USERS; i++) {
+            rows.add(new Object[]{"user" + i + "@yandex.ru", "login" + i, "Имя " + i, LocalDate.of(1990, 1, 1)});
+        }
+        jdbc.batchUpdate("INSERT INTO users (email, login, name, birthday) VALUES (?, ?, ?, ?)", rows);
+    }
+
+    // Примерно треть рёбер получает встречное ребро, как при переносе взаимных дружб
+    private static List<Friendship> edges(Random random, int count) {
+        List<Friendship> edges = new ArrayList<>(count);
+        while (edges.size() < count) {
+            long userId = 1 + random.nextInt(USERS);
+            long friendId = 1 + random.nextInt(USERS);
+            if (userId == friendId) {
+                continue;
+            }
+            edges.add(new Friendship(userId, friendId));
+            if (random.nextInt(3) == 0 && edges.size() < count) {
+                edges.add(new Friendship(friendId, userId));
+            }
+        }
+        return edges;
+    }
+}
@@ -0,0 +1,114 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.repository.film.GenreRepository;
+import ru.yandex.practicum.filmorate.repository.mapper.FilmRowMapper;
+import ru.yandex.practicum.filmorate.repository.mapper.GenreRowMapper;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@Slf4j
+@Tag("benchmark")
+class LikesCountBenchmarkTest {
+    private static final int FILMS = 100_000;
+    private static final int USERS = 10_000;
+    private static final int LIKES = 500_000;
+    private static final int ROUNDS = 3;
+    private static final String FILMS_QUERY =
+            "SELECT f.*, m.id as mpa_id, m.name as mpa_name FROM films f JOIN mpa m ON f.mpa_id = m.id";
+    private static final String COUNT_QUERY = "SELECT COUNT(*) FROM film_likes WHERE film_id = ?";
+    private static final String AGGREGATE_QUERY =
+            "SELECT f.id, f.name, f.description, f.release_date, f.duration, " +
+            "m.id as mpa_id, m.name as mpa_name, COALESCE(l.likes, 0) AS likes_count " +
+            "FROM films f JOIN mpa m ON f.mpa_id = m.id " +
+            "LEFT JOIN (SELECT film_id, COUNT(*) AS likes FROM film_likes GROUP BY film_id) l ON l.film_id = f.id";
+
+    private EmbeddedDatabase database;
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    @DisplayName("Список из 100 тысяч фильмов с числом лайков: COUNT на фильм, агрегат в запросе, колонка-счётчик")
+    void compareLikesCountSources() {
+        JdbcTemplate jdbc = populate();
+        FilmRowMapper mapper = new FilmRowMapper(new GenreRepository(jdbc, new GenreRowMapper()));
+
+        for (int round = 0; round <= ROUNDS; round++) {
+            // Нулевой круг — прогрев
+            long perFilm = measure(() -> {
+                List<Film> films = jdbc.query(FILMS_QUERY, mapper.forQuery());
+                films.forEach(film -> film.setLikesCount(jdbc.queryForObject(COUNT_QUERY, Integer.class, film.getId())));
+                return films;
+            });
+            long aggregate = measure(() -> jdbc.query(AGGREGATE_QUERY, mapper.forQuery()));
+            long counter = measure(() -> jdbc.query(FILMS_QUERY, mapper.forQuery()));
+            if (round > 0) {
+                log.warn("[круг {}] COUNT на фильм: {} мс, агрегат: {} мс, колонка-счётчик: {} мс",
+                        round, perFilm, aggregate, counter);
+            }
+        }
+    }
+
+    private long measure(Supplier<List<Film>> listing) {
+        long startedAt = System.nanoTime();
+        List<Film> films = listing.get();
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+        assertEquals(FILMS, films.size());
+        assertEquals(LIKES, films.stream().mapToLong(Film::getLikesCount).sum());
+        return millis;
+    }
+
+    private JdbcTemplate populate() {
+        database = new EmbeddedDatabaseBuilder()
+                .generateUniqueName(true)
+                .setType(EmbeddedDatabaseType.H2)
+                .addScripts("schema.sql", "data.sql")
+                .build();
+        JdbcTemplate jdbc = new JdbcTemplate(database);
+
+        List<Object[]> users = new ArrayList<>(USERS);
+        for (int i = 1; i <= USERS; i++) {
+            users.add(new Object[]{i, "user" + i + "@yandex.ru", "user" + i, "Имя " + i, LocalDate.of(1990, 1, 1)});
+        }
+        jdbc.batchUpdate("INSERT INTO users (id, email, login, name, birthday) VALUES (?, ?, ?, ?, ?)", users);
+
+        List<Object[]> films = new ArrayList<>(FILMS);
+        for (int i = 1; i <= FILMS; i++) {
+            films.add(new Object[]{i, "Фильм " + i, "Описание фильма " + i, LocalDate.of(1950 + i % 70, 1, 1),
+                    60 + i % 120, 1 + i % 5});
+        }
+        jdbc.batchUpdate("INSERT INTO films (id, name, description, release_date, duration, mpa_id) "
+                + "VALUES (?, ?, ?, ?, ?, ?)", films);
+
+        // Каждый пользователь лайкает по одному фильму в каждом из LIKES / USERS непересекающихся диапазонов ID
+        Random random = new Random(42);
+        List<Object[]> likes = new ArrayList<>(LIKES);
+        for (int i = 0; i < LIKES; i++) {
+            int userId = 1 + i % USERS;
+            int filmId = 1 + (i / USERS) * (FILMS / (LIKES / USERS)) + random.nextInt(FILMS / (LIKES / USERS));
+            likes.add(new Object[]{filmId, userId});
+        }
+        jdbc.batchUpdate("MERGE INTO film_likes (film_id, user_id) KEY(film_id, user_id) VALUES (?, ?)", likes);
+        jdbc.update("UPDATE films f SET likes_count = (SELECT COUNT(*) FROM film_likes l WHERE l.film_id = f.id)");
+        return jdbc;
+    }
+}
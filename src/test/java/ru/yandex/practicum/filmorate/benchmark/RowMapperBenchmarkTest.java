@@ -0,0 +1,120 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import lombok.extern.slf4j.Slf4j;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.repository.film.GenreRepository;
+import ru.yandex.practicum.filmorate.repository.mapper.FilmRowMapper;
+import ru.yandex.practicum.filmorate.repository.mapper.GenreRowMapper;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@Slf4j
+@Tag("benchmark")
+class RowMapperBenchmarkTest {
+    private static final int FILMS = 200_000;
+    private static final int ROUNDS = 5;
+    private static final String SCAN_QUERY =
+            "SELECT f.*, m.id as mpa_id, m.name as mpa_name FROM films f JOIN mpa m ON f.mpa_id = m.id";
+
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Test
+    @DisplayName("Скорость и аллокации при чтении фильмов: поиск колонок по имени против номеров колонок")
+    void compareRowMappers() {
+        JdbcTemplate jdbc = populate();
+        Supplier<RowMapper<Film>> byLabel = LabelFilmRowMapper::new;
+        FilmRowMapper filmMapper = new FilmRowMapper(new GenreRepository(jdbc, new GenreRowMapper()));
+        Supplier<RowMapper<Film>> byIndex = filmMapper::forQuery;
+
+        measure(jdbc, byLabel);
+        measure(jdbc, byIndex);
+
+        Result label = measure(jdbc, byLabel);
+        Result index = measure(jdbc, byIndex);
+        log.warn("[по имени] {} строк/с, {} байт на строку", label.rowsPerSecond(), label.bytesPerRow());
+        log.warn("[по номеру] {} строк/с, {} байт на строку", index.rowsPerSecond(), index.bytesPerRow());
+    }
+
+    private JdbcTemplate populate() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:mappers;DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE mpa (id BIGINT PRIMARY KEY, name VARCHAR(50), description VARCHAR(255))");
+        jdbc.execute("CREATE TABLE films (id BIGINT PRIMARY KEY, name VARCHAR(255), description VARCHAR(200), "
+                + "release_date DATE, duration BIGINT, mpa_id BIGINT REFERENCES mpa(id))");
+        jdbc.update("INSERT INTO mpa VALUES (1, 'G', 'Нет возрастных ограничений')");
+
+        List<Object[]> rows = new ArrayList<>(FILMS);
+        for (int i = 1; i <= FILMS; i++) {
+            rows.add(new Object[]{i, "Фильм " + i, "Описание фильма " + i,
+                    LocalDate.of(1950 + i % 70, 1 + i % 12, 1 + i % 28), 60 + i % 120});
+        }
+        jdbc.batchUpdate("INSERT INTO films VALUES (?, ?, ?, ?, ?, 1)", rows);
+        return jdbc;
+    }
+
+    // Строки не копятся в список: меряются только чтение и маппинг. Маппер создаётся на каждый запрос
+    private Result measure(JdbcTemplate jdbc, Supplier<RowMapper<Film>> mappers) {
+        long rows = 0;
+        long allocated = 0;
+        long startedAt = System.nanoTime();
+        for (int round = 0; round < ROUNDS; round++) {
+            long[] count = new long[1];
+            RowMapper<Film> mapper = mappers.get();
+            long before = threads.getCurrentThreadAllocatedBytes();
+            jdbc.query(SCAN_QUERY, (RowCallbackHandler) rs -> {
+                Film film = mapper.mapRow(rs, (int) count[0]);
+                if (film.getId() > 0) {
+                    count[0]++;
+                }
+            });
+            allocated += threads.getCurrentThreadAllocatedBytes() - before;
+            assertEquals(FILMS, count[0]);
+            rows += count[0];
+        }
+        long nanos = System.nanoTime() - startedAt;
+        return new Result(rows * TimeUnit.SECONDS.toNanos(1) / Math.max(nanos, 1), allocated / rows);
+    }
+
+    // Прежний способ: каждая колонка ищется по имени в каждой строке, дата идёт через java.sql.Date
+    private static final class LabelFilmRowMapper implements RowMapper<Film> {
+        @Override
+        public Film mapRow(ResultSet rs, int rowNum) throws SQLException {
+            Film film = new Film();
+            film.setId(rs.getLong("id"));
+            film.setName(rs.getString("name"));
+            film.setDescription(rs.getString("description"));
+            Date releaseDate = rs.getDate("release_date");
+            if (releaseDate != null) {
+                film.setReleaseDate(releaseDate.toLocalDate());
+            }
+            film.setDuration(rs.getLong("duration"));
+            film.setMpa(new Mpa(rs.getLong("mpa_id"), rs.getString("mpa_name"), null));
+            film.setGenres(new HashSet<>());
+            return film;
+        }
+    }
+
+    private record Result(long rowsPerSecond, long bytesPerRow) {
+    }
+}
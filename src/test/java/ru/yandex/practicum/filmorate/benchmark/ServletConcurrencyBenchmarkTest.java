@@ -0,0 +1,229 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Нагрузочное сравнение одного и того же сервлетного стека: пул потоков Tomcat против виртуальных потоков,
+// и выдача большого списка целиком в JSON против построчной NDJSON. Клиент работает в той же JVM
+// на виртуальных потоках, поэтому пик потоков — это потоки сервера
+@Slf4j
+@Tag("benchmark")
+class ServletConcurrencyBenchmarkTest {
+    private static final String DB_URL = "spring.datasource.url=jdbc:h2:mem:concurrency;DB_CLOSE_DELAY=-1";
+    private static final int USERS = 2_000;
+    private static final int FILMS = 20_000;
+    private static final int LIKES = 50_000;
+    private static final int FRIENDS_PER_USER = 20;
+    private static final int CLIENTS = 1_000;
+    private static final int REQUESTS_PER_CLIENT = 12;
+    private static final int LIST_CLIENTS = 16;
+    private static final int LIST_REQUESTS_PER_CLIENT = 3;
+
+    @Test
+    @DisplayName("Пропускная способность, p99 и память: потоки Tomcat против виртуальных, JSON против NDJSON")
+    void compareThreadModels() throws Exception {
+        seed();
+        for (boolean virtual : new boolean[]{false, true}) {
+            String mode = virtual ? "виртуальные потоки" : "пул Tomcat";
+            try (ConfigurableApplicationContext context = new SpringApplicationBuilder(FilmorateApplication.class)
+                    .web(WebApplicationType.SERVLET)
+                    .properties("logging.level.root=WARN", "logging.level.org.zalando.logbook=WARN",
+                            "server.port=0", DB_URL, "spring.threads.virtual.enabled=" + virtual)
+                    .run();
+                 ExecutorService clientExecutor = Executors.newVirtualThreadPerTaskExecutor();
+                 HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+                         .executor(clientExecutor).build()) {
+                String base = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+
+                load(client, base, CLIENTS / 10, 5);
+                report(mode + ", чтение", load(client, base, CLIENTS, REQUESTS_PER_CLIENT));
+
+                fetchList(client, base + "/films", "application/json", 2, 1);
+                fetchList(client, base + "/films", "application/x-ndjson", 2, 1);
+                report(mode + ", /films JSON", fetchList(client, base + "/films", "application/json",
+                        LIST_CLIENTS, LIST_REQUESTS_PER_CLIENT));
+                report(mode + ", /films NDJSON", fetchList(client, base + "/films", "application/x-ndjson",
+                        LIST_CLIENTS, LIST_REQUESTS_PER_CLIENT));
+            }
+        }
+    }
+
+    private static void seed() {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(FilmorateApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("logging.level.root=WARN", DB_URL)
+                .run()) {
+            JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+            Random random = new Random(42);
+
+            List<Object[]> users = new ArrayList<>(USERS);
+            for (int i = 1; i <= USERS; i++) {
+                users.add(new Object[]{"user" + i + "@yandex.ru", "login" + i, "Имя " + i, LocalDate.of(1990, 1, 1)});
+            }
+            jdbc.batchUpdate("INSERT INTO users (email, login, name, birthday) VALUES (?, ?, ?, ?)", users);
+
+            List<Object[]> films = new ArrayList<>(FILMS);
+            for (int i = 1; i <= FILMS; i++) {
+                films.add(new Object[]{"Фильм " + i, "Описание фильма " + i, LocalDate.of(1950 + i % 70, 1, 1),
+                        90 + i % 60, 1 + i % 5});
+            }
+            jdbc.batchUpdate("INSERT INTO films (name, description, release_date, duration, mpa_id) "
+                    + "VALUES (?, ?, ?, ?, ?)", films);
+
+            List<Object[]> likes = new ArrayList<>(LIKES);
+            for (int i = 0; i < LIKES; i++) {
+                likes.add(new Object[]{1 + random.nextInt(FILMS), 1 + random.nextInt(USERS)});
+            }
+            jdbc.batchUpdate("MERGE INTO film_likes (film_id, user_id) KEY (film_id, user_id) VALUES (?, ?)", likes);
+
+            List<Object[]> friendships = new ArrayList<>(USERS * FRIENDS_PER_USER);
+            for (int userId = 1; userId <= USERS; userId++) {
+                for (int i = 0; i < FRIENDS_PER_USER; i++) {
+                    friendships.add(new Object[]{userId, 1 + random.nextInt(USERS)});
+                }
+            }
+            jdbc.batchUpdate("MERGE INTO friendships (user_id, friend_id) KEY (user_id, friend_id) VALUES (?, ?)",
+                    friendships);
+        }
+    }
+
+    // Каждый клиент по кругу ходит в популярное, друзей, общих друзей, фильм, жанры и рейтинги
+    private static Result load(HttpClient client, String base, int clients, int requestsPerClient)
+            throws Exception {
+        resetPeaks();
+        long startedAt = System.nanoTime();
+        List<Future<long[]>> futures = new ArrayList<>(clients);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int clientIdx = 0; clientIdx < clients; clientIdx++) {
+                Random random = new Random(clientIdx);
+                futures.add(executor.submit(() -> {
+                    long[] latencies = new long[requestsPerClient];
+                    for (int i = 0; i < requestsPerClient; i++) {
+                        long userId = 1 + random.nextInt(USERS);
+                        long otherId = 1 + (userId + random.nextInt(USERS - 1)) % USERS;
+                        String path = switch (i % 6) {
+                            case 0 -> "/films/popular?count=10";
+                            case 1 -> "/users/" + userId + "/friends";
+                            case 2 -> "/users/" + userId + "/friends/common/" + otherId;
+                            case 3 -> "/films/" + (1 + random.nextInt(FILMS));
+                            case 4 -> "/genres";
+                            default -> "/mpa";
+                        };
+                        long requestStartedAt = System.nanoTime();
+                        HttpResponse<byte[]> response = client.send(HttpRequest.newBuilder(URI.create(base + path))
+                                .build(), HttpResponse.BodyHandlers.ofByteArray());
+                        latencies[i] = System.nanoTime() - requestStartedAt;
+                        assertEquals(200, response.statusCode(), path);
+                    }
+                    return latencies;
+                }));
+            }
+        }
+        return result(futures, System.nanoTime() - startedAt, null);
+    }
+
+    // Время до первого байта и полное чтение большого списка несколькими клиентами одновременно
+    private static Result fetchList(HttpClient client, String url, String accept, int clients, int requests)
+            throws Exception {
+        resetPeaks();
+        long startedAt = System.nanoTime();
+        List<Future<long[]>> futures = new ArrayList<>(clients);
+        List<Long> firstBytes = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int clientIdx = 0; clientIdx < clients; clientIdx++) {
+                futures.add(executor.submit(() -> {
+                    long[] latencies = new long[requests];
+                    for (int i = 0; i < requests; i++) {
+                        long requestStartedAt = System.nanoTime();
+                        HttpResponse<InputStream> response = client.send(HttpRequest.newBuilder(URI.create(url))
+                                .header("Accept", accept).build(), HttpResponse.BodyHandlers.ofInputStream());
+                        try (InputStream body = response.body()) {
+                            byte[] buffer = new byte[8192];
+                            int read = body.read(buffer);
+                            long firstByte = System.nanoTime() - requestStartedAt;
+                            synchronized (firstBytes) {
+                                firstBytes.add(firstByte);
+                            }
+                            while (read >= 0) {
+                                read = body.read(buffer);
+                            }
+                        }
+                        latencies[i] = System.nanoTime() - requestStartedAt;
+                        assertEquals(200, response.statusCode(), url);
+                    }
+                    return latencies;
+                }));
+            }
+        }
+        long[] sortedFirstBytes = firstBytes.stream().mapToLong(Long::longValue).sorted().toArray();
+        return result(futures, System.nanoTime() - startedAt, sortedFirstBytes[sortedFirstBytes.length / 2]);
+    }
+
+    private static Result result(List<Future<long[]>> futures, long nanos, Long firstByteNanos) throws Exception {
+        long[] all = new long[0];
+        for (Future<long[]> future : futures) {
+            long[] latencies = future.get();
+            int offset = all.length;
+            all = Arrays.copyOf(all, offset + latencies.length);
+            System.arraycopy(latencies, 0, all, offset, latencies.length);
+        }
+        Arrays.sort(all);
+        return new Result(all.length * TimeUnit.SECONDS.toNanos(1) / Math.max(nanos, 1),
+                TimeUnit.NANOSECONDS.toMillis(all[all.length / 2]),
+                TimeUnit.NANOSECONDS.toMillis(all[(int) (all.length * 0.99)]),
+                firstByteNanos != null ? TimeUnit.NANOSECONDS.toMillis(firstByteNanos) : null,
+                peakHeapBytes() >> 20,
+                ManagementFactory.getThreadMXBean().getPeakThreadCount());
+    }
+
+    private static void resetPeaks() {
+        System.gc();
+        ManagementFactory.getMemoryPoolMXBeans().forEach(MemoryPoolMXBean::resetPeakUsage);
+        ManagementFactory.getThreadMXBean().resetPeakThreadCount();
+    }
+
+    private static long peakHeapBytes() {
+        return ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .mapToLong(pool -> pool.getPeakUsage().getUsed())
+                .sum();
+    }
+
+    private static void report(String mode, Result result) {
+        log.warn("[{}] {} зап/с, p50 {} мс, p99 {} мс, первый байт p50 {} мс, пик кучи {} МБ, пик потоков {}",
+                mode, result.requestsPerSecond(), result.p50Millis(), result.p99Millis(),
+                result.firstByteMillis() != null ? result.firstByteMillis() : "-", result.peakHeapMegabytes(),
+                result.peakThreads());
+    }
+
+    private record Result(long requestsPerSecond, long p50Millis, long p99Millis, Long firstByteMillis,
+                          long peakHeapMegabytes, int peakThreads) {
+    }
+}
@@ -0,0 +1,109 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.index.FilmLikeCounts;
+import ru.yandex.practicum.filmorate.index.TitleAutocomplete;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Tag("benchmark")
+class TitleAutocompleteBenchmarkTest {
+    private static final int FILMS = Integer.getInteger("benchmark.films", 1_000_000);
+    private static final int VOCABULARY = 50_000;
+    private static final int QUERIES = 10_000;
+
+    @Test
+    @DisplayName("Память и латентность автодополнения на миллионе названий")
+    void memoryAndLatency() {
+        Random random = new Random(42);
+        String[] words = vocabulary(random);
+        String[] sample = new String[QUERIES];
+
+        long heapBefore = usedHeap();
+        TitleAutocomplete autocomplete = new TitleAutocomplete(null, new FilmLikeCounts(null));
+        long buildStartedAt = System.nanoTime();
+        for (long filmId = 1; filmId <= FILMS; filmId++) {
+            String title = title(words, random);
+            autocomplete.index(filmId, title);
+            autocomplete.changeLikes(filmId, random.nextInt(100));
+            if (filmId % (FILMS / QUERIES) == 0) {
+                sample[(int) (filmId / (FILMS / QUERIES)) - 1] = title;
+            }
+        }
+        long buildMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - buildStartedAt);
+        long heapMegabytes = (usedHeap() - heapBefore) / (1024 * 1024);
+
+        // Прогрев и замер: префиксы длиной 3-10 символов, в трети запросов одна опечатка
+        long[] latencies = new long[QUERIES];
+        for (int pass = 0; pass < 2; pass++) {
+            for (int idx = 0; idx < QUERIES; idx++) {
+                String prefix = prefix(sample[idx], random);
+                long startedAt = System.nanoTime();
+                autocomplete.suggest(prefix, 10);
+                latencies[idx] = System.nanoTime() - startedAt;
+            }
+        }
+        Arrays.sort(latencies);
+
+        log.warn("Дерево {} названий построено за {} мс, занимает {} МБ ({} МБ на миллион); "
+                        + "подсказки: p50 = {} мкс, p99 = {} мкс, max = {} мкс",
+                FILMS, buildMillis, heapMegabytes, heapMegabytes * 1_000_000 / FILMS,
+                micros(latencies[QUERIES / 2]), micros(latencies[QUERIES * 99 / 100]), micros(latencies[QUERIES - 1]));
+        assertAlive(autocomplete);
+    }
+
+    private static String prefix(String title, Random random) {
+        char[] prefix = title.substring(0, Math.min(title.length(), 3 + random.nextInt(8))).toCharArray();
+        if (random.nextInt(3) == 0) {
+            prefix[random.nextInt(prefix.length)] = 'x';
+        }
+        return new String(prefix);
+    }
+
+    private static String title(String[] words, Random random) {
+        StringBuilder title = new StringBuilder();
+        for (int idx = 1 + random.nextInt(4); idx > 0; idx--) {
+            int rank = (int) Math.min(words.length - 1, Math.floor(Math.pow(words.length, random.nextDouble())));
+            title.append(title.isEmpty() ? "" : " ").append(words[rank]);
+        }
+        return title.toString();
+    }
+
+    private static String[] vocabulary(Random random) {
+        String[] words = new String[VOCABULARY];
+        for (int idx = 0; idx < VOCABULARY; idx++) {
+            char base = idx % 2 == 0 ? 'а' : 'a';
+            StringBuilder word = new StringBuilder();
+            for (int len = 3 + random.nextInt(7); len > 0; len--) {
+                word.append((char) (base + random.nextInt(26)));
+            }
+            words[idx] = word.toString();
+        }
+        return words;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int idx = 0; idx < 3; idx++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    // Держим дерево достижимым до последнего замера памяти
+    private static void assertAlive(TitleAutocomplete autocomplete) {
+        if (autocomplete.size() != FILMS) {
+            throw new AssertionError("В дереве " + autocomplete.size() + " названий вместо " + FILMS);
+        }
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+}
@@ -0,0 +1,112 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FilmCacheTest {
+    private final AtomicInteger loads = new AtomicInteger();
+    private final Function<Long, Film> loader = filmId -> {
+        loads.incrementAndGet();
+        Film film = new Film(filmId, "Фильм " + filmId, "Описание", LocalDate.of(2000, 1, 1), 100L,
+                new Mpa(1L, "G", "Нет возрастных ограничений"));
+        film.setGenres(new HashSet<>(Set.of(new Genre(1L, "Комедия"))));
+        return film;
+    };
+
+    @Test
+    @DisplayName("Повторное чтение берётся из кэша и возвращает независимую копию")
+    void get_shouldLoadOnceAndReturnCopies() {
+        FilmCache cache = new FilmCache(1_000_000, 0);
+
+        Film first = cache.get(1L, loader);
+        first.setName("Изменено снаружи");
+        first.getGenres().clear();
+        Film second = cache.get(1L, loader);
+
+        assertEquals(1, loads.get());
+        assertEquals("Фильм 1", second.getName());
+        assertEquals(1, second.getGenres().size());
+        assertTrue(cache.contains(1L));
+    }
+
+    @Test
+    @DisplayName("Фильм из компактного представления сериализуется так же, как исходный")
+    void get_shouldPreserveJsonAndShareReferenceData() throws JsonProcessingException {
+        FilmCache cache = new FilmCache(1_000_000, 0);
+        ObjectMapper mapper = JsonMapper.builder().addModule(new JavaTimeModule()).build();
+        Film withoutDates = new Film(2L, "Без даты", null, null, null);
+
+        assertEquals(mapper.writeValueAsString(loader.apply(1L)), mapper.writeValueAsString(cache.get(1L, loader)));
+        assertEquals(mapper.writeValueAsString(withoutDates),
+                mapper.writeValueAsString(cache.get(2L, filmId -> withoutDates)));
+
+        cache.get(3L, loader);
+        CompactFilm first = cache.hot().getIfPresent(1L);
+        CompactFilm third = cache.hot().getIfPresent(3L);
+        assertSame(first.mpa(), third.mpa());
+        assertSame(first.genres(), third.genres());
+    }
+
+    @Test
+    @DisplayName("Инвалидация заставляет перечитать фильм")
+    void invalidate_shouldForceReload() {
+        FilmCache cache = new FilmCache(1_000_000, 0);
+        cache.get(1L, loader);
+
+        cache.invalidate(1L);
+        cache.get(1L, loader);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    @DisplayName("Вытесненные из кучи фильмы читаются из хранилища вне кучи без обращения к базе")
+    void get_evictedFilm_shouldBeServedFromOffHeapTier() {
+        FilmCache cache = new FilmCache(2_000, 64 * 1024);
+        for (long filmId = 1; filmId <= 20; filmId++) {
+            cache.get(filmId, loader);
+        }
+        cache.hot().cleanUp();
+        assertTrue(cache.hot().estimatedSize() < 20);
+
+        for (long filmId = 1; filmId <= 20; filmId++) {
+            assertEquals("Фильм " + filmId, cache.get(filmId, loader).getName());
+            cache.hot().cleanUp();
+        }
+
+        assertEquals(20, loads.get());
+    }
+
+    @Test
+    @DisplayName("Сегмент хранилища вне кучи при повторном заполнении вытесняет свои записи")
+    void offHeapStore_shouldRecycleSegments() {
+        OffHeapStore store = new OffHeapStore(400, 4);
+        for (long key = 1; key <= 8; key++) {
+            assertTrue(store.put(key, new byte[50]));
+        }
+        assertEquals(8, store.size());
+
+        assertTrue(store.put(9L, new byte[60]));
+
+        assertNull(store.get(1L));
+        assertNull(store.get(2L));
+        assertNotNull(store.get(3L));
+        assertEquals(2, store.evictions());
+        assertFalse(store.put(10L, new byte[101]));
+    }
+}
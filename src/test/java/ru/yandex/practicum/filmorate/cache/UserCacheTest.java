@@ -0,0 +1,103 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserCacheTest {
+    private static final long EXISTING_USERS = 100;
+
+    private final AtomicInteger loads = new AtomicInteger();
+    private final Function<Long, Optional<User>> loader = userId -> {
+        loads.incrementAndGet();
+        return userId <= EXISTING_USERS
+                ? Optional.of(new User(userId, "mail" + userId + "@yandex.ru", "login" + userId, "Имя",
+                LocalDate.of(1990, 1, 1)))
+                : Optional.empty();
+    };
+
+    @Test
+    @DisplayName("Отсутствующий пользователь кэшируется на короткое время")
+    void get_missingUser_shouldBeCachedUntilNegativeTtl() throws InterruptedException {
+        UserCache cache = new UserCache(1_000, Duration.ofMinutes(10), Duration.ofMillis(50));
+
+        assertTrue(cache.get(500L, loader).isEmpty());
+        assertTrue(cache.get(500L, loader).isEmpty());
+        assertEquals(1, loads.get());
+
+        Thread.sleep(100);
+        cache.get(500L, loader);
+        cache.get(1L, loader);
+        Thread.sleep(100);
+        cache.get(1L, loader);
+
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    @DisplayName("Инвалидация сбрасывает как найденного, так и отсутствующего пользователя")
+    void invalidate_shouldDropBothKindsOfEntries() {
+        UserCache cache = new UserCache(1_000, Duration.ofMinutes(10), Duration.ofMinutes(1));
+        cache.get(1L, loader);
+        cache.get(500L, loader);
+
+        cache.invalidate(1L);
+        cache.invalidate(500L);
+        cache.get(1L, loader);
+        cache.get(500L, loader);
+
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    @DisplayName("Под нагрузкой из многих потоков каждый ID загружается из базы один раз")
+    void get_underConcurrentLoad_shouldLoadEachIdOnce() throws Exception {
+        UserCache cache = new UserCache(10_000, Duration.ofMinutes(10), Duration.ofMinutes(1));
+        int threads = 32;
+        int lookupsPerThread = 20_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+
+        for (int thread = 0; thread < threads; thread++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                int missing = 0;
+                for (int idx = 0; idx < lookupsPerThread; idx++) {
+                    long userId = 1 + ThreadLocalRandom.current().nextLong(2 * EXISTING_USERS);
+                    Optional<User> user = cache.get(userId, loader);
+                    if (user.isEmpty()) {
+                        missing++;
+                    } else {
+                        assertEquals(userId, user.get().getId());
+                    }
+                }
+                return missing;
+            }));
+        }
+        start.countDown();
+        int missing = 0;
+        for (Future<Integer> result : results) {
+            missing += result.get();
+        }
+        executor.shutdown();
+
+        assertEquals(2 * EXISTING_USERS, loads.get());
+        assertTrue(missing > 0);
+    }
+}
@@ -0,0 +1,110 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ReplicaRoutingDataSourceTest {
+    private static final String COUNT_USERS_QUERY = "SELECT COUNT(*) FROM users";
+
+    private EmbeddedDatabase primary;
+    private EmbeddedDatabase replica;
+    private H2ReplicationStandIn standIn;
+    private JdbcTemplate jdbc;
+    private TransactionTemplate readOnlyTransaction;
+    private TransactionTemplate writeTransaction;
+
+    @BeforeEach
+    void setUp() {
+        primary = new EmbeddedDatabaseBuilder()
+                .generateUniqueName(true)
+                .setType(EmbeddedDatabaseType.H2)
+                .addScripts("schema.sql", "data.sql")
+                .build();
+        replica = new EmbeddedDatabaseBuilder()
+                .generateUniqueName(true)
+                .setType(EmbeddedDatabaseType.H2)
+                .build();
+
+        standIn = new H2ReplicationStandIn(primary, List.of(replica), Duration.ofHours(1));
+        standIn.copySchema();
+        standIn.sync();
+
+        LazyConnectionDataSourceProxy dataSource =
+                new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(primary, List.of(replica)));
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        jdbc = new JdbcTemplate(dataSource);
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+        writeTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReadYourWritesContext.clear();
+        standIn.destroy();
+        primary.shutdown();
+        replica.shutdown();
+    }
+
+    @Test
+    @DisplayName("Справочники основной базы копируются в реплику")
+    void copySchema_shouldReplicateReferenceData() {
+        Integer genres = readOnlyTransaction.execute(status ->
+                jdbc.queryForObject("SELECT COUNT(*) FROM genres", Integer.class));
+
+        assertEquals(6, genres);
+    }
+
+    @Test
+    @DisplayName("Read-only транзакция читает из реплики и видит запись только после синхронизации")
+    void readOnlyTransaction_shouldReadFromReplica() {
+        insertUser();
+
+        assertEquals(0, countUsers(readOnlyTransaction));
+
+        standIn.sync();
+
+        assertEquals(1, countUsers(readOnlyTransaction));
+    }
+
+    @Test
+    @DisplayName("Пишущая транзакция работает с основной базой")
+    void writeTransaction_shouldUsePrimary() {
+        insertUser();
+
+        assertEquals(1, countUsers(writeTransaction));
+    }
+
+    @Test
+    @DisplayName("После записи в рамках запроса чтение закрепляется за основной базой")
+    void pinnedToPrimary_shouldReadOwnWrites() {
+        insertUser();
+        ReadYourWritesContext.pinToPrimary();
+
+        assertEquals(1, countUsers(readOnlyTransaction));
+    }
+
+    private void insertUser() {
+        jdbc.update("INSERT INTO users (email, login, name, birthday) VALUES (?, ?, ?, ?)",
+                "mail@yandex.ru", "login", "Имя", java.sql.Date.valueOf("1990-01-01"));
+    }
+
+    private int countUsers(TransactionTemplate transaction) {
+        Integer count = transaction.execute(status -> jdbc.queryForObject(COUNT_USERS_QUERY, Integer.class));
+        return count == null ? 0 : count;
+    }
+}
@@ -1,5 +1,7 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -7,11 +9,23 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.cache.FilmCache;
+import ru.yandex.practicum.filmorate.cache.UserCache;
+import ru.yandex.practicum.filmorate.exception.ConflictException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.index.FilmLikeCounts;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.FilmTrends;
+import ru.yandex.practicum.filmorate.index.PopularityLeaderboards;
+import ru.yandex.practicum.filmorate.index.TitleAutocomplete;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.repository.film.CachingFilmStorage;
 import ru.yandex.practicum.filmorate.repository.film.FilmRepository;
 import ru.yandex.practicum.filmorate.repository.film.GenreRepository;
 import ru.yandex.practicum.filmorate.repository.film.MpaRepository;
@@ -19,12 +33,16 @@ import ru.yandex.practicum.filmorate.repository.mapper.FilmRowMapper;
 import ru.yandex.practicum.filmorate.repository.mapper.GenreRowMapper;
 import ru.yandex.practicum.filmorate.repository.mapper.MpaRowMapper;
 import ru.yandex.practicum.filmorate.repository.mapper.UserRowMapper;
+import ru.yandex.practicum.filmorate.repository.outbox.OutboxRepository;
+import ru.yandex.practicum.filmorate.repository.user.CachingUserStorage;
 import ru.yandex.practicum.filmorate.repository.user.UserRepository;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.SingleFlight;
 import ru.yandex.practicum.filmorate.service.UserService;
 
 import java.time.LocalDate;
 import java.util.Collection;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -33,7 +51,9 @@ import static org.junit.jupiter.api.Assertions.*;
 @DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
 @Import({FilmRepository.class, UserRepository.class, GenreRepository.class, MpaRepository.class, FilmService.class,
         UserService.class, FilmController.class, UserController.class, FilmRowMapper.class, UserRowMapper.class,
-        MpaRowMapper.class, GenreRowMapper.class})
+        MpaRowMapper.class, GenreRowMapper.class, FilmSearchIndex.class, FilmLikeCounts.class, TitleAutocomplete.class,
+        PopularityLeaderboards.class, FilmTrends.class, OutboxRepository.class, CachingFilmStorage.class,
+        FilmCache.class, CachingUserStorage.class, UserCache.class, SingleFlight.class})
 class FilmControllerTest {
 
     @Autowired
@@ -103,7 +123,7 @@ class FilmControllerTest {
     @Test
     @DisplayName("Получение фильма по несуществующему ID → исключение NotFoundException")
     void getFilmById_withNonExistingId_shouldThrowNotFoundException() {
-        assertThrows(NotFoundException.class, () -> filmController.getUserById(9999L));
+        assertThrows(NotFoundException.class, () -> filmController.getUserById(9999L, null));
     }
 
     @Test
@@ -120,12 +140,65 @@ class FilmControllerTest {
     void updateFilm_withValidData_shouldUpdateFilm() {
         testFilm.setDescription("НовоеОписаниеФильма");
 
-        Film updatedFilm = filmController.updateFilm(testFilm);
+        Film updatedFilm = filmController.updateFilm(testFilm, null).getBody();
 
         assertEquals("НовоеОписаниеФильма", updatedFilm.getDescription());
         assertEquals(testFilm.getId(), updatedFilm.getId());
     }
 
+    @Test
+    @DisplayName("ETag фильма → совпавший If-None-Match даёт 304, устаревший If-Match даёт конфликт")
+    void etag_shouldValidateReadsAndGuardUpdates() {
+        ResponseEntity<Film> first = filmController.getUserById(testFilm.getId(), null);
+        String etag = first.getHeaders().getETag();
+        assertNotNull(etag);
+        assertEquals(HttpStatus.NOT_MODIFIED, filmController.getUserById(testFilm.getId(), etag).getStatusCode());
+
+        testFilm.setDescription("НовоеОписание");
+        ResponseEntity<Film> updated = filmController.updateFilm(testFilm, etag);
+        assertNotEquals(etag, updated.getHeaders().getETag());
+        assertEquals(HttpStatus.OK, filmController.getUserById(testFilm.getId(), etag).getStatusCode());
+
+        testFilm.setDescription("ПотерянноеОписание");
+        assertThrows(ConflictException.class, () -> filmController.updateFilm(testFilm, etag));
+        ObjectNode patch = JsonNodeFactory.instance.objectNode().put("duration", 90);
+        assertThrows(ConflictException.class, () -> filmController.patchFilm(testFilm.getId(), patch, etag));
+        assertEquals("НовоеОписание", filmController.getUserById(testFilm.getId(), null).getBody().getDescription());
+    }
+
+    @Test
+    @DisplayName("Частичное обновление фильма → меняются только переданные поля, null сбрасывает значение")
+    void patchFilm_shouldChangeOnlyGivenFields() {
+        ObjectNode setGenres = JsonNodeFactory.instance.objectNode();
+        setGenres.put("name", "НовоеНазвание");
+        setGenres.putArray("genres").addObject().put("id", 2L);
+
+        Film patched = filmController.patchFilm(testFilm.getId(), setGenres, null).getBody();
+
+        assertEquals("НовоеНазвание", patched.getName());
+        assertEquals("ОписаниеФильма", patched.getDescription());
+        assertEquals(120L, patched.getDuration());
+        assertEquals(Set.of(new Genre(2L, "Драма")), patched.getGenres());
+
+        ObjectNode clearDescription = JsonNodeFactory.instance.objectNode().putNull("description");
+        Film cleared = filmController.patchFilm(testFilm.getId(), clearDescription, null).getBody();
+
+        assertNull(cleared.getDescription());
+        assertEquals("НовоеНазвание", cleared.getName());
+        assertEquals(Set.of(new Genre(2L, "Драма")), cleared.getGenres());
+    }
+
+    @Test
+    @DisplayName("Частичное обновление фильма с некорректными данными → исключение ValidationException")
+    void patchFilm_withInvalidData_shouldThrowValidationException() {
+        ObjectNode negativeDuration = JsonNodeFactory.instance.objectNode().put("duration", -1);
+        ObjectNode otherId = JsonNodeFactory.instance.objectNode().put("id", testFilm.getId() + 1);
+
+        assertThrows(ValidationException.class, () -> filmController.patchFilm(testFilm.getId(), negativeDuration, null));
+        assertThrows(ValidationException.class, () -> filmController.patchFilm(testFilm.getId(), otherId, null));
+        assertEquals(120L, filmController.getUserById(testFilm.getId(), null).getBody().getDuration());
+    }
+
     @Test
     @DisplayName("Добавление лайка с валидными ID → успешно добавляет лайк")
     void likeTheFilm_withValidIds_shouldAddLike() {
@@ -177,7 +250,7 @@ class FilmControllerTest {
         filmController.likeTheFilm(film2.getId(), user2.getId());
         filmController.likeTheFilm(testFilm.getId(), validUser.getId());
 
-        Collection<Film> popularFilms = filmController.getPopularFilms(2);
+        Collection<Film> popularFilms = filmController.getPopularFilms(2, null, null);
 
         assertEquals(2, popularFilms.size());
         assertEquals(film2.getId(), popularFilms.iterator().next().getId());
@@ -0,0 +1,195 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.cache.FilmCache;
+import ru.yandex.practicum.filmorate.cache.UserCache;
+import ru.yandex.practicum.filmorate.exception.ErrorHandler;
+import ru.yandex.practicum.filmorate.index.FilmLikeCounts;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.FilmTrends;
+import ru.yandex.practicum.filmorate.index.PopularityLeaderboards;
+import ru.yandex.practicum.filmorate.index.TitleAutocomplete;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.repository.film.CachingFilmStorage;
+import ru.yandex.practicum.filmorate.repository.film.FilmRepository;
+import ru.yandex.practicum.filmorate.repository.film.GenreRepository;
+import ru.yandex.practicum.filmorate.repository.film.MpaRepository;
+import ru.yandex.practicum.filmorate.repository.mapper.FilmRowMapper;
+import ru.yandex.practicum.filmorate.repository.mapper.GenreRowMapper;
+import ru.yandex.practicum.filmorate.repository.mapper.MpaRowMapper;
+import ru.yandex.practicum.filmorate.repository.mapper.UserRowMapper;
+import ru.yandex.practicum.filmorate.repository.outbox.OutboxRepository;
+import ru.yandex.practicum.filmorate.repository.user.CachingUserStorage;
+import ru.yandex.practicum.filmorate.repository.user.UserRepository;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.GenreService;
+import ru.yandex.practicum.filmorate.service.MpaService;
+import ru.yandex.practicum.filmorate.service.SingleFlight;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Тело ответа пишется в отдельном потоке, поэтому данные коммитятся, а не живут в откатываемой транзакции теста
+@JdbcTest
+@AutoConfigureTestDatabase
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({FilmRepository.class, UserRepository.class, GenreRepository.class, MpaRepository.class, FilmService.class,
+        UserService.class, GenreService.class, MpaService.class, FilmRowMapper.class, UserRowMapper.class,
+        MpaRowMapper.class, GenreRowMapper.class, FilmSearchIndex.class, FilmLikeCounts.class, TitleAutocomplete.class,
+        PopularityLeaderboards.class, FilmTrends.class, OutboxRepository.class, CachingFilmStorage.class,
+        FilmCache.class, CachingUserStorage.class, UserCache.class, SingleFlight.class})
+class ListStreamControllerTest {
+    private static final int PAGE_SIZE = 2;
+
+    @Autowired
+    private FilmService filmService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private GenreService genreService;
+
+    @Autowired
+    private MpaService mpaService;
+
+    private final ObjectMapper json = Jackson2ObjectMapperBuilder.json().build();
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        ListStreamController controller = new ListStreamController(filmService, userService, genreService,
+                mpaService, json, PAGE_SIZE);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller)
+                .setControllerAdvice(new ErrorHandler())
+                .build();
+    }
+
+    @Test
+    @DisplayName("Фильмы отдаются в NDJSON по порядку ID через границы страниц, последняя страница неполная")
+    void streamFilms_shouldWalkAllPages() throws Exception {
+        List<Long> ids = new ArrayList<>();
+        for (int idx = 1; idx <= 5; idx++) {
+            ids.add(filmService.createFilm(film("Фильм " + idx)).getId());
+        }
+
+        List<JsonNode> lines = stream("/films");
+
+        assertEquals(ids, lines.stream().map(line -> line.get("id").asLong()).toList());
+        assertEquals("Фильм 5", lines.getLast().get("name").asText());
+    }
+
+    @Test
+    @DisplayName("Пользователи на ровно две страницы → все строки без дублей, пустая третья страница не ломает поток")
+    void streamUsers_whenCountIsMultipleOfPageSize_shouldEndAfterEmptyPage() throws Exception {
+        List<Long> ids = LongStream.rangeClosed(1, 2L * PAGE_SIZE)
+                .mapToObj(idx -> userService.createUser(user("user" + idx)).getId())
+                .toList();
+
+        assertEquals(ids, stream("/users").stream().map(line -> line.get("id").asLong()).toList());
+    }
+
+    @Test
+    @DisplayName("Пустая таблица → 200, тип application/x-ndjson и пустое тело")
+    void streamFilms_whenTableIsEmpty_shouldReturnEmptyBody() throws Exception {
+        assertTrue(stream("/films").isEmpty());
+        assertTrue(stream("/users").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Друзья отдаются страницами, общие друзья — одним списком, неизвестный пользователь → 404 до потока")
+    void streamFriends_shouldPageByFriendId() throws Exception {
+        Long owner = userService.createUser(user("owner")).getId();
+        Long other = userService.createUser(user("other")).getId();
+        List<Long> friends = new ArrayList<>();
+        for (int idx = 1; idx <= 3; idx++) {
+            Long friend = userService.createUser(user("friend" + idx)).getId();
+            userService.addFriend(owner, friend);
+            friends.add(friend);
+        }
+        userService.addFriend(other, friends.get(1));
+
+        assertEquals(friends, stream("/users/" + owner + "/friends").stream()
+                .map(line -> line.get("id").asLong())
+                .toList());
+        assertEquals(List.of(friends.get(1)), stream("/users/" + owner + "/friends/common/" + other).stream()
+                .map(line -> line.get("id").asLong())
+                .toList());
+        mockMvc.perform(get("/users/9999/friends").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isNotFound())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    @DisplayName("Популярные фильмы, жанры и рейтинги тоже отдаются в NDJSON")
+    void streamShortLists_shouldReturnNdjson() throws Exception {
+        Long liked = filmService.createFilm(film("Популярный")).getId();
+        filmService.createFilm(film("Без лайков"));
+        Long userId = userService.createUser(user("fan")).getId();
+        filmService.likeTheFilm(liked, userId);
+
+        List<JsonNode> popular = stream("/films/popular?count=1");
+        assertEquals(1, popular.size());
+        assertEquals(liked, popular.getFirst().get("id").asLong());
+        assertEquals(genreService.getAllGenres().size(), stream("/genres").size());
+        assertEquals("G", stream("/mpa").getFirst().get("name").asText());
+    }
+
+    private List<JsonNode> stream(String url) throws Exception {
+        MvcResult started = mockMvc.perform(get(url).accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn()
+                .getResponse()
+                .getContentAsString(StandardCharsets.UTF_8);
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : body.split("\n")) {
+            if (!line.isBlank()) {
+                lines.add(json.readTree(line));
+            }
+        }
+        return lines;
+    }
+
+    private static Film film(String name) {
+        return new Film(null, name, "Описание", LocalDate.of(2000, 1, 1), 100L);
+    }
+
+    private static User user(String login) {
+        return new User(null, login + "@yandex.ru", login, login, LocalDate.of(1990, 1, 1));
+    }
+}
@@ -1,5 +1,7 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -8,9 +10,18 @@ import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabas
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.context.annotation.Import;
 import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.cache.FilmCache;
+import ru.yandex.practicum.filmorate.cache.UserCache;
+import ru.yandex.practicum.filmorate.exception.ConflictException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.index.FilmLikeCounts;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.FilmTrends;
+import ru.yandex.practicum.filmorate.index.PopularityLeaderboards;
+import ru.yandex.practicum.filmorate.index.TitleAutocomplete;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.repository.film.CachingFilmStorage;
 import ru.yandex.practicum.filmorate.repository.film.FilmRepository;
 import ru.yandex.practicum.filmorate.repository.film.GenreRepository;
 import ru.yandex.practicum.filmorate.repository.film.MpaRepository;
@@ -18,8 +29,11 @@ import ru.yandex.practicum.filmorate.repository.mapper.FilmRowMapper;
 import ru.yandex.practicum.filmorate.repository.mapper.GenreRowMapper;
 import ru.yandex.practicum.filmorate.repository.mapper.MpaRowMapper;
 import ru.yandex.practicum.filmorate.repository.mapper.UserRowMapper;
+import ru.yandex.practicum.filmorate.repository.outbox.OutboxRepository;
+import ru.yandex.practicum.filmorate.repository.user.CachingUserStorage;
 import ru.yandex.practicum.filmorate.repository.user.UserRepository;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.SingleFlight;
 import ru.yandex.practicum.filmorate.service.UserService;
 
 import java.time.LocalDate;
@@ -30,9 +44,11 @@ import static org.junit.jupiter.api.Assertions.*;
 @JdbcTest
 @AutoConfigureTestDatabase
 @DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
-@Import({FilmRepository.class, UserRepository.class, GenreRepository.class, MpaRepository.class,
-        FilmService.class, UserService.class, FilmController.class, UserController.class,
-        FilmRowMapper.class, UserRowMapper.class, MpaRowMapper.class, GenreRowMapper.class})
+@Import({FilmRepository.class, UserRepository.class, GenreRepository.class, MpaRepository.class, FilmService.class,
+        UserService.class, FilmController.class, UserController.class, FilmRowMapper.class, UserRowMapper.class,
+        MpaRowMapper.class, GenreRowMapper.class, FilmSearchIndex.class, FilmLikeCounts.class, TitleAutocomplete.class,
+        PopularityLeaderboards.class, FilmTrends.class, OutboxRepository.class, CachingFilmStorage.class,
+        FilmCache.class, CachingUserStorage.class, UserCache.class, SingleFlight.class})
 class UserControllerTest {
     @Autowired
     private UserController userController;
@@ -95,7 +111,7 @@ class UserControllerTest {
     @Test
     @DisplayName("Получение пользователя по несуществующему ID → исключение NotFoundException")
     void getUserById_withNonExistingId_shouldThrowNotFoundException() {
-        assertThrows(NotFoundException.class, () -> userController.getUserById(9999L));
+        assertThrows(NotFoundException.class, () -> userController.getUserById(9999L, null));
     }
 
     @Test
@@ -113,12 +129,39 @@ class UserControllerTest {
     void updateUser_withValidData_shouldUpdateUser() {
         validUser1.setName("ОбновлённоеИмя");
 
-        User updatedUser = userController.updateUser(validUser1);
+        User updatedUser = userController.updateUser(validUser1, null).getBody();
 
         assertEquals("ОбновлённоеИмя", updatedUser.getName());
         assertEquals(validUser1.getId(), updatedUser.getId());
     }
 
+    @Test
+    @DisplayName("Частичное обновление пользователя → меняются только переданные поля")
+    void patchUser_shouldChangeOnlyGivenFields() {
+        ObjectNode patch = JsonNodeFactory.instance.objectNode().put("name", "НовоеИмя");
+
+        User patched = userController.patchUser(validUser1.getId(), patch, null).getBody();
+
+        assertEquals("НовоеИмя", patched.getName());
+        User stored = userController.getUserById(validUser1.getId(), null).getBody();
+        assertEquals("НовоеИмя", stored.getName());
+        assertEquals(validUser1.getEmail(), stored.getEmail());
+        assertEquals(validUser1.getLogin(), stored.getLogin());
+        assertEquals(validUser1.getBirthday(), stored.getBirthday());
+    }
+
+    @Test
+    @DisplayName("Частичное обновление с устаревшим If-Match → ConflictException, данные не меняются")
+    void patchUser_withStaleIfMatch_shouldThrowConflictException() {
+        String etag = userController.getUserById(validUser1.getId(), null).getHeaders().getETag();
+        userController.patchUser(validUser1.getId(), JsonNodeFactory.instance.objectNode().put("name", "Первое"),
+                etag);
+
+        ObjectNode patch = JsonNodeFactory.instance.objectNode().put("name", "Второе");
+        assertThrows(ConflictException.class, () -> userController.patchUser(validUser1.getId(), patch, etag));
+        assertEquals("Первое", userController.getUserById(validUser1.getId(), null).getBody().getName());
+    }
+
     @Test
     @DisplayName("Добавление друга с валидными ID → возвращает ответ о дружбе")
     void addFriend_withValidIds_shouldReturnFriendshipResponse() {
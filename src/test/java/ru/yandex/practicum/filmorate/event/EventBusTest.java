@@ -0,0 +1,149 @@
+package ru.yandex.practicum.filmorate.event;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventBusTest {
+    private EventBus bus;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (bus != null) {
+            bus.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("Каждый подписчик получает все события, порядок событий одного производителя сохраняется")
+    void publish_fromManyThreads_shouldDeliverEveryEventToEveryConsumer() throws InterruptedException {
+        int producers = 4;
+        int perProducer = 20_000;
+        List<DomainEvent> fast = new CopyOnWriteArrayList<>();
+        List<DomainEvent> slow = new CopyOnWriteArrayList<>();
+        bus = new EventBus(List.of(consumer("fast", fast::add), consumer("slow", event -> {
+            slow.add(event);
+            if (slow.size() % 1_000 == 0) {
+                sleep(1);
+            }
+        })), 64);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        bus.bindTo(registry);
+        bus.start();
+
+        List<Thread> threads = new ArrayList<>();
+        for (int producer = 0; producer < producers; producer++) {
+            long offset = (long) producer * perProducer;
+            Thread thread = new Thread(() -> {
+                for (long idx = 1; idx <= perProducer; idx++) {
+                    bus.publish(new UserCreatedEvent(offset + idx));
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        awaitLag("fast", 0);
+        awaitLag("slow", 0);
+
+        assertEquals(producers * perProducer, fast.size());
+        assertEquals(producers * perProducer, slow.size());
+        ConcurrentHashMap<Long, Long> lastByProducer = new ConcurrentHashMap<>();
+        for (DomainEvent event : slow) {
+            long userId = ((UserCreatedEvent) event).userId();
+            Long previous = lastByProducer.put((userId - 1) / perProducer, userId);
+            assertTrue(previous == null || previous < userId);
+        }
+        assertTrue(registry.get("filmorate.events.backpressure.waits").functionCounter().count() > 0);
+        assertEquals(producers * perProducer, registry.get("filmorate.events.published").functionCounter().count());
+    }
+
+    @Test
+    @DisplayName("Событие, на котором подписчик упал, доставляется повторно")
+    void publish_whenConsumerFails_shouldRetryDelivery() {
+        AtomicInteger attempts = new AtomicInteger();
+        List<DomainEvent> delivered = new CopyOnWriteArrayList<>();
+        bus = new EventBus(List.of(consumer("flaky", event -> {
+            if (attempts.incrementAndGet() <= 2) {
+                throw new IllegalStateException("Временная ошибка");
+            }
+            delivered.add(event);
+        })), 16);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        bus.bindTo(registry);
+        bus.start();
+
+        bus.publish(new UserCreatedEvent(1L));
+        awaitLag("flaky", 0);
+
+        assertEquals(List.of(new UserCreatedEvent(1L)), delivered);
+        assertEquals(2, registry.get("filmorate.events.retries").functionCounter().count());
+        assertEquals(0, registry.get("filmorate.events.failures").functionCounter().count());
+    }
+
+    @Test
+    @DisplayName("Отставание подписчика видно до тех пор, пока он не разберёт события")
+    void lag_shouldReflectUnprocessedEvents() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        bus = new EventBus(List.of(consumer("blocked", event -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        })), 16);
+        bus.start();
+
+        for (long userId = 1; userId <= 10; userId++) {
+            bus.publish(new UserCreatedEvent(userId));
+        }
+        assertEquals(10, bus.lag("blocked"));
+
+        release.countDown();
+        awaitLag("blocked", 0);
+    }
+
+    private void awaitLag(String consumer, long expected) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (bus.lag(consumer) != expected) {
+            assertTrue(System.nanoTime() < deadline, "Подписчик " + consumer + " не догнал шину");
+            sleep(1);
+        }
+    }
+
+    private static EventConsumer consumer(String name, Consumer<DomainEvent> handler) {
+        return new EventConsumer() {
+            @Override
+            public String name() {
+                return name;
+            }
+
+            @Override
+            public void accept(DomainEvent event) {
+                handler.accept(event);
+            }
+        };
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
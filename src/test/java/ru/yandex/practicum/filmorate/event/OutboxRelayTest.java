@@ -0,0 +1,294 @@
+package ru.yandex.practicum.filmorate.event;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.index.FilmTrends;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.repository.film.FilmRepository;
+import ru.yandex.practicum.filmorate.repository.film.GenreRepository;
+import ru.yandex.practicum.filmorate.repository.film.MpaRepository;
+import ru.yandex.practicum.filmorate.repository.mapper.FilmRowMapper;
+import ru.yandex.practicum.filmorate.repository.mapper.GenreRowMapper;
+import ru.yandex.practicum.filmorate.repository.mapper.MpaRowMapper;
+import ru.yandex.practicum.filmorate.repository.mapper.UserRowMapper;
+import ru.yandex.practicum.filmorate.repository.outbox.OutboxEntry;
+import ru.yandex.practicum.filmorate.repository.outbox.OutboxRepository;
+import ru.yandex.practicum.filmorate.repository.user.UserRepository;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Передача идёт в отдельных потоках и транзакциях, поэтому тест работает без общей откатываемой транзакции
+@JdbcTest
+@AutoConfigureTestDatabase
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({OutboxRepository.class, UserRepository.class, UserRowMapper.class, FilmRepository.class, FilmRowMapper.class,
+        GenreRepository.class, GenreRowMapper.class, MpaRepository.class, MpaRowMapper.class, FilmTrends.class})
+class OutboxRelayTest {
+    private static final int BATCH_SIZE = 50;
+
+    @Autowired
+    private OutboxRepository outbox;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private FilmRepository filmRepository;
+
+    @Autowired
+    private FilmTrends filmTrends;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<EventBus> buses = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        for (EventBus bus : buses) {
+            bus.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("Событие попадает в outbox только вместе с закоммиченным изменением")
+    void repositoryChange_shouldWriteOutboxInSameTransaction() {
+        TransactionTemplate transactions = new TransactionTemplate(transactionManager);
+        transactions.executeWithoutResult(status -> {
+            userRepository.addUser(user("rolledback"));
+            status.setRollbackOnly();
+        });
+        assertEquals(0, outbox.countPending());
+
+        User user = user("committed");
+        userRepository.addUser(user);
+
+        List<DomainEvent> received = new CopyOnWriteArrayList<>();
+        assertEquals(1, relay(bus(received::add)).dispatchBatch());
+        assertEquals(List.of(new UserCreatedEvent(user.getId())), received);
+        assertEquals(0, outbox.countPending());
+    }
+
+    @Test
+    @DisplayName("Если передачу убить посреди пачки, ни одно событие не теряется, а тренды не учтут лайк дважды")
+    void dispatchBatch_whenKilledMidBatch_shouldRedeliverWholeBatch() throws InterruptedException {
+        Film film = new Film(null, "Фильм", "Описание", LocalDate.of(2000, 1, 1), 100L);
+        filmRepository.addFilm(film);
+        for (int idx = 1; idx <= 3; idx++) {
+            User fan = user("fan" + idx);
+            userRepository.addUser(fan);
+            filmRepository.addLike(film.getId(), fan.getId());
+        }
+        List<DomainEvent> expected = new ArrayList<>(pendingEvents());
+        LongStream.rangeClosed(1, 120)
+                .mapToObj(UserCreatedEvent::new)
+                .forEach(event -> {
+                    outbox.append(event);
+                    expected.add(event);
+                });
+
+        CountDownLatch reached = new CountDownLatch(1);
+        CountDownLatch killed = new CountDownLatch(1);
+        List<DomainEvent> beforeCrash = new CopyOnWriteArrayList<>();
+        OutboxRelay crashing = relay(bus(event -> {
+            if (killed.getCount() == 0) {
+                return;
+            }
+            beforeCrash.add(event);
+            if (beforeCrash.size() == 30) {
+                reached.countDown();
+                awaitQuietly(killed);
+            }
+        }));
+        Thread relayThread = new Thread(() -> {
+            try {
+                crashing.dispatchBatch();
+            } catch (RuntimeException ignored) {
+                // поток передачи «умер», транзакция с пачкой откатилась
+            }
+        });
+        relayThread.start();
+        reached.await();
+        // Пока пачка у подписчиков, её строки заняты, но не заблокированы транзакцией
+        assertEquals(expected.subList(BATCH_SIZE, expected.size()), pendingEvents());
+        relayThread.interrupt();
+        relayThread.join();
+        killed.countDown();
+
+        assertEquals(expected.size(), outbox.countPending());
+
+        // После перезапуска тренды загружают лайки из базы, а события тех же лайков приходят из outbox ещё раз
+        filmTrends.load();
+        assertEquals(3, filmTrends.weeklyLikes(film.getId()));
+        List<DomainEvent> afterRestart = new CopyOnWriteArrayList<>();
+        OutboxRelay restarted = relay(bus(List.of(consumer("test", afterRestart::add), filmTrends)));
+        while (restarted.dispatchBatch() > 0) {
+            assertTrue(afterRestart.size() <= expected.size());
+        }
+
+        assertEquals(30, beforeCrash.size());
+        assertEquals(expected, afterRestart);
+        assertEquals(0, outbox.countPending());
+        assertEquals(3, filmTrends.weeklyLikes(film.getId()));
+
+        User late = user("late");
+        userRepository.addUser(late);
+        filmRepository.addLike(film.getId(), late.getId());
+        assertEquals(2, restarted.dispatchBatch());
+        assertEquals(4, filmTrends.weeklyLikes(film.getId()));
+    }
+
+    @Test
+    @DisplayName("Пачку, занятую упавшим процессом, передают повторно только после истечения срока")
+    void dispatchBatch_whenClaimedByDeadProcess_shouldRedeliverAfterLease() {
+        outbox.append(new UserCreatedEvent(1L));
+        outbox.append(new UserCreatedEvent(2L));
+        Instant now = Instant.now();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                outbox.claim(BATCH_SIZE, now, now.plus(Duration.ofMinutes(1))));
+
+        List<DomainEvent> received = new CopyOnWriteArrayList<>();
+        OutboxRelay relay = relay(bus(received::add));
+        assertEquals(0, relay.dispatchBatch());
+        assertEquals(2, outbox.countPending());
+
+        jdbcTemplate.update("UPDATE outbox SET claimed_until = ?", Timestamp.from(Instant.now().minusSeconds(1)));
+        assertEquals(2, relay.dispatchBatch());
+        assertEquals(List.of(new UserCreatedEvent(1L), new UserCreatedEvent(2L)), received);
+        assertEquals(0, outbox.countPending());
+    }
+
+    @Test
+    @DisplayName("Событие, которое подписчик не обработал, откладывается и доставляется повторно только ему")
+    void dispatchBatch_whenConsumerKeepsFailing_shouldDeadLetterAndRedeliver() {
+        outbox.append(new UserCreatedEvent(1L));
+        outbox.append(new UserCreatedEvent(2L));
+        AtomicBoolean broken = new AtomicBoolean(true);
+        List<DomainEvent> healthy = new CopyOnWriteArrayList<>();
+        List<DomainEvent> flaky = new CopyOnWriteArrayList<>();
+        OutboxRelay relay = relay(bus(List.of(consumer("healthy", healthy::add), consumer("flaky", event -> {
+            if (broken.get() && event.equals(new UserCreatedEvent(2L))) {
+                throw new IllegalStateException("Подписчик недоступен");
+            }
+            flaky.add(event);
+        }))));
+
+        assertEquals(2, relay.dispatchBatch());
+        assertEquals(0, outbox.countPending());
+        assertEquals(1, outbox.countDeadLetters());
+        assertEquals(List.of(new UserCreatedEvent(1L)), flaky);
+
+        makeDeadLettersDue();
+        assertEquals(0, relay.redeliverBatch());
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT attempts FROM outbox_dead_letters", Integer.class));
+
+        broken.set(false);
+        makeDeadLettersDue();
+        assertEquals(1, relay.redeliverBatch());
+        assertEquals(0, outbox.countDeadLetters());
+        assertEquals(List.of(new UserCreatedEvent(1L), new UserCreatedEvent(2L)), flaky);
+        assertEquals(List.of(new UserCreatedEvent(1L), new UserCreatedEvent(2L)), healthy);
+    }
+
+    @Test
+    @DisplayName("Обработанные строки удаляются после срока хранения, необработанные остаются")
+    void prune_shouldDeleteOnlyProcessedRows() throws InterruptedException {
+        outbox.append(new UserCreatedEvent(1L));
+        outbox.append(new UserCreatedEvent(2L));
+        OutboxRelay relay = relay(bus(event -> {
+        }));
+        relay.dispatchBatch();
+        outbox.append(new UserCreatedEvent(3L));
+        Thread.sleep(5);
+
+        assertEquals(2, relay.prune());
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM outbox", Integer.class));
+        assertEquals(1, outbox.countPending());
+    }
+
+    private OutboxRelay relay(EventBus bus) {
+        return new OutboxRelay(outbox, bus, transactionManager, BATCH_SIZE, Duration.ofMillis(10), Duration.ZERO,
+                Duration.ofMinutes(1));
+    }
+
+    private EventBus bus(Consumer<DomainEvent> handler) {
+        return bus(List.of(consumer("test", handler)));
+    }
+
+    private EventBus bus(List<EventConsumer> consumers) {
+        EventBus bus = new EventBus(consumers, 64);
+        bus.start();
+        buses.add(bus);
+        return bus;
+    }
+
+    // Свободные необработанные события; занятие строк откатывается
+    private List<DomainEvent> pendingEvents() {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            status.setRollbackOnly();
+            Instant now = Instant.now();
+            return outbox.claim(1000, now, now).stream()
+                    .map(OutboxEntry::event)
+                    .toList();
+        });
+    }
+
+    private void makeDeadLettersDue() {
+        jdbcTemplate.update("UPDATE outbox_dead_letters SET next_attempt_at = ?",
+                Timestamp.from(Instant.now().minusSeconds(1)));
+    }
+
+    private static EventConsumer consumer(String name, Consumer<DomainEvent> handler) {
+        return new EventConsumer() {
+            @Override
+            public String name() {
+                return name;
+            }
+
+            @Override
+            public void accept(DomainEvent event) {
+                handler.accept(event);
+            }
+        };
+    }
+
+    private static User user(String login) {
+        return new User(null, login + "@yandex.ru", login, login, LocalDate.of(1990, 1, 1));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
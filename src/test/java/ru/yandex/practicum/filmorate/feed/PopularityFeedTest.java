@@ -0,0 +1,232 @@
+package ru.yandex.practicum.filmorate.feed;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.yandex.practicum.filmorate.dto.PopularityFrame;
+import ru.yandex.practicum.filmorate.dto.RankedFilm;
+import ru.yandex.practicum.filmorate.event.FilmLikedEvent;
+import ru.yandex.practicum.filmorate.index.FilmLikeCounts;
+import ru.yandex.practicum.filmorate.index.PopularityLeaderboards;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PopularityFeedTest {
+    private static final Pattern EVENT = Pattern.compile("event:(\\w+)\\ndata:(.*)\\n", Pattern.DOTALL);
+
+    private final ObjectMapper json = new ObjectMapper();
+    private PopularityLeaderboards leaderboards;
+    private PopularityFeed feed;
+
+    @BeforeEach
+    void setUp() {
+        leaderboards = new PopularityLeaderboards(null, new FilmLikeCounts(null));
+        for (long filmId = 1; filmId <= 3; filmId++) {
+            leaderboards.index(filmId, LocalDate.of(2000, 1, 1), Set.of());
+        }
+        feed = new PopularityFeed(leaderboards, json, 10, Duration.ofMillis(250), 2, Duration.ofMillis(100));
+    }
+
+    @AfterEach
+    void tearDown() {
+        feed.stop();
+    }
+
+    @Test
+    @DisplayName("Подписчик получает снимок, затем одну разницу на окно с изменившимися позициями")
+    void tick_shouldCoalesceLikesIntoSingleDelta() throws Exception {
+        RecordingEmitter emitter = new RecordingEmitter(new CountDownLatch(0));
+        feed.subscribe(emitter);
+
+        PopularityFrame snapshot = emitter.awaitFrame(0);
+        assertEquals("snapshot", snapshot.type());
+        assertEquals(List.of(new RankedFilm(1, 1, 0), new RankedFilm(2, 2, 0), new RankedFilm(3, 3, 0)),
+                snapshot.films());
+
+        for (long userId = 1; userId <= 3; userId++) {
+            like(2L, userId);
+        }
+        feed.tick();
+        feed.tick();
+
+        PopularityFrame delta = emitter.awaitFrame(1);
+        assertEquals("delta", delta.type());
+        assertEquals(1, delta.version());
+        assertEquals(List.of(new RankedFilm(2, 1, 3), new RankedFilm(1, 2, 0)), delta.films());
+        assertTrue(delta.removed().isEmpty());
+        assertEquals(2, emitter.frames.size());
+    }
+
+    @Test
+    @DisplayName("Медленному подписчику промежуточные кадры не копятся: он получает свежий снимок")
+    void tick_whenSubscriberIsSlow_shouldDropIntermediateFrames() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingEmitter slow = new RecordingEmitter(release);
+        RecordingEmitter fast = new RecordingEmitter(new CountDownLatch(0));
+        feed.subscribe(slow);
+        feed.subscribe(fast);
+        fast.awaitFrame(0);
+
+        for (int round = 1; round <= 5; round++) {
+            like(3L, round);
+            feed.tick();
+            assertEquals("delta", fast.awaitFrame(round).type());
+        }
+        release.countDown();
+
+        PopularityFrame latest = slow.awaitFrame(1);
+        assertEquals("snapshot", latest.type());
+        assertEquals(5, latest.version());
+        assertEquals(new RankedFilm(3, 1, 5), latest.films().getFirst());
+        assertEquals(2, slow.frames.size());
+        assertEquals(6, fast.frames.size());
+    }
+
+    @Test
+    @DisplayName("Подписчики, которые не читают, отключаются по сроку отправки и не останавливают остальных")
+    void evictStalled_whenSubscribersNeverRead_shouldKeepFeedMoving() throws Exception {
+        CountDownLatch never = new CountDownLatch(1);
+        StalledEmitter first = new StalledEmitter(never);
+        StalledEmitter second = new StalledEmitter(never);
+        RecordingEmitter reader = new RecordingEmitter(new CountDownLatch(0));
+        try {
+            feed.subscribe(first);
+            feed.subscribe(second);
+            first.sending.await();
+            second.sending.await();
+            feed.subscribe(reader);
+
+            Thread.sleep(150);
+            feed.evictStalled();
+            assertEquals(1, feed.subscriberCount());
+            assertEquals("snapshot", reader.awaitFrame(0).type());
+
+            like(3L, 1);
+            feed.tick();
+            assertEquals("delta", reader.awaitFrame(1).type());
+        } finally {
+            never.countDown();
+        }
+        assertTrue(first.failed.await(5, TimeUnit.SECONDS));
+        assertTrue(second.failed.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @DisplayName("Отключённый подписчик с ждущими кадром и проверкой соединения не сужает пул отправки сверх меры")
+    void evictStalled_whenStalledSendReturnsWithFramesPending_shouldRestorePoolOnce() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        StalledEmitter stalled = new StalledEmitter(release);
+        try {
+            feed.subscribe(stalled);
+            stalled.sending.await();
+            like(3L, 1);
+            feed.tick();
+            feed.heartbeat();
+
+            Thread.sleep(150);
+            feed.evictStalled();
+            assertEquals(3, feed.senderPoolSize());
+        } finally {
+            release.countDown();
+        }
+        assertTrue(stalled.failed.await(5, TimeUnit.SECONDS));
+        assertEquals(2, feed.senderPoolSize());
+        assertEquals(1, stalled.sends.get());
+
+        RecordingEmitter reader = new RecordingEmitter(new CountDownLatch(0));
+        feed.subscribe(reader);
+        assertEquals("snapshot", reader.awaitFrame(0).type());
+    }
+
+    private void like(Long filmId, long userId) {
+        leaderboards.changeLikes(filmId, 1);
+        feed.accept(new FilmLikedEvent(filmId, userId, Instant.now()));
+    }
+
+    // Клиент, который перестал читать: запись висит и не реагирует на прерывание, как запись в полный сокет
+    private static final class StalledEmitter extends SseEmitter {
+        private final CountDownLatch release;
+        private final CountDownLatch sending = new CountDownLatch(1);
+        private final CountDownLatch failed = new CountDownLatch(1);
+        private final AtomicInteger sends = new AtomicInteger();
+
+        private StalledEmitter(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            sends.incrementAndGet();
+            sending.countDown();
+            boolean interrupted = false;
+            while (release.getCount() > 0) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public synchronized void completeWithError(Throwable ex) {
+            super.completeWithError(ex);
+            failed.countDown();
+        }
+    }
+
+    private final class RecordingEmitter extends SseEmitter {
+        private final CountDownLatch release;
+        private final List<PopularityFrame> frames = new CopyOnWriteArrayList<>();
+
+        private RecordingEmitter(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+            StringBuilder text = new StringBuilder();
+            builder.build().forEach(part -> text.append(part.getData()));
+            Matcher matcher = EVENT.matcher(text);
+            if (matcher.find()) {
+                PopularityFrame frame = json.readValue(matcher.group(2).trim(), PopularityFrame.class);
+                assertEquals(matcher.group(1), frame.type());
+                frames.add(frame);
+            }
+        }
+
+        private PopularityFrame awaitFrame(int index) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (frames.size() <= index) {
+                assertTrue(System.nanoTime() < deadline, "Кадр " + index + " не пришёл");
+                Thread.sleep(1);
+            }
+            return frames.get(index);
+        }
+    }
+}
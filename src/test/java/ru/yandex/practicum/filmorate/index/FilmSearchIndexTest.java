@@ -0,0 +1,111 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.repository.film.FilmRepository;
+import ru.yandex.practicum.filmorate.repository.film.GenreRepository;
+import ru.yandex.practicum.filmorate.repository.film.MpaRepository;
+import ru.yandex.practicum.filmorate.repository.mapper.FilmRowMapper;
+import ru.yandex.practicum.filmorate.repository.mapper.GenreRowMapper;
+import ru.yandex.practicum.filmorate.repository.mapper.MpaRowMapper;
+import ru.yandex.practicum.filmorate.repository.mapper.UserRowMapper;
+import ru.yandex.practicum.filmorate.repository.user.UserRepository;
+
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+@Import({FilmRepository.class, UserRepository.class, GenreRepository.class, FilmRowMapper.class, UserRowMapper.class,
+        MpaRepository.class, MpaRowMapper.class, GenreRowMapper.class, FilmSearchIndex.class, FilmLikeCounts.class})
+class FilmSearchIndexTest {
+    private static final Set<SearchField> ALL_FIELDS = EnumSet.allOf(SearchField.class);
+
+    @Autowired
+    private FilmSearchIndex filmSearchIndex;
+
+    @Autowired
+    private FilmLikeCounts filmLikeCounts;
+
+    @Autowired
+    private FilmRepository filmRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    @DisplayName("Индекс строится из базы и ищет по кириллице и латинице без учёта регистра и буквы ё")
+    void rebuild_shouldFindCyrillicAndLatinTitles() {
+        Film trees = addFilm("Ёлки", "Новогодняя комедия");
+        Film matrix = addFilm("The Matrix", "Neo wakes up");
+
+        filmSearchIndex.rebuild();
+
+        assertEquals(List.of(trees.getId()), filmSearchIndex.search("ЕЛКИ", ALL_FIELDS, 10));
+        assertEquals(List.of(matrix.getId()), filmSearchIndex.search("matrix", ALL_FIELDS, 10));
+    }
+
+    @Test
+    @DisplayName("Поиск только по названию не находит совпадения в описании")
+    void search_byTitle_shouldIgnoreDescription() {
+        addFilm("Бриллиантовая рука", "Комедия про контрабанду");
+        filmSearchIndex.rebuild();
+
+        assertTrue(filmSearchIndex.search("контрабанду", EnumSet.of(SearchField.TITLE), 10).isEmpty());
+        assertEquals(1, filmSearchIndex.search("контрабанду", EnumSet.of(SearchField.DESCRIPTION), 10).size());
+    }
+
+    @Test
+    @DisplayName("Совпадение в названии ранжируется выше совпадения в описании")
+    void search_titleMatch_shouldRankAboveDescriptionMatch() {
+        Film inDescription = addFilm("Операция Ы", "Приключения Шурика");
+        Film inTitle = addFilm("Шурик", "Студент попадает в истории");
+        filmSearchIndex.rebuild();
+
+        assertEquals(List.of(inTitle.getId(), inDescription.getId()),
+                filmSearchIndex.search("шурика шурик", ALL_FIELDS, 10));
+    }
+
+    @Test
+    @DisplayName("При равной релевантности выше фильм с большим количеством лайков")
+    void search_equalRelevance_shouldPreferPopularFilm() {
+        Film first = addFilm("Космос", "Фильм");
+        Film second = addFilm("Космос", "Фильм");
+        User user = new User(null, "mail@yandex.ru", "login", "Имя", LocalDate.of(1990, 1, 1));
+        userRepository.addUser(user);
+        filmRepository.addLike(second.getId(), user.getId());
+
+        filmLikeCounts.load();
+        filmSearchIndex.rebuild();
+
+        assertEquals(List.of(second.getId(), first.getId()), filmSearchIndex.search("космос", ALL_FIELDS, 10));
+    }
+
+    @Test
+    @DisplayName("Переиндексация фильма убирает старые слова названия")
+    void index_updatedFilm_shouldReplaceOldTerms() {
+        filmSearchIndex.index(1L, "Старое название", null);
+        filmSearchIndex.index(1L, "Новое название", null);
+
+        assertTrue(filmSearchIndex.search("старое", ALL_FIELDS, 10).isEmpty());
+        assertEquals(List.of(1L), filmSearchIndex.search("новое", ALL_FIELDS, 10));
+    }
+
+    private Film addFilm(String name, String description) {
+        Film film = new Film(null, name, description, LocalDate.of(2000, 1, 1), 100L);
+        filmRepository.addFilm(film);
+        return film;
+    }
+}
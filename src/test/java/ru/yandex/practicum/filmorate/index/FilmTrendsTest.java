@@ -0,0 +1,93 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.repository.film.FilmRepository;
+import ru.yandex.practicum.filmorate.repository.film.GenreRepository;
+import ru.yandex.practicum.filmorate.repository.film.MpaRepository;
+import ru.yandex.practicum.filmorate.repository.mapper.FilmRowMapper;
+import ru.yandex.practicum.filmorate.repository.mapper.GenreRowMapper;
+import ru.yandex.practicum.filmorate.repository.mapper.MpaRowMapper;
+import ru.yandex.practicum.filmorate.repository.mapper.UserRowMapper;
+import ru.yandex.practicum.filmorate.repository.outbox.OutboxRepository;
+import ru.yandex.practicum.filmorate.repository.user.UserRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+@Import({FilmRepository.class, UserRepository.class, GenreRepository.class, FilmRowMapper.class, UserRowMapper.class,
+        MpaRepository.class, MpaRowMapper.class, GenreRowMapper.class, FilmTrends.class, OutboxRepository.class})
+class FilmTrendsTest {
+    private static final Instant NOW = Instant.parse("2024-03-01T12:30:00Z");
+
+    @Autowired
+    private FilmTrends filmTrends;
+
+    @Autowired
+    private FilmRepository filmRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    @DisplayName("Лайки за последнюю неделю загружаются из базы вместе со временем")
+    void load_shouldRestoreRecentLikes() {
+        Film film = new Film(null, "Фильм", "Описание", LocalDate.of(2000, 1, 1), 100L);
+        filmRepository.addFilm(film);
+        User user = new User(null, "mail@yandex.ru", "login", "Имя", LocalDate.of(1990, 1, 1));
+        userRepository.addUser(user);
+        filmRepository.addLike(film.getId(), user.getId());
+
+        filmTrends.load();
+
+        assertEquals(List.of(film.getId()), filmTrends.trending(TrendingWindow.HOUR, 10));
+    }
+
+    @Test
+    @DisplayName("Свежий лайк весит больше старых в коротком окне, но не в недельном")
+    void trending_shouldDecayOldLikes() {
+        Instant fiftyMinutesAgo = NOW.minus(Duration.ofMinutes(50));
+        filmTrends.record(1L, fiftyMinutesAgo, 1, NOW);
+        filmTrends.record(1L, fiftyMinutesAgo, 1, NOW);
+        filmTrends.record(2L, NOW, 1, NOW);
+
+        assertEquals(List.of(2L, 1L), filmTrends.trending(TrendingWindow.HOUR, 10, NOW));
+        assertEquals(List.of(1L, 2L), filmTrends.trending(TrendingWindow.WEEK, 10, NOW));
+        assertEquals(List.of(1L), filmTrends.trending(TrendingWindow.WEEK, 1, NOW));
+    }
+
+    @Test
+    @DisplayName("Лайки вне окна не учитываются, снятый лайк вычитается")
+    void trending_shouldRespectWindowAndUnlikes() {
+        filmTrends.record(1L, NOW.minus(Duration.ofHours(2)), 1, NOW);
+        filmTrends.record(2L, NOW, 1, NOW);
+        filmTrends.record(2L, NOW, -1, NOW);
+
+        assertTrue(filmTrends.trending(TrendingWindow.HOUR, 10, NOW).isEmpty());
+        assertEquals(List.of(1L), filmTrends.trending(TrendingWindow.DAY, 10, NOW));
+    }
+
+    @Test
+    @DisplayName("Фильмы без лайков за неделю удаляются из памяти")
+    void trending_shouldCompactIdleFilms() {
+        filmTrends.record(1L, NOW, 1, NOW);
+        Instant later = NOW.plus(Duration.ofDays(8));
+
+        assertTrue(filmTrends.trending(TrendingWindow.WEEK, 10, later).isEmpty());
+        assertEquals(0, filmTrends.activeFilms());
+    }
+}
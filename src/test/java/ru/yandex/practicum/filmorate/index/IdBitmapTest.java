@@ -0,0 +1,28 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdBitmapTest {
+    @Test
+    @DisplayName("Битовая карта растёт под большие ID и не теряет уже добавленные")
+    void add_shouldGrowAndKeepExistingIds() {
+        IdBitmap bitmap = new IdBitmap();
+        bitmap.add(1);
+        bitmap.add(63);
+        bitmap.add(64);
+        bitmap.add(5_000_000);
+        bitmap.add(64);
+
+        assertTrue(bitmap.contains(1));
+        assertTrue(bitmap.contains(63));
+        assertTrue(bitmap.contains(64));
+        assertTrue(bitmap.contains(5_000_000));
+        assertFalse(bitmap.contains(2));
+        assertFalse(bitmap.contains(5_000_001));
+        assertFalse(bitmap.contains(0));
+        assertEquals(4, bitmap.cardinality());
+    }
+}
@@ -0,0 +1,115 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.repository.film.FilmRepository;
+import ru.yandex.practicum.filmorate.repository.film.GenreRepository;
+import ru.yandex.practicum.filmorate.repository.film.MpaRepository;
+import ru.yandex.practicum.filmorate.repository.mapper.FilmRowMapper;
+import ru.yandex.practicum.filmorate.repository.mapper.GenreRowMapper;
+import ru.yandex.practicum.filmorate.repository.mapper.MpaRowMapper;
+import ru.yandex.practicum.filmorate.repository.mapper.UserRowMapper;
+import ru.yandex.practicum.filmorate.repository.user.UserRepository;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+@Import({FilmRepository.class, UserRepository.class, GenreRepository.class, FilmRowMapper.class, UserRowMapper.class,
+        MpaRepository.class, MpaRowMapper.class, GenreRowMapper.class, PopularityLeaderboards.class,
+        FilmLikeCounts.class})
+class PopularityLeaderboardsTest {
+    @Autowired
+    private PopularityLeaderboards popularityLeaderboards;
+
+    @Autowired
+    private FilmLikeCounts filmLikeCounts;
+
+    @Autowired
+    private FilmRepository filmRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    @DisplayName("Рейтинги строятся из базы по жанрам и году выпуска с учётом лайков")
+    void rebuild_shouldRankByGenreAndYear() {
+        Film comedy2000 = addFilm(2000, 1L);
+        Film comedyDrama2000 = addFilm(2000, 1L, 2L);
+        Film drama2010 = addFilm(2010, 2L);
+        User user = new User(null, "mail@yandex.ru", "login", "Имя", LocalDate.of(1990, 1, 1));
+        userRepository.addUser(user);
+        filmRepository.addLike(comedyDrama2000.getId(), user.getId());
+
+        filmLikeCounts.load();
+        popularityLeaderboards.rebuild();
+
+        assertEquals(List.of(comedyDrama2000.getId(), comedy2000.getId()), popularityLeaderboards.top(1L, null, 10));
+        assertEquals(List.of(comedyDrama2000.getId(), drama2010.getId()), popularityLeaderboards.top(2L, null, 10));
+        assertEquals(List.of(drama2010.getId()), popularityLeaderboards.top(2L, 2010, 10));
+        assertEquals(List.of(comedyDrama2000.getId()), popularityLeaderboards.top(null, 2000, 1));
+        assertTrue(popularityLeaderboards.top(3L, null, 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Лайки и смена жанров переставляют фильм в рейтингах")
+    void changes_shouldMoveFilmBetweenBoards() {
+        popularityLeaderboards.index(1L, LocalDate.of(1999, 1, 1), Set.of(1L));
+        popularityLeaderboards.index(2L, LocalDate.of(1999, 1, 1), Set.of(1L));
+        popularityLeaderboards.changeLikes(2L, 2);
+        popularityLeaderboards.changeLikes(1L, 1);
+
+        assertEquals(List.of(2L, 1L), popularityLeaderboards.top(1L, 1999, 10));
+
+        popularityLeaderboards.index(2L, LocalDate.of(2001, 1, 1), Set.of(4L));
+
+        assertEquals(List.of(1L), popularityLeaderboards.top(1L, null, 10));
+        assertTrue(popularityLeaderboards.top(null, 1999, 10).contains(1L));
+        assertEquals(List.of(2L), popularityLeaderboards.top(4L, 2001, 10));
+    }
+
+    @Test
+    @DisplayName("Разница жанров из события обновления переносит фильм только между затронутыми рейтингами")
+    void reindex_shouldApplyGenreDiff() {
+        popularityLeaderboards.index(1L, LocalDate.of(1999, 1, 1), Set.of(1L, 2L));
+        popularityLeaderboards.changeLikes(1L, 3);
+
+        popularityLeaderboards.reindex(1L, LocalDate.of(1999, 1, 1), Set.of(4L), Set.of(1L));
+
+        assertTrue(popularityLeaderboards.top(1L, null, 10).isEmpty());
+        assertEquals(List.of(1L), popularityLeaderboards.top(2L, 1999, 10));
+        assertEquals(List.of(1L), popularityLeaderboards.top(4L, 1999, 10));
+        assertEquals(3, popularityLeaderboards.overall(1).get(0).likes());
+
+        popularityLeaderboards.reindex(1L, LocalDate.of(2005, 1, 1), Set.of(), Set.of());
+
+        assertTrue(popularityLeaderboards.top(null, 1999, 10).isEmpty());
+        assertEquals(List.of(1L), popularityLeaderboards.top(2L, 2005, 10));
+        assertEquals(List.of(1L), popularityLeaderboards.top(4L, 2005, 10));
+    }
+
+    private Film addFilm(int year, Long... genreIds) {
+        Film film = new Film(null, "Фильм", "Описание", LocalDate.of(year, 1, 1), 100L);
+        Set<Genre> genres = new HashSet<>();
+        for (Long genreId : genreIds) {
+            genres.add(new Genre(genreId, null));
+        }
+        film.setGenres(genres);
+        filmRepository.addFilm(film);
+        return film;
+    }
+}
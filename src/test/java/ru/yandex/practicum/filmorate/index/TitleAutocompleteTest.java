@@ -0,0 +1,108 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.dto.FilmSuggestion;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.repository.film.FilmRepository;
+import ru.yandex.practicum.filmorate.repository.film.GenreRepository;
+import ru.yandex.practicum.filmorate.repository.film.MpaRepository;
+import ru.yandex.practicum.filmorate.repository.mapper.FilmRowMapper;
+import ru.yandex.practicum.filmorate.repository.mapper.GenreRowMapper;
+import ru.yandex.practicum.filmorate.repository.mapper.MpaRowMapper;
+import ru.yandex.practicum.filmorate.repository.mapper.UserRowMapper;
+import ru.yandex.practicum.filmorate.repository.user.UserRepository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+@Import({FilmRepository.class, UserRepository.class, GenreRepository.class, FilmRowMapper.class, UserRowMapper.class,
+        MpaRepository.class, MpaRowMapper.class, GenreRowMapper.class, TitleAutocomplete.class, FilmLikeCounts.class})
+class TitleAutocompleteTest {
+    @Autowired
+    private TitleAutocomplete titleAutocomplete;
+
+    @Autowired
+    private FilmLikeCounts filmLikeCounts;
+
+    @Autowired
+    private FilmRepository filmRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    @DisplayName("Дерево строится из базы и дополняет префикс без учёта регистра")
+    void rebuild_shouldCompletePrefix() {
+        Film matrix = addFilm("The Matrix");
+        addFilm("Терминатор");
+
+        titleAutocomplete.rebuild();
+
+        assertEquals(List.of(new FilmSuggestion(matrix.getId(), "The Matrix")), titleAutocomplete.suggest("THE m", 10));
+    }
+
+    @Test
+    @DisplayName("Популярный фильм предлагается первым")
+    void suggest_shouldRankByLikes() {
+        Film first = addFilm("Терминатор");
+        Film second = addFilm("Терминатор 2");
+        User user = new User(null, "mail@yandex.ru", "login", "Имя", LocalDate.of(1990, 1, 1));
+        userRepository.addUser(user);
+        filmRepository.addLike(second.getId(), user.getId());
+
+        filmLikeCounts.load();
+        titleAutocomplete.rebuild();
+
+        assertEquals(List.of(second.getId(), first.getId()), ids(titleAutocomplete.suggest("терм", 10)));
+    }
+
+    @Test
+    @DisplayName("Префикс с опечаткой находит фильм, точное совпадение идёт раньше")
+    void suggest_withTypo_shouldUseEditDistance() {
+        titleAutocomplete.index(1L, "Ёжик в тумане");
+        titleAutocomplete.index(2L, "Ежики");
+        titleAutocomplete.index(3L, "Матрица");
+
+        assertEquals(List.of(3L), ids(titleAutocomplete.suggest("матирца", 10)));
+        assertEquals(List.of(2L, 1L), ids(titleAutocomplete.suggest("ежики", 10)));
+        assertTrue(titleAutocomplete.suggest("ем", 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Лайк поднимает фильм в подсказках, переименование убирает старое название")
+    void indexAndLikes_shouldKeepTrieInSync() {
+        titleAutocomplete.index(1L, "Солярис");
+        titleAutocomplete.index(2L, "Сталкер");
+        titleAutocomplete.changeLikes(2L, 1);
+
+        assertEquals(List.of(2L, 1L), ids(titleAutocomplete.suggest("с", 10)));
+
+        titleAutocomplete.index(2L, "Зеркало");
+
+        assertEquals(List.of(1L), ids(titleAutocomplete.suggest("с", 10)));
+        assertEquals(List.of(2L), ids(titleAutocomplete.suggest("зер", 10)));
+        assertEquals(2, titleAutocomplete.size());
+    }
+
+    private static List<Long> ids(List<FilmSuggestion> suggestions) {
+        return suggestions.stream().map(FilmSuggestion::id).toList();
+    }
+
+    private Film addFilm(String name) {
+        Film film = new Film(null, name, "Описание", LocalDate.of(2000, 1, 1), 100L);
+        filmRepository.addFilm(film);
+        return film;
+    }
+}
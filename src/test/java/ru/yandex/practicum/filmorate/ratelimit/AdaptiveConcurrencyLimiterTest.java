@@ -0,0 +1,82 @@
+package ru.yandex.practicum.filmorate.ratelimit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimiterTest {
+    private static final Duration LATENCY_THRESHOLD = Duration.ofMillis(100);
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(500);
+
+    private final AtomicReference<Double> poolWait = new AtomicReference<>(0d);
+
+    @Test
+    @DisplayName("Запросы сверх предела не допускаются, освободившееся место снова доступно")
+    void tryAcquire_shouldRespectLimit() {
+        AdaptiveConcurrencyLimiter limiter = limiter(2);
+
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+
+        limiter.release(FAST, System.nanoTime());
+        assertTrue(limiter.tryAcquire());
+    }
+
+    @Test
+    @DisplayName("Быстрые ответы поднимают предел на единицу за каждые limit запросов")
+    void release_whenFast_shouldIncreaseAdditively() {
+        AdaptiveConcurrencyLimiter limiter = limiter(10);
+
+        runRequests(limiter, 10, FAST);
+
+        assertEquals(11, limiter.limit());
+    }
+
+    @Test
+    @DisplayName("Медленный ответ снижает предел не чаще раза за порог задержки")
+    void release_whenSlow_shouldDecreaseOncePerThreshold() {
+        AdaptiveConcurrencyLimiter limiter = limiter(10);
+        long now = System.nanoTime() + LATENCY_THRESHOLD.toNanos();
+
+        limiter.tryAcquire();
+        limiter.release(SLOW, now);
+        limiter.tryAcquire();
+        limiter.release(SLOW, now);
+        assertEquals(9, limiter.limit());
+
+        limiter.tryAcquire();
+        limiter.release(SLOW, now + LATENCY_THRESHOLD.toNanos());
+        assertEquals(8, limiter.limit());
+    }
+
+    @Test
+    @DisplayName("Долгое ожидание соединения из пула снижает предел даже при быстрых ответах")
+    void release_whenPoolWaitIsHigh_shouldDecrease() {
+        AdaptiveConcurrencyLimiter limiter = limiter(10);
+        poolWait.set(80d);
+
+        limiter.tryAcquire();
+        limiter.release(FAST, System.nanoTime() + LATENCY_THRESHOLD.toNanos());
+
+        assertEquals(9, limiter.limit());
+    }
+
+    private AdaptiveConcurrencyLimiter limiter(int initialLimit) {
+        return new AdaptiveConcurrencyLimiter(initialLimit, 1, 100, LATENCY_THRESHOLD, Duration.ofMillis(50),
+                poolWait::get);
+    }
+
+    private static void runRequests(AdaptiveConcurrencyLimiter limiter, int count, long latencyNanos) {
+        for (int i = 0; i < count; i++) {
+            assertTrue(limiter.tryAcquire());
+            limiter.release(latencyNanos, System.nanoTime());
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package ru.yandex.practicum.filmorate.ratelimit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.ServletException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteLoadFilterTest {
+    private static final String CLIENT = "10.0.0.1";
+
+    private final ObjectMapper json = new ObjectMapper();
+
+    @Test
+    @DisplayName("Клиент, исчерпавший корзину эндпоинта, получает 429, другие эндпоинты и клиенты — нет")
+    void doFilter_whenBucketIsEmpty_shouldRejectOnlyThatClientAndEndpoint() throws Exception {
+        WriteLoadFilter filter = new WriteLoadFilter(0.01, 3, 1000, unlimited(), json);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(200, perform(filter, "PUT", "/films/" + (i + 1) + "/like/7", CLIENT).getStatus());
+        }
+        MockHttpServletResponse rejected = perform(filter, "PUT", "/films/42/like/8", CLIENT);
+
+        assertEquals(429, rejected.getStatus());
+        assertTrue(Long.parseLong(rejected.getHeader("Retry-After")) > 0);
+        assertEquals("Превышен лимит запросов", json.readTree(rejected.getContentAsByteArray()).get("error").asText());
+        assertEquals(200, perform(filter, "PUT", "/users/1/friends/2", CLIENT).getStatus());
+        assertEquals(200, perform(filter, "PUT", "/films/1/like/7", "10.0.0.2").getStatus());
+    }
+
+    @Test
+    @DisplayName("Чтения не ограничиваются")
+    void doFilter_whenRead_shouldNotConsumeTokens() throws Exception {
+        WriteLoadFilter filter = new WriteLoadFilter(0.01, 1, 1000, unlimited(), json);
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(200, perform(filter, "GET", "/films/1", CLIENT).getStatus());
+        }
+        assertEquals(200, perform(filter, "PUT", "/films/1/like/7", CLIENT).getStatus());
+    }
+
+    @Test
+    @DisplayName("Сверх предела одновременных записей запрос сбрасывается с 429")
+    void doFilter_whenConcurrencyLimitReached_shouldShedRequest() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 1,
+                Duration.ofSeconds(1), Duration.ofSeconds(1), () -> 0);
+        WriteLoadFilter filter = new WriteLoadFilter(1000, 1000, 1000, limiter, json);
+        AtomicReference<MockHttpServletResponse> nested = new AtomicReference<>();
+
+        MockHttpServletResponse outer = new MockHttpServletResponse();
+        filter.doFilter(request("PUT", "/films/1/like/7", CLIENT), outer, (request, response) ->
+                nested.set(perform(filter, "PUT", "/users/1/friends/2", "10.0.0.2")));
+
+        assertEquals(200, outer.getStatus());
+        assertEquals(429, nested.get().getStatus());
+        assertEquals(0, limiter.inFlight());
+        assertEquals(200, perform(filter, "PUT", "/users/1/friends/2", "10.0.0.2").getStatus());
+    }
+
+    private static AdaptiveConcurrencyLimiter unlimited() {
+        return new AdaptiveConcurrencyLimiter(1000, 1000, 1000, Duration.ofSeconds(1), Duration.ofSeconds(1), () -> 0);
+    }
+
+    private static MockHttpServletResponse perform(WriteLoadFilter filter, String method, String uri, String client)
+            throws ServletException, IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request(method, uri, client), response, new MockFilterChain());
+        return response;
+    }
+
+    private static MockHttpServletRequest request(String method, String uri, String client) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        request.setRemoteAddr(client);
+        return request;
+    }
+}
@@ -7,34 +7,59 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.cache.FilmCache;
+import ru.yandex.practicum.filmorate.cache.UserCache;
 import ru.yandex.practicum.filmorate.controller.FilmController;
 import ru.yandex.practicum.filmorate.controller.UserController;
+import ru.yandex.practicum.filmorate.event.FilmUpdatedEvent;
+import ru.yandex.practicum.filmorate.exception.ConflictException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.index.FilmLikeCounts;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.FilmTrends;
+import ru.yandex.practicum.filmorate.index.PopularityLeaderboards;
+import ru.yandex.practicum.filmorate.index.TitleAutocomplete;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.repository.film.CachingFilmStorage;
 import ru.yandex.practicum.filmorate.repository.mapper.FilmRowMapper;
 import ru.yandex.practicum.filmorate.repository.mapper.GenreRowMapper;
 import ru.yandex.practicum.filmorate.repository.mapper.MpaRowMapper;
 import ru.yandex.practicum.filmorate.repository.mapper.UserRowMapper;
+import ru.yandex.practicum.filmorate.repository.outbox.OutboxRepository;
+import ru.yandex.practicum.filmorate.repository.user.CachingUserStorage;
 import ru.yandex.practicum.filmorate.repository.user.UserRepository;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.SingleFlight;
 import ru.yandex.practicum.filmorate.service.UserService;
 
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 @JdbcTest
 @AutoConfigureTestDatabase
 @DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
-@Import({FilmRepository.class, UserRepository.class, GenreRepository.class, MpaRepository.class,
-        FilmService.class, UserService.class, FilmController.class, UserController.class,
-        FilmRowMapper.class, UserRowMapper.class, MpaRowMapper.class, GenreRowMapper.class})
+@Import({FilmRepository.class, UserRepository.class, GenreRepository.class, MpaRepository.class, FilmService.class,
+        UserService.class, FilmController.class, UserController.class, FilmRowMapper.class, UserRowMapper.class,
+        MpaRowMapper.class, GenreRowMapper.class, FilmSearchIndex.class, FilmLikeCounts.class, TitleAutocomplete.class,
+        PopularityLeaderboards.class, FilmTrends.class, OutboxRepository.class, CachingFilmStorage.class,
+        FilmCache.class, CachingUserStorage.class, UserCache.class, SingleFlight.class,
+        FilmRepositoryTest.UpdatedEvents.class})
 class FilmRepositoryTest {
 
     @Autowired
@@ -43,6 +68,15 @@ class FilmRepositoryTest {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private CachingFilmStorage cachingFilmStorage;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UpdatedEvents updatedEvents;
+
     private Film testFilm;
     private User validUser;
 
@@ -147,6 +181,85 @@ class FilmRepositoryTest {
         assertDoesNotThrow(() -> filmRepository.deleteLike(testFilm.getId(), validUser.getId()));
     }
 
+    @Test
+    @DisplayName("Число лайков → приходит в фильме по ID, в списке всех фильмов и в популярных")
+    void likesCount_shouldBeReturnedOnEveryFilmPayload() {
+        Film other = new Film(null, "Другой", "Описание", LocalDate.of(2001, 1, 1), 90L);
+        filmRepository.addFilm(other);
+        User secondUser = new User(null, "second@yandex.ru", "Второй", "Имя", LocalDate.of(1991, 1, 1));
+        userRepository.addUser(secondUser);
+
+        filmRepository.addLike(other.getId(), validUser.getId());
+        filmRepository.addLike(other.getId(), secondUser.getId());
+        filmRepository.addLike(testFilm.getId(), validUser.getId());
+        filmRepository.deleteLike(testFilm.getId(), validUser.getId());
+
+        assertEquals(2, filmRepository.getFilmById(other.getId()).getLikesCount());
+        assertEquals(Set.of(0, 2), filmRepository.getAllFilms().stream()
+                .map(Film::getLikesCount)
+                .collect(Collectors.toSet()));
+        List<Film> popular = List.copyOf(filmRepository.getPopularFilms(2));
+        assertEquals(List.of(other.getId(), testFilm.getId()), popular.stream().map(Film::getId).toList());
+        assertEquals(List.of(2, 0), popular.stream().map(Film::getLikesCount).toList());
+    }
+
+    @Test
+    @DisplayName("Пакетные лайки → счётчик меняется только на реально добавленные и удалённые лайки")
+    void applyLikes_shouldAdjustLikesCountByAppliedChanges() {
+        User secondUser = new User(null, "second@yandex.ru", "Второй", "Имя", LocalDate.of(1991, 1, 1));
+        userRepository.addUser(secondUser);
+        filmRepository.addLike(testFilm.getId(), validUser.getId());
+
+        filmRepository.applyLikes(
+                List.of(new FilmLike(testFilm.getId(), validUser.getId()),
+                        new FilmLike(testFilm.getId(), secondUser.getId())),
+                Map.of());
+        assertEquals(2, filmRepository.getLikesCount(testFilm.getId()));
+
+        filmRepository.applyLikes(List.of(), Map.of(new FilmLike(testFilm.getId(), secondUser.getId()), Instant.now()));
+        assertEquals(1, filmRepository.getLikesCount(testFilm.getId()));
+        assertEquals(Map.of(testFilm.getId(), 1), filmRepository.getLikesCounts());
+    }
+
+    @Test
+    @DisplayName("Поиск лайков по парам → возвращает только запрошенные пары, а не все сочетания")
+    void findLikes_shouldReturnOnlyRequestedPairs() {
+        User secondUser = new User(null, "second@yandex.ru", "Второй", "Имя", LocalDate.of(1991, 1, 1));
+        userRepository.addUser(secondUser);
+        Film secondFilm = new Film(null, "Второй", "Описание", LocalDate.of(2001, 1, 1), 90L);
+        filmRepository.addFilm(secondFilm);
+        for (Long filmId : List.of(testFilm.getId(), secondFilm.getId())) {
+            for (Long userId : List.of(validUser.getId(), secondUser.getId())) {
+                filmRepository.addLike(filmId, userId);
+            }
+        }
+
+        FilmLike first = new FilmLike(testFilm.getId(), validUser.getId());
+        FilmLike second = new FilmLike(secondFilm.getId(), secondUser.getId());
+        FilmLike missing = new FilmLike(secondFilm.getId(), validUser.getId() + 100);
+        Map<FilmLike, Instant> found = filmRepository.findLikes(List.of(first, second, missing));
+
+        assertEquals(Set.of(first, second), found.keySet());
+        assertTrue(found.values().stream().allMatch(Objects::nonNull));
+    }
+
+    @Test
+    @DisplayName("Жанры с названиями → приходят в той же строке для фильма по ID, всех фильмов и популярных")
+    void genres_shouldBeLoadedWithFilmRow() {
+        Film withGenres = new Film(null, "С жанрами", "Описание", LocalDate.of(2001, 1, 1), 90L);
+        withGenres.setGenres(Set.of(new Genre(1L, null), new Genre(3L, null)));
+        filmRepository.addFilm(withGenres);
+        Set<Genre> expected = Set.of(new Genre(1L, "Комедия"), new Genre(3L, "Мультфильм"));
+
+        assertEquals(expected, filmRepository.getFilmById(withGenres.getId()).getGenres());
+        assertEquals(expected, filmRepository.getAllFilms().stream()
+                .filter(film -> film.getId().equals(withGenres.getId()))
+                .findFirst().orElseThrow().getGenres());
+        assertEquals(List.of(Set.of(), expected), filmRepository.getPopularFilms(2).stream()
+                .map(Film::getGenres)
+                .toList());
+    }
+
     @Test
     @DisplayName("Обновление фильма → успешно обновляет данные")
     void updateFilm_shouldUpdateFilmData() {
@@ -162,6 +275,90 @@ class FilmRepositoryTest {
         assertEquals(150L, updatedFilm.getDuration());
     }
 
+    @Test
+    @DisplayName("Обновление жанров → меняются только отличающиеся строки, событие несёт разницу")
+    void updateFilm_shouldApplyOnlyGenreDiff() {
+        Film film = new Film(null, "С жанрами", "Описание", LocalDate.of(2001, 1, 1), 90L);
+        film.setGenres(Set.of(new Genre(1L, null), new Genre(2L, null)));
+        filmRepository.addFilm(film);
+
+        film.setGenres(Set.of(new Genre(2L, null), new Genre(3L, null)));
+        filmRepository.updateFilm(film);
+
+        assertEquals(Set.of(2L, 3L), Set.copyOf(jdbcTemplate.queryForList(
+                "SELECT genre_id FROM film_genres WHERE film_id = ?", Long.class, film.getId())));
+        FilmUpdatedEvent changed = updatedEvents.received.get(0);
+        assertEquals(Set.of(3L), changed.addedGenreIds());
+        assertEquals(Set.of(1L), changed.removedGenreIds());
+
+        film.setName("Другое название");
+        filmRepository.updateFilm(film);
+
+        FilmUpdatedEvent renamed = updatedEvents.received.get(1);
+        assertTrue(renamed.addedGenreIds().isEmpty());
+        assertTrue(renamed.removedGenreIds().isEmpty());
+        assertEquals(Set.of(new Genre(2L, "Драма"), new Genre(3L, "Мультфильм")),
+                filmRepository.getFilmById(film.getId()).getGenres());
+    }
+
+    @Test
+    @DisplayName("Жанры заменяются целиком, прежние жанры устаревшего прочитанного фильма не подменяют состав в базе")
+    void updateFilm_withSameOrStaleKnownGenres_shouldKeepGenresConsistent() {
+        Film film = new Film(null, "С жанрами", "Описание", LocalDate.of(2001, 1, 1), 90L);
+        film.setGenres(Set.of(new Genre(1L, null), new Genre(2L, null)));
+        filmRepository.addFilm(film);
+        Film stale = filmRepository.getFilmById(film.getId());
+
+        film.setGenres(Set.of(new Genre(1L, null), new Genre(2L, null)));
+        film.setName("Те же жанры");
+        filmRepository.updateFilm(film);
+        assertEquals(Set.of(1L, 2L), Set.copyOf(jdbcTemplate.queryForList(
+                "SELECT genre_id FROM film_genres WHERE film_id = ?", Long.class, film.getId())));
+        assertTrue(updatedEvents.received.get(0).addedGenreIds().isEmpty());
+        assertTrue(updatedEvents.received.get(0).removedGenreIds().isEmpty());
+
+        film.setGenres(Set.of(new Genre(1L, null)));
+        filmRepository.updateFilm(film, stale);
+        assertEquals(Set.of(1L), Set.copyOf(jdbcTemplate.queryForList(
+                "SELECT genre_id FROM film_genres WHERE film_id = ?", Long.class, film.getId())));
+        assertEquals(Set.of(2L), updatedEvents.received.get(1).removedGenreIds());
+
+        Film known = filmRepository.getFilmById(film.getId());
+        filmRepository.updateFilm(film, known);
+        assertTrue(updatedEvents.received.get(2).addedGenreIds().isEmpty());
+        assertTrue(updatedEvents.received.get(2).removedGenreIds().isEmpty());
+
+        film.setGenres(new HashSet<>());
+        filmRepository.updateFilm(film, filmRepository.getFilmById(film.getId()));
+        assertTrue(jdbcTemplate.queryForList(
+                "SELECT genre_id FROM film_genres WHERE film_id = ?", Long.class, film.getId()).isEmpty());
+        assertEquals(Set.of(1L), updatedEvents.received.get(3).removedGenreIds());
+    }
+
+    @Test
+    @DisplayName("Обновление по устаревшей версии → ConflictException, патч без изменений версию не меняет")
+    void patchFilm_withStaleVersion_shouldThrowConflictException() {
+        Film original = filmRepository.getFilmById(testFilm.getId());
+        Film concurrent = filmRepository.getFilmById(testFilm.getId());
+        concurrent.setName("Параллельное");
+        assertTrue(filmRepository.patchFilm(original, concurrent));
+        assertEquals(original.getVersion() + 1, concurrent.getVersion());
+
+        Film stale = filmRepository.getFilmById(testFilm.getId());
+        stale.setName("Устаревшее");
+        stale.setVersion(original.getVersion());
+        assertThrows(ConflictException.class, () -> filmRepository.patchFilm(original, stale));
+        testFilm.setVersion(original.getVersion());
+        assertThrows(ConflictException.class, () -> filmRepository.updateFilm(testFilm));
+
+        Film current = filmRepository.getFilmById(testFilm.getId());
+        assertEquals("Параллельное", current.getName());
+        assertEquals(concurrent.getVersion(), current.getVersion());
+        assertFalse(filmRepository.patchFilm(current, filmRepository.getFilmById(testFilm.getId())));
+        assertEquals(concurrent.getVersion(), filmRepository.getFilmById(testFilm.getId()).getVersion());
+        assertEquals(1, updatedEvents.received.size());
+    }
+
     @Test
     @DisplayName("Проверка существования фильма → возвращает false для существующего фильма")
     void doesFilmNotExist_withExistingFilm_shouldReturnFalse() {
@@ -176,6 +373,19 @@ class FilmRepositoryTest {
         assertTrue(result);
     }
 
+    @Test
+    @DisplayName("Проверка существования через индекс → фильм из базы найден, после загрузки индекса база не нужна")
+    void doesFilmNotExist_withIdIndex_shouldFallBackToDatabaseUntilIndexed() {
+        assertFalse(cachingFilmStorage.doesFilmNotExist(testFilm.getId()));
+        assertTrue(cachingFilmStorage.doesFilmNotExist(9999L));
+
+        cachingFilmStorage.loadFilmIds();
+        jdbcTemplate.update("DELETE FROM films WHERE id = ?", testFilm.getId());
+
+        assertFalse(cachingFilmStorage.doesFilmNotExist(testFilm.getId()));
+        assertTrue(filmRepository.doesFilmNotExist(testFilm.getId()));
+    }
+
     @Test
     @DisplayName("Добавление фильма с несуществующим жанром → исключение NotFoundException")
     void addFilm_withNonExistingGenre_shouldThrowNotFoundException() {
@@ -199,4 +409,13 @@ class FilmRepositoryTest {
 
         assertTrue(exception.getMessage().contains("Жанр с ID 9999 не найден"));
     }
-}
\ No newline at end of file
+
+    static class UpdatedEvents {
+        private final List<FilmUpdatedEvent> received = new ArrayList<>();
+
+        @EventListener
+        void onFilmUpdated(FilmUpdatedEvent event) {
+            received.add(event);
+        }
+    }
+}
@@ -27,7 +27,7 @@ import static org.junit.jupiter.api.Assertions.*;
 @AutoConfigureTestDatabase
 @DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
 @Import({GenreRepository.class, GenreService.class, GenreController.class, GenreRowMapper.class,
-        FilmRepository.class, FilmRowMapper.class, MpaRowMapper.class})
+        FilmRepository.class, MpaRepository.class, FilmRowMapper.class, MpaRowMapper.class})
 class GenreRepositoryTest {
 
     @Autowired
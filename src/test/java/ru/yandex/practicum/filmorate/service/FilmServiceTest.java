@@ -8,12 +8,23 @@ import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabas
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.context.annotation.Import;
 import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.cache.FilmCache;
+import ru.yandex.practicum.filmorate.cache.UserCache;
 import ru.yandex.practicum.filmorate.controller.FilmController;
 import ru.yandex.practicum.filmorate.controller.UserController;
+import ru.yandex.practicum.filmorate.dto.LikeOperation;
+import ru.yandex.practicum.filmorate.dto.LikeResult;
+import ru.yandex.practicum.filmorate.dto.LikeStatus;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.index.FilmLikeCounts;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.FilmTrends;
+import ru.yandex.practicum.filmorate.index.PopularityLeaderboards;
+import ru.yandex.practicum.filmorate.index.TitleAutocomplete;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.repository.film.CachingFilmStorage;
 import ru.yandex.practicum.filmorate.repository.film.FilmRepository;
 import ru.yandex.practicum.filmorate.repository.film.GenreRepository;
 import ru.yandex.practicum.filmorate.repository.film.MpaRepository;
@@ -21,10 +32,13 @@ import ru.yandex.practicum.filmorate.repository.mapper.FilmRowMapper;
 import ru.yandex.practicum.filmorate.repository.mapper.GenreRowMapper;
 import ru.yandex.practicum.filmorate.repository.mapper.MpaRowMapper;
 import ru.yandex.practicum.filmorate.repository.mapper.UserRowMapper;
+import ru.yandex.practicum.filmorate.repository.outbox.OutboxRepository;
+import ru.yandex.practicum.filmorate.repository.user.CachingUserStorage;
 import ru.yandex.practicum.filmorate.repository.user.UserRepository;
 
 import java.time.LocalDate;
 import java.util.Collection;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -33,10 +47,15 @@ import static org.junit.jupiter.api.Assertions.*;
 @DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
 @Import({FilmRepository.class, UserRepository.class, GenreRepository.class, MpaRepository.class, FilmService.class,
         UserService.class, FilmController.class, UserController.class, FilmRowMapper.class, UserRowMapper.class,
-        MpaRowMapper.class, GenreRowMapper.class})
+        MpaRowMapper.class, GenreRowMapper.class, FilmSearchIndex.class, FilmLikeCounts.class, TitleAutocomplete.class,
+        PopularityLeaderboards.class, FilmTrends.class, OutboxRepository.class, CachingFilmStorage.class,
+        FilmCache.class, CachingUserStorage.class, UserCache.class, SingleFlight.class})
 class FilmServiceTest {
     @Autowired
     private FilmService filmService;
+
+    @Autowired
+    private PopularityLeaderboards popularityLeaderboards;
     @Autowired
     private UserService userService;
     private Film testFilm;
@@ -234,4 +253,104 @@ class FilmServiceTest {
 
         assertTrue(result.isEmpty());
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Поиск с пустым запросом → исключение ValidationException")
+    void searchFilms_withBlankQuery_shouldThrowValidationException() {
+        assertThrows(ValidationException.class, () -> filmService.searchFilms(" ", List.of("title"), 10));
+    }
+
+    @Test
+    @DisplayName("Поиск по неизвестному полю → исключение ValidationException")
+    void searchFilms_withUnknownField_shouldThrowValidationException() {
+        assertThrows(ValidationException.class, () -> filmService.searchFilms("фильм", List.of("director"), 10));
+    }
+
+    @Test
+    @DisplayName("Автодополнение с пустым префиксом → исключение ValidationException")
+    void suggestFilms_withBlankPrefix_shouldThrowValidationException() {
+        assertThrows(ValidationException.class, () -> filmService.suggestFilms("  ", 10));
+    }
+
+    @Test
+    @DisplayName("Популярные фильмы по году выпуска → только фильмы этого года")
+    void getPopularFilms_withYear_shouldFilterByReleaseYear() {
+        Film film = new Film(null, "Фильм", "Описание", LocalDate.of(1985, 5, 5), 100L);
+        filmService.createFilm(film);
+        popularityLeaderboards.rebuild();
+
+        assertEquals(List.of(film.getId()),
+                filmService.getPopularFilms(10, null, 1985).stream().map(Film::getId).toList());
+        assertTrue(filmService.getPopularFilms(10, null, 1986).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Тренды за неизвестное окно → исключение ValidationException")
+    void getTrendingFilms_withUnknownWindow_shouldThrowValidationException() {
+        assertThrows(ValidationException.class, () -> filmService.getTrendingFilms("month", 10));
+    }
+
+    @Test
+    @DisplayName("Обновление фильма сбрасывает его из кэша")
+    void updateFilm_shouldInvalidateCachedFilm() {
+        filmService.createFilm(testFilm);
+        filmService.getFilmById(testFilm.getId());
+
+        Film updated = new Film(testFilm.getId(), "Новое название", "Описание", LocalDate.of(2000, 1, 1), 100L);
+        filmService.updateFilm(updated);
+
+        assertEquals("Новое название", filmService.getFilmById(testFilm.getId()).getName());
+    }
+
+    @Test
+    @DisplayName("Пакет лайков → статус на каждую операцию, изменения одной пары применяются по порядку")
+    void applyLikes_withMixedOperations_shouldReturnStatusPerOperation() {
+        filmService.createFilm(testFilm);
+        userService.createUser(validUser);
+        Long filmId = testFilm.getId();
+        Long userId = validUser.getId();
+
+        List<LikeResult> results = filmService.applyLikes(List.of(
+                new LikeOperation(filmId, userId, "like"),
+                new LikeOperation(filmId, userId, "LIKE"),
+                new LikeOperation(filmId, 999L, "like"),
+                new LikeOperation(999L, userId, "like"),
+                new LikeOperation(filmId, userId, "love"),
+                new LikeOperation(filmId, userId, "unlike"),
+                new LikeOperation(filmId, userId, "unlike"),
+                new LikeOperation(filmId, userId, "like")
+        ));
+
+        assertEquals(List.of(LikeStatus.APPLIED, LikeStatus.ALREADY_LIKED, LikeStatus.USER_NOT_FOUND,
+                        LikeStatus.FILM_NOT_FOUND, LikeStatus.INVALID, LikeStatus.APPLIED, LikeStatus.NOT_LIKED,
+                        LikeStatus.APPLIED),
+                results.stream().map(LikeResult::status).toList());
+        assertTrue(filmService.isLikeExists(filmId, userId));
+
+        filmService.applyLikes(List.of(new LikeOperation(filmId, userId, "unlike")));
+        assertFalse(filmService.isLikeExists(filmId, userId));
+    }
+
+    @Test
+    @DisplayName("Пустой пакет лайков → исключение ValidationException")
+    void applyLikes_withEmptyBatch_shouldThrowValidationException() {
+        assertThrows(ValidationException.class, () -> filmService.applyLikes(List.of()));
+    }
+
+    @Test
+    @DisplayName("Страницы для потоковой выдачи → все фильмы по возрастанию ID без пропусков и повторов")
+    void getFilmsPage_shouldWalkAllFilmsByKeyset() {
+        for (int i = 1; i <= 5; i++) {
+            filmService.createFilm(new Film(null, "Фильм " + i, "Описание", LocalDate.of(2000, 1, i), 100L));
+        }
+
+        List<Film> first = filmService.getFilmsPage(0, 2);
+        List<Film> second = filmService.getFilmsPage(first.getLast().getId(), 2);
+        List<Film> last = filmService.getFilmsPage(second.getLast().getId(), 2);
+
+        assertEquals(List.of("Фильм 1", "Фильм 2"), first.stream().map(Film::getName).toList());
+        assertEquals(List.of("Фильм 3", "Фильм 4"), second.stream().map(Film::getName).toList());
+        assertEquals(List.of("Фильм 5"), last.stream().map(Film::getName).toList());
+        assertTrue(filmService.getFilmsPage(last.getLast().getId(), 2).isEmpty());
+    }
+}
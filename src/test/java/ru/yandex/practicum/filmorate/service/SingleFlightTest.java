@@ -0,0 +1,196 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.config.ReadYourWritesContext;
+import ru.yandex.practicum.filmorate.event.FilmUpdatedEvent;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+    private static final int CALLERS = 50;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        ReadYourWritesContext.clear();
+    }
+
+    @Test
+    @DisplayName("Одинаковые одновременные запросы выполняются один раз и получают общий результат")
+    void execute_whenCallsOverlap_shouldShareSingleInvocation() throws Exception {
+        SingleFlight singleFlight = new SingleFlight(Duration.ofSeconds(5));
+        AtomicInteger invocations = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> value = List.of("popular");
+
+        List<Future<List<String>>> results = runConcurrently(() -> singleFlight.execute("films.popular", () -> {
+            invocations.incrementAndGet();
+            awaitQuietly(release);
+            return value;
+        }, 10), singleFlight);
+        release.countDown();
+
+        for (Future<List<String>> result : results) {
+            assertSame(value, result.get());
+        }
+        assertEquals(1, invocations.get());
+        assertEquals((double) (CALLERS - 1) / CALLERS, singleFlight.dedupRatio(), 1e-9);
+
+        singleFlight.execute("films.popular", invocations::incrementAndGet, 10);
+        assertEquals(2, invocations.get());
+    }
+
+    @Test
+    @DisplayName("Разные аргументы не склеиваются, а исключение общего запроса получает каждый ждущий")
+    void execute_shouldKeyByArgumentsAndShareFailures() throws Exception {
+        SingleFlight singleFlight = new SingleFlight(Duration.ofSeconds(5));
+        AtomicInteger invocations = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<Integer> other = executor.submit(() -> singleFlight.execute("films.byId", () -> {
+            awaitQuietly(release);
+            return 2;
+        }, 2L));
+        List<Future<Integer>> results = runConcurrently(() -> singleFlight.execute("films.byId", () -> {
+            invocations.incrementAndGet();
+            awaitQuietly(release);
+            throw new NotFoundException("Фильм с ID = 1 не найден");
+        }, 1L), singleFlight);
+        release.countDown();
+
+        for (Future<Integer> result : results) {
+            ExecutionException error = assertThrows(ExecutionException.class, result::get);
+            assertInstanceOf(NotFoundException.class, error.getCause());
+        }
+        assertEquals(1, invocations.get());
+        assertEquals(2, other.get());
+    }
+
+    @Test
+    @DisplayName("Не дождавшись общего результата, запрос выполняется сам")
+    void execute_whenLeaderIsSlow_shouldFallBackAfterTimeout() throws Exception {
+        SingleFlight singleFlight = new SingleFlight(Duration.ofMillis(50));
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> leader = executor.submit(() -> singleFlight.execute("users.friends", () -> {
+            leaderStarted.countDown();
+            awaitQuietly(release);
+            return "медленный";
+        }, 1L));
+        leaderStarted.await();
+
+        assertEquals("свой", singleFlight.execute("users.friends", () -> "свой", 1L));
+        release.countDown();
+        assertEquals("медленный", leader.get());
+    }
+
+    @Test
+    @DisplayName("Запрос после записи не присоединяется к уже идущему чтению")
+    void execute_whenPinnedToPrimary_shouldNotJoinRunningRead() throws Exception {
+        SingleFlight singleFlight = new SingleFlight(Duration.ofSeconds(5));
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> leader = executor.submit(() -> singleFlight.execute("films.popular", () -> {
+            leaderStarted.countDown();
+            awaitQuietly(release);
+            return "до записи";
+        }, 10));
+        leaderStarted.await();
+
+        ReadYourWritesContext.pinToPrimary();
+        assertEquals("после записи", singleFlight.execute("films.popular", () -> "после записи", 10));
+        release.countDown();
+        assertEquals("до записи", leader.get());
+    }
+
+    @Test
+    @DisplayName("Чтение после закоммиченной записи не получает результат чтения, начатого до неё")
+    void execute_whenWriteCommittedDuringRead_shouldStartFreshRead() throws Exception {
+        SingleFlight singleFlight = new SingleFlight(Duration.ofSeconds(5));
+        AtomicReference<String> stored = new AtomicReference<>("старое имя");
+        AtomicInteger invocations = new AtomicInteger();
+        CountDownLatch staleStarted = new CountDownLatch(1);
+        CountDownLatch releaseStale = new CountDownLatch(1);
+        CountDownLatch releaseFresh = new CountDownLatch(1);
+        Future<String> stale = executor.submit(() -> singleFlight.execute("films.byId", () -> {
+            invocations.incrementAndGet();
+            String read = stored.get();
+            staleStarted.countDown();
+            awaitQuietly(releaseStale);
+            return read;
+        }, 1L));
+        staleStarted.await();
+
+        stored.set("новое имя");
+        singleFlight.onCommitted(new FilmUpdatedEvent(1L, "новое имя", null, null, Set.of(), Set.of()));
+        Future<String> fresh = executor.submit(() -> singleFlight.execute("films.byId", () -> {
+            invocations.incrementAndGet();
+            String read = stored.get();
+            awaitQuietly(releaseFresh);
+            return read;
+        }, 1L));
+        awaitCondition(() -> invocations.get() == 2);
+        Future<String> joined = executor.submit(() -> singleFlight.execute("films.byId", () -> {
+            invocations.incrementAndGet();
+            return stored.get();
+        }, 1L));
+        awaitCondition(() -> singleFlight.waitingCount() == 1);
+        releaseFresh.countDown();
+
+        assertEquals("новое имя", fresh.get());
+        assertEquals("новое имя", joined.get());
+        assertFalse(stale.isDone());
+        releaseStale.countDown();
+        assertEquals("старое имя", stale.get());
+        assertEquals(2, invocations.get());
+    }
+
+    // Первый вызов запускается заранее и становится ведущим, остальные дожидаются его результата
+    private <T> List<Future<T>> runConcurrently(Supplier<T> call, SingleFlight singleFlight)
+            throws InterruptedException {
+        List<Future<T>> results = new ArrayList<>(CALLERS);
+        results.add(executor.submit(call::get));
+        awaitCondition(() -> singleFlight.inFlightCount() > 0);
+        for (int i = 1; i < CALLERS; i++) {
+            results.add(executor.submit(call::get));
+        }
+        awaitCondition(() -> singleFlight.waitingCount() >= CALLERS - 1);
+        return results;
+    }
+
+    private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Вызовы не дошли до ожидания");
+            Thread.sleep(1);
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
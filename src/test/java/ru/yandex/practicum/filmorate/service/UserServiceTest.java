@@ -8,11 +8,22 @@ import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabas
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.context.annotation.Import;
 import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.cache.FilmCache;
+import ru.yandex.practicum.filmorate.cache.UserCache;
 import ru.yandex.practicum.filmorate.controller.FilmController;
 import ru.yandex.practicum.filmorate.controller.UserController;
+import ru.yandex.practicum.filmorate.dto.FriendshipImportResult;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.index.FilmLikeCounts;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.FilmTrends;
+import ru.yandex.practicum.filmorate.index.PopularityLeaderboards;
+import ru.yandex.practicum.filmorate.index.TitleAutocomplete;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.repository.UserStorage;
+import ru.yandex.practicum.filmorate.repository.film.CachingFilmStorage;
 import ru.yandex.practicum.filmorate.repository.film.FilmRepository;
 import ru.yandex.practicum.filmorate.repository.film.GenreRepository;
 import ru.yandex.practicum.filmorate.repository.film.MpaRepository;
@@ -20,9 +31,12 @@ import ru.yandex.practicum.filmorate.repository.mapper.FilmRowMapper;
 import ru.yandex.practicum.filmorate.repository.mapper.GenreRowMapper;
 import ru.yandex.practicum.filmorate.repository.mapper.MpaRowMapper;
 import ru.yandex.practicum.filmorate.repository.mapper.UserRowMapper;
+import ru.yandex.practicum.filmorate.repository.outbox.OutboxRepository;
+import ru.yandex.practicum.filmorate.repository.user.CachingUserStorage;
 import ru.yandex.practicum.filmorate.repository.user.UserRepository;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
@@ -33,10 +47,15 @@ import static org.junit.jupiter.api.Assertions.*;
 @DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
 @Import({FilmRepository.class, UserRepository.class, GenreRepository.class, MpaRepository.class, FilmService.class,
         UserService.class, FilmController.class, UserController.class, FilmRowMapper.class, UserRowMapper.class,
-        MpaRowMapper.class, GenreRowMapper.class})
+        MpaRowMapper.class, GenreRowMapper.class, FilmSearchIndex.class, FilmLikeCounts.class, TitleAutocomplete.class,
+        PopularityLeaderboards.class, FilmTrends.class, OutboxRepository.class, CachingFilmStorage.class,
+        FilmCache.class, CachingUserStorage.class, UserCache.class, SingleFlight.class})
 class UserServiceTest {
     @Autowired
     private UserService userService;
+
+    @Autowired
+    private UserStorage userStorage;
     private User validUser;
 
     @BeforeEach
@@ -322,4 +341,58 @@ class UserServiceTest {
 
         assertTrue(commonFriends.isEmpty());
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Создание пользователя сбрасывает закэшированный ответ «не найден»")
+    void createUser_shouldInvalidateNegativeCacheEntry() {
+        assertTrue(userStorage.doesUserNotExist(1L));
+
+        User created = userService.createUser(new User(null, "new@yandex.ru", "newLogin", "Имя",
+                LocalDate.of(1990, 1, 1)));
+
+        assertEquals(1L, created.getId());
+        assertFalse(userStorage.doesUserNotExist(created.getId()));
+    }
+
+    @Test
+    @DisplayName("Импорт дружб → повторы и петли отброшены, встречные заявки стали взаимной дружбой")
+    void importFriendships_shouldDeduplicateAndResolveMutualRequests() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            ids.add(userService.createUser(new User(null, "user" + i + "@yandex.ru", "login" + i, "Имя",
+                    LocalDate.of(1990, 1, 1))).getId());
+        }
+        Long first = ids.get(0);
+        Long second = ids.get(1);
+        Long third = ids.get(2);
+        userService.addFriend(third, first);
+
+        FriendshipImportResult result = userService.importFriendships(List.of(
+                new Friendship(first, second),
+                new Friendship(first, second),
+                new Friendship(second, first),
+                new Friendship(first, first),
+                new Friendship(first, 999L),
+                new Friendship(first, third),
+                new Friendship(second, third)
+        ));
+
+        assertEquals(7, result.received());
+        assertEquals(1, result.duplicates());
+        assertEquals(1, result.invalid());
+        assertEquals(1, result.unknownUsers());
+        assertEquals(4, result.friendshipsCreated());
+        assertEquals(1, result.requestsCreated());
+        assertEquals(1, result.requestsResolved());
+        assertEquals(List.of(second, third), friendIds(first));
+        assertEquals(List.of(first, third), friendIds(second));
+        assertEquals(List.of(first), friendIds(third));
+
+        userService.addFriend(third, second);
+        assertEquals(List.of(first, second), friendIds(third));
+    }
+
+    private List<Long> friendIds(Long userId) {
+        return userService.getFriendsByUserId(userId).stream().map(User::getId).sorted().toList();
+    }
+}